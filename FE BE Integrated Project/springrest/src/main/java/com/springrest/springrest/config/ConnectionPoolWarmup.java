@@ -0,0 +1,51 @@
+package com.springrest.springrest.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+//startup self-check: opens the minimum idle connections up front and runs a trivial query on each,
+//so the first requests neither pay for connection setup nor find out the database is unreachable
+@Component
+public class ConnectionPoolWarmup implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(ConnectionPoolWarmup.class);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${spring.datasource.hikari.minimum-idle:${spring.datasource.hikari.maximum-pool-size:10}}")
+	private int connections;
+
+	@Override
+	public void run(ApplicationArguments args) throws SQLException {
+		long start = System.nanoTime();
+		List<Connection> opened = new ArrayList<>(connections);
+		try {
+			for(int i = 0; i < connections; i++) {
+				Connection connection = dataSource.getConnection();
+				opened.add(connection);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("select 1");
+				}
+			}
+		} finally {
+			for(Connection connection : opened) {
+				connection.close();
+			}
+		}
+		log.info("Connection pool warmed up with {} connections in {} ms", opened.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+}
@@ -0,0 +1,29 @@
+package com.springrest.springrest.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+	//only the pool spring boot creates as "dataSource" is wrapped; with replicas that bean is the routing
+	//data source instead, and ReplicaRoutingConfig wraps each of its pools itself
+	@Bean
+	public static BeanPostProcessor pooledDataSourceDecorator(Environment environment) {
+		PooledDataSourceDecorator decorator = new PooledDataSourceDecorator(environment);
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+				if(bean instanceof HikariDataSource && beanName.equals("dataSource")) {
+					return decorator.decorate((HikariDataSource) bean);
+				}
+				return bean;
+			}
+		};
+	}
+}
@@ -0,0 +1,30 @@
+package com.springrest.springrest.config;
+
+import java.io.IOException;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+//builds the ehcache manager for the second level cache ourselves: hibernate's own classpath: uri
+//lookup fails when the application sits in a directory whose path contains spaces
+@Configuration
+public class HibernateCacheConfig {
+
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager() throws IOException {
+		return Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+				.getCacheManager(new ClassPathResource("ehcache.xml").getURI(), getClass().getClassLoader());
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+		return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+	}
+}
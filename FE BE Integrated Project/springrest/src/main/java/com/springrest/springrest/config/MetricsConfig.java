@@ -0,0 +1,60 @@
+package com.springrest.springrest.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.springrest.springrest.service.CourseCache;
+import com.springrest.springrest.service.CourseSearchIndex;
+import com.springrest.springrest.service.WriteBehindCourseWriter;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//scraped from /actuator/prometheus: http.server.requests per route, course.service per method,
+//hikaricp.* for the pool, hibernate.* statement counts and the cache/serialization meters below
+@Configuration
+public class MetricsConfig {
+
+	//makes @Timed on CourseServiceImpl record a timer per method
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry registry) {
+		return new TimedAspect(registry);
+	}
+
+	@Bean
+	public MeterRegistryCustomizer<MeterRegistry> commonTags() {
+		return registry -> registry.config().commonTags("application", "springrest");
+	}
+
+	//read from the counters the cache already keeps, nothing extra happens on the lookup path
+	@Bean
+	public MeterBinder courseCacheMetrics(CourseCache courseCache) {
+		return registry -> {
+			FunctionCounter.builder("course.cache.requests", courseCache, CourseCache::getHits).tag("result", "hit").register(registry);
+			FunctionCounter.builder("course.cache.requests", courseCache, CourseCache::getMisses).tag("result", "miss").register(registry);
+			FunctionCounter.builder("course.cache.evictions", courseCache, CourseCache::getEvictions).register(registry);
+			Gauge.builder("course.cache.size", courseCache, CourseCache::size).register(registry);
+		};
+	}
+
+	@Bean
+	public MeterBinder courseSearchIndexMetrics(CourseSearchIndex courseSearchIndex) {
+		return registry -> Gauge.builder("course.search.documents", courseSearchIndex, CourseSearchIndex::size).register(registry);
+	}
+
+	//only with springrest.write-behind.enabled=true
+	@Bean
+	public MeterBinder writeBehindMetrics(ObjectProvider<WriteBehindCourseWriter> writeBehind) {
+		return registry -> writeBehind.ifAvailable(writer -> {
+			Gauge.builder("course.write-behind.pending", writer, WriteBehindCourseWriter::pendingCount).register(registry);
+			FunctionCounter.builder("course.write-behind.dead-letters", writer, WriteBehindCourseWriter::getDeadLettered)
+					.description("mutations given up on after repeated rejections, see the .dead file next to the log")
+					.register(registry);
+		});
+	}
+}
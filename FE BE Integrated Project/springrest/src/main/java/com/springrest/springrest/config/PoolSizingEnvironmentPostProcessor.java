@@ -0,0 +1,36 @@
+package com.springrest.springrest.config;
+
+import java.util.Collections;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+//fills in spring.datasource.hikari.maximum-pool-size when it is not set explicitly, so hikari and everything
+//that reads the property (e.g. the virtual thread semaphore) agree on one number:
+//  min(cores * 2 + 1, (db-max-connections - reserved-connections) / instances)
+//the first term is the usual postgres starting point, the second keeps all instances within max_connections
+public class PoolSizingEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+	static final String POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+	@Override
+	public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+		if(environment.containsProperty(POOL_SIZE)) {
+			return;
+		}
+		int dbMax = environment.getProperty("springrest.datasource.db-max-connections", Integer.class, 100);
+		int reserved = environment.getProperty("springrest.datasource.reserved-connections", Integer.class, 10);
+		int instances = environment.getProperty("springrest.datasource.instances", Integer.class, 1);
+		int size = poolSize(Runtime.getRuntime().availableProcessors(), dbMax, reserved, instances);
+		environment.getPropertySources().addLast(
+				new MapPropertySource("derivedPoolSize", Collections.singletonMap(POOL_SIZE, size)));
+	}
+
+	static int poolSize(int cores, int dbMaxConnections, int reservedConnections, int instances) {
+		int byCores = cores * 2 + 1;
+		int byDatabase = (dbMaxConnections - reservedConnections) / Math.max(1, instances);
+		return Math.max(2, Math.min(byCores, byDatabase));
+	}
+}
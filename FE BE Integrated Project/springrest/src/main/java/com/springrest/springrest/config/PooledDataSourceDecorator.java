@@ -0,0 +1,39 @@
+package com.springrest.springrest.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+//the one place a connection pool gets wrapped, innermost first:
+//  connection semaphore sized to this pool (only with springrest.virtual-threads.enabled=true)
+//  slow acquire logging, so the time spent queueing on the semaphore is logged too
+//applied to the pool spring boot creates (DataSourceConfig) and to each primary/replica pool of ReplicaRoutingConfig
+public class PooledDataSourceDecorator {
+
+	private final boolean limitConnections;
+	private final long acquireTimeoutMillis;
+	private final long slowAcquireThresholdMillis;
+
+	public PooledDataSourceDecorator(Environment environment) {
+		this(environment.getProperty("springrest.virtual-threads.enabled", Boolean.class, false),
+				environment.getProperty("spring.datasource.hikari.connection-timeout", Long.class, 30_000L),
+				environment.getProperty("springrest.datasource.slow-acquire-threshold-ms", Long.class, 100L));
+	}
+
+	PooledDataSourceDecorator(boolean limitConnections, long acquireTimeoutMillis, long slowAcquireThresholdMillis) {
+		this.limitConnections = limitConnections;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.slowAcquireThresholdMillis = slowAcquireThresholdMillis;
+	}
+
+	public DataSource decorate(HikariDataSource pool) {
+		DataSource dataSource = pool;
+		if(limitConnections) {
+			//blocked virtual threads queue on the semaphore instead of piling up inside the pool
+			dataSource = new ConnectionLimitingDataSource(dataSource, pool.getMaximumPoolSize(), acquireTimeoutMillis);
+		}
+		return new SlowAcquireLoggingDataSource(dataSource, slowAcquireThresholdMillis);
+	}
+}
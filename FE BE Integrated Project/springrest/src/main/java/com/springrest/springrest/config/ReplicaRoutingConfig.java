@@ -0,0 +1,100 @@
+package com.springrest.springrest.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+//only active once a replica is configured, e.g.
+//  springrest.datasource.replicas[0].url=jdbc:postgresql://replica1:5432/scbdatabase
+//reads in read-only transactions go to the replicas, writes and everything else to spring.datasource.url
+@Configuration
+@ConditionalOnProperty("springrest.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaRoutingConfig.ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+	private final ScheduledExecutorService latencyProbe = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "replica-latency-probe");
+		t.setDaemon(true);
+		return t;
+	});
+
+	@Bean
+	public DataSource dataSource(DataSourceProperties primaryProperties, ReplicaProperties replicaProperties,
+			ReplicaStickiness stickiness, Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+		PooledDataSourceDecorator decorator = new PooledDataSourceDecorator(environment);
+		DataSource primary = decorator.decorate(pool(environment, meterRegistry, "course-primary", primaryProperties.determineUrl(),
+				primaryProperties.determineUsername(), primaryProperties.determinePassword()));
+		List<DataSource> replicas = new ArrayList<>();
+		for(int i = 0; i < replicaProperties.getReplicas().size(); i++) {
+			Endpoint replica = replicaProperties.getReplicas().get(i);
+			replicas.add(decorator.decorate(pool(environment, meterRegistry, "course-replica-" + i, replica.getUrl(),
+					replica.getUsername() != null ? replica.getUsername() : primaryProperties.determineUsername(),
+					replica.getPassword() != null ? replica.getPassword() : primaryProperties.determinePassword())));
+		}
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+				replicaProperties.getReplicaSelection(), stickiness);
+		if(replicaProperties.getReplicaSelection() == ReplicaRoutingDataSource.Selection.LEAST_LATENCY) {
+			latencyProbe.scheduleWithFixedDelay(routing::probeLatency, 0, replicaProperties.getLatencyProbeIntervalMs(), TimeUnit.MILLISECONDS);
+		}
+		return new LazyConnectionDataSourceProxy(routing);
+	}
+
+	//every pool gets the spring.datasource.hikari.* settings, only url, credentials and name differ;
+	//each one is wrapped on its own so the virtual thread semaphore matches that pool's size
+	private HikariDataSource pool(Environment environment, ObjectProvider<MeterRegistry> meterRegistry,
+			String name, String url, String username, String password) {
+		HikariDataSource pool = new HikariDataSource();
+		pools.add(pool);
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+		pool.setPoolName(name);
+		pool.setJdbcUrl(url);
+		pool.setUsername(username);
+		pool.setPassword(password);
+		meterRegistry.ifAvailable(registry -> pool.setMetricRegistry(registry));
+		return pool;
+	}
+
+	@PreDestroy
+	public void close() {
+		latencyProbe.shutdownNow();
+		pools.forEach(HikariDataSource::close);
+	}
+
+	@Data
+	@ConfigurationProperties("springrest.datasource")
+	public static class ReplicaProperties {
+		private List<Endpoint> replicas = new ArrayList<>();
+		private ReplicaRoutingDataSource.Selection replicaSelection = ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+		private long latencyProbeIntervalMs = 1000;  //least-latency only: how often each replica's round trip is measured
+	}
+
+	@Data
+	public static class Endpoint {
+		private String url;
+		private String username;  //defaults to spring.datasource.username
+		private String password;  //defaults to spring.datasource.password
+	}
+}
@@ -0,0 +1,97 @@
+package com.springrest.springrest.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//sends connections for read-only transactions to a replica and everything else to the primary,
+//must sit behind a LazyConnectionDataSourceProxy so the read-only flag is known when the connection is taken
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+	public enum Selection { ROUND_ROBIN, LEAST_LATENCY }
+
+	private static final double EWMA_WEIGHT = 0.2;  //share of the newest sample in the moving average
+
+	private final DataSource primary;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final Selection selection;
+	private final ReplicaStickiness stickiness;
+	private final AtomicInteger next = new AtomicInteger();
+
+	public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Selection selection,
+			ReplicaStickiness stickiness) {
+		this.primary = primary;
+		replicas.forEach(r -> this.replicas.add(new Replica(r)));
+		this.selection = selection;
+		this.stickiness = stickiness;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return target().getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return target().getConnection(username, password);
+	}
+
+	//times a "select 1" on every replica, called periodically by ReplicaRoutingConfig when least-latency is on.
+	//the round trip is what a read pays on top of its own work, the time to check a connection out of an idle
+	//pool says nothing about the network or how busy the replica is
+	public void probeLatency() {
+		for(Replica replica : replicas) {
+			replica.probe();
+		}
+	}
+
+	private DataSource target() {
+		if(replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				|| stickiness.pinnedToPrimary()) {
+			return primary;
+		}
+		Replica replica = selection == Selection.LEAST_LATENCY
+				? fastest()
+				: replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+		return replica.dataSource;
+	}
+
+	private Replica fastest() {
+		Replica best = replicas.get(0);
+		for(Replica replica : replicas) {
+			if(replica.latencyNanos < best.latencyNanos) best = replica;
+		}
+		return best;
+	}
+
+	private static final class Replica {
+		final DataSource dataSource;
+		volatile double latencyNanos;  //moving average of the "select 1" round trip, 0 until the first probe
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		void probe() {
+			double sample;
+			try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+				long start = System.nanoTime();
+				statement.execute("select 1");
+				sample = System.nanoTime() - start;
+			} catch (SQLException e) {
+				latencyNanos = Double.MAX_VALUE;  //a failing replica sorts last until a probe succeeds
+				return;
+			}
+			double current = latencyNanos;
+			latencyNanos = current == 0 || current == Double.MAX_VALUE ? sample : current + EWMA_WEIGHT * (sample - current);
+		}
+	}
+}
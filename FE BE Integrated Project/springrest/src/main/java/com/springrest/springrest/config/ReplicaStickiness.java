@@ -0,0 +1,97 @@
+package com.springrest.springrest.config;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+//read-your-writes: for a short window after a client wrote, that client's read-only work stays on the primary
+//so it never reads from a replica that has not replayed its own change yet, while other clients keep using
+//the replicas. the client of the current thread is bound per request by ReplicaStickinessFilter.
+//a write with no client bound (startup work) pins every client for the window, nobody knows whose write it
+//was; the write-behind flusher names the submitters of its batch instead.
+//client ids come from a request header, so they are cut to MAX_KEY_LENGTH and at most MAX_CLIENTS are tracked;
+//with more clients inside the window than that, a write pins everyone instead of being forgotten
+@Component
+public class ReplicaStickiness {
+
+	static final int MAX_CLIENTS = 10_000;
+	static final int MAX_KEY_LENGTH = 128;
+
+	private final long windowNanos;
+	private final Map<String, Long> lastWriteByClient = new ConcurrentHashMap<>();
+	private final ThreadLocal<String> client = new ThreadLocal<>();
+	private volatile long lastAnonymousWriteNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+	private final AtomicLong lastPruneNanos = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+
+	public ReplicaStickiness(@Value("${springrest.datasource.sticky-window-ms:2000}") long windowMillis) {
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+	}
+
+	//binds the client for the current thread, returns the previous one to restore afterwards
+	public String bind(String clientKey) {
+		String previous = client.get();
+		if(clientKey == null) {
+			client.remove();
+		} else {
+			client.set(clientKey.length() > MAX_KEY_LENGTH ? clientKey.substring(0, MAX_KEY_LENGTH) : clientKey);
+		}
+		return previous;
+	}
+
+	//the client bound to the current thread, null if none
+	public String currentClient() {
+		return client.get();
+	}
+
+	//a write by the client of the current thread
+	public void recordWrite() {
+		long now = System.nanoTime();
+		String key = client.get();
+		if(key == null) {
+			lastAnonymousWriteNanos = now;
+			return;
+		}
+		record(key, now);
+	}
+
+	//a write done on behalf of these clients, e.g. a write-behind batch; no clients pins nobody
+	public void recordWrite(Collection<String> clients) {
+		long now = System.nanoTime();
+		clients.forEach(key -> record(key, now));
+	}
+
+	private void record(String key, long now) {
+		if(lastWriteByClient.size() >= MAX_CLIENTS && !lastWriteByClient.containsKey(key)) {
+			prune(now);
+			if(lastWriteByClient.size() >= MAX_CLIENTS) {
+				lastAnonymousWriteNanos = now;
+				return;
+			}
+		}
+		lastWriteByClient.put(key, now);
+	}
+
+	//drops expired entries, at most once per window so a full map is not scanned on every write
+	private void prune(long now) {
+		long last = lastPruneNanos.get();
+		if(now - last < windowNanos || !lastPruneNanos.compareAndSet(last, now)) {
+			return;
+		}
+		lastWriteByClient.values().removeIf(at -> now - at >= windowNanos);
+	}
+
+	public boolean pinnedToPrimary() {
+		long now = System.nanoTime();
+		if(now - lastAnonymousWriteNanos < windowNanos) {
+			return true;
+		}
+		String key = client.get();
+		Long lastWrite = key == null ? null : lastWriteByClient.get(key);
+		return lastWrite != null && now - lastWrite < windowNanos;
+	}
+}
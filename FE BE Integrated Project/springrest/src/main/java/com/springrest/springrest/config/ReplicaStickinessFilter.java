@@ -0,0 +1,35 @@
+package com.springrest.springrest.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+//binds the calling client to the request thread for ReplicaStickiness: the X-Client-Id header when the
+//client sends one (e.g. a browser tab or a service instance), otherwise its address
+@Component
+public class ReplicaStickinessFilter extends OncePerRequestFilter {
+
+	static final String CLIENT_HEADER = "X-Client-Id";
+
+	@Autowired
+	private ReplicaStickiness stickiness;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String clientId = request.getHeader(CLIENT_HEADER);
+		String previous = stickiness.bind(clientId != null && !clientId.isBlank() ? clientId : request.getRemoteAddr());
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			stickiness.bind(previous);
+		}
+	}
+}
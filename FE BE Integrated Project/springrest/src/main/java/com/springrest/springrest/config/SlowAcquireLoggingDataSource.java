@@ -0,0 +1,35 @@
+package com.springrest.springrest.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+//logs every connection checkout slower than the threshold, the usual first sign of an undersized pool
+//(leaks are reported by hikari itself through leak-detection-threshold)
+public class SlowAcquireLoggingDataSource extends DelegatingDataSource {
+
+	private static final Logger log = LoggerFactory.getLogger(SlowAcquireLoggingDataSource.class);
+
+	private final long thresholdNanos;
+
+	public SlowAcquireLoggingDataSource(DataSource target, long thresholdMillis) {
+		super(target);
+		this.thresholdNanos = thresholdMillis * 1_000_000;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = super.getConnection();
+		long waited = System.nanoTime() - start;
+		if(waited > thresholdNanos) {
+			log.warn("Waited {} ms for a database connection", waited / 1_000_000);
+		}
+		return connection;
+	}
+}
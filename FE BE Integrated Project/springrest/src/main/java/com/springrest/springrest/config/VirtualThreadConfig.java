@@ -0,0 +1,51 @@
+package com.springrest.springrest.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jakarta.annotation.PreDestroy;
+
+//opt-in: springrest.virtual-threads.enabled=true runs every request (and streamed bodies) on a virtual thread
+//and caps concurrent database work with a semaphore per connection pool (see PooledDataSourceDecorator), needs a java 21 runtime
+@Configuration
+@ConditionalOnProperty(name = "springrest.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+	private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+	}
+
+	//tomcat has stopped taking requests by the time the context is destroyed, this lets async work finish
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	//looked up reflectively so the project still compiles for java 11/17
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("springrest.virtual-threads.enabled needs Java 21 or newer, running on "
+					+ System.getProperty("java.version"), e);
+		}
+	}
+}
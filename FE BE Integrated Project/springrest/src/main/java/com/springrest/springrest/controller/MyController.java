@@ -1,20 +1,44 @@
 package com.springrest.springrest.controller;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.BulkIngestResult;
+import com.springrest.springrest.service.CatalogVersion;
+import com.springrest.springrest.service.CourseListingCache;
 import com.springrest.springrest.service.CourseService;
+import com.springrest.springrest.service.CourseTag;
+import com.springrest.springrest.service.CourseVersionMismatchException;
+import com.springrest.springrest.service.WriteBehindFullException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @CrossOrigin
@@ -22,21 +46,88 @@ public class MyController {
 	
 	@Autowired
 	private CourseService courseService;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private CatalogVersion catalogVersion;
+	
+	@Autowired
+	private CourseListingCache courseListingCache;
+	
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
 	@GetMapping("/home")
 	public String home() {
 		return "Welcome to courses application";
 	}
 	
-	//getting the courses
+	//getting the courses: a poll with the last ETag gets 304 without reading the rows, otherwise the
+	//pre-serialized listing is sent, gzipped when the client accepts it
 	@GetMapping("/courses")
-	public List<Course> getCourses(){
-		return this.courseService.getCourses(); 
+	public ResponseEntity<byte[]> getCourses(WebRequest request,
+			@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding){
+		if(request.checkNotModified(catalogVersion.eTag(catalogVersion.current()))) {
+			return null;
+		}
+		CourseListingCache.Listing listing = this.courseListingCache.get();
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.eTag(listing.eTag)
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if(acceptsGzip(acceptEncoding)) {  //tomcat's own compression leaves a response with a Content-Encoding alone
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(listing.gzip);
+		}
+		return response.body(listing.json);
+	}
+	
+	//keyset pagination: GET /courses?after=<last id seen>&limit=<page size>, without after the first page
+	@GetMapping(value = "/courses", params = "limit")
+	public ResponseEntity<List<Course>> getCourses(@RequestParam(required = false) Long after,
+			@RequestParam int limit) {
+		if(limit < 1 || limit > MAX_PAGE_SIZE) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		List<Course> page = this.courseService.getCourses(after, limit);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if(page.size() == limit) {  //a full page means there may be more rows after the last id
+			response.header("X-Next-After", String.valueOf(page.get(page.size() - 1).getId()));
+		}
+		return response.body(page);
+	}
+	
+	//streaming every course as newline delimited json, rows are written as they come off the cursor
+	@GetMapping(value = "/courses/stream", produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> streamCourses() {
+		StreamingResponseBody body = out -> this.courseService.streamCourses(course -> {
+			try {
+				out.write(objectMapper.writeValueAsBytes(course));
+				out.write('\n');
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return ResponseEntity.ok().contentType(NDJSON).body(body);
 	}
 	
+	//full text search: GET /courses/search?q=java spr&limit=20, the last characters of a word may be left out
+	@GetMapping("/courses/search")
+	public List<Course> searchCourses(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+		return this.courseService.searchCourses(q, Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+	}
+	
+	//the ETag is the row incarnation and version: a matching If-None-Match gets 304 from the cached entry or
+	//a two column lookup, the row itself is only loaded when it changed
 	@GetMapping("/courses/{courseId}")
-	public Course getCourse(@PathVariable long courseId) {
-		return this.courseService.getCourses(courseId);
+	public ResponseEntity<Course> getCourse(@PathVariable long courseId, WebRequest request) {
+		CourseTag tag = this.courseService.getCourseTag(courseId);
+		if(tag != null && request.checkNotModified(tag.eTag())) {
+			return null;
+		}
+		Course course = this.courseService.getCourses(courseId);
+		return ResponseEntity.ok().eTag(eTag(course)).body(course);
 	}
 	
 	@PostMapping("/courses")
@@ -44,18 +135,103 @@ public class MyController {
 		return this.courseService.addCourse(course);
 	}
 
+	//bulk load: a json array or newline delimited json, parsed one course at a time while earlier chunks are written
+	@PostMapping(value = "/courses/bulk", consumes = {"application/json", "application/x-ndjson"})
+	public BulkIngestResult addCourses(InputStream body) throws IOException {
+		try (MappingIterator<Course> courses = objectMapper.readerFor(Course.class).readValues(body)) {
+			return this.courseService.addCourses(courses);
+		}
+	}
+
+	//with If-Match the update only goes through if nobody changed the course since that ETag was read
 	@PutMapping("/courses")
-	public Course updateCourse(@RequestBody Course course) {
-		return this.courseService.updateCourse(course);
+	public ResponseEntity<Course> updateCourse(@RequestBody Course course,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) {
+		CourseTag expected = parseTag(ifMatch);
+		Course saved = expected == null
+				? this.courseService.updateCourse(course)
+				: this.courseService.updateCourse(course, expected);
+		return ResponseEntity.ok().eTag(eTag(saved)).body(saved);
+	}
+	
+	//partial update: only the fields present in the body are changed, e.g. {"title":"New title"}
+	@PatchMapping("/courses/{courseId}")
+	public ResponseEntity<Course> patchCourse(@PathVariable long courseId, @RequestBody Map<String, String> fields,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) {
+		Course saved = this.courseService.patchCourse(courseId, fields, parseTag(ifMatch));
+		return ResponseEntity.ok().eTag(eTag(saved)).body(saved);
 	}
 	
 	@DeleteMapping("/courses/{courseId}")
 	public ResponseEntity<HttpStatus> deleteCourse(@PathVariable String courseId){
+		//other failures propagate so they are logged and counted as 5xx instead of disappearing
 		try {
 			this.courseService.deleteCourse(Long.parseLong(courseId));
 			return new ResponseEntity<>(HttpStatus.OK);
-		}catch(Exception e) {
-			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}catch(EmptyResultDataAccessException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+	
+	@ExceptionHandler({CourseVersionMismatchException.class, ObjectOptimisticLockingFailureException.class})
+	public ResponseEntity<HttpStatus> versionConflict() {
+		return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+	}
+	
+	@ExceptionHandler(NoSuchElementException.class)
+	public ResponseEntity<HttpStatus> notFound() {
+		return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+	}
+	
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+		return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+	}
+	
+	//the database is behind on write-behind flushes, the client should retry later
+	@ExceptionHandler(WriteBehindFullException.class)
+	public ResponseEntity<String> writeBehindFull(WriteBehindFullException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+	}
+	
+	private static String eTag(Course course) {
+		return CourseTag.of(course).eTag();
+	}
+	
+	//gzip (or *) listed with a non-zero q-value; "gzip;q=0" means the client refuses it
+	static boolean acceptsGzip(String acceptEncoding) {
+		if(acceptEncoding == null) {
+			return false;
+		}
+		double gzip = -1, any = -1;
+		for(String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].trim().toLowerCase(Locale.ROOT);
+			double q = 1;
+			for(int i = 1; i < params.length; i++) {
+				String param = params[i].trim().toLowerCase(Locale.ROOT);
+				if(param.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			if(coding.equals("gzip") || coding.equals("x-gzip")) {
+				gzip = Math.max(gzip, q);
+			} else if(coding.equals("*")) {
+				any = Math.max(any, q);
+			}
+		}
+		return (gzip >= 0 ? gzip : any) > 0;
+	}
+	
+	//"*" or a missing header means no precondition
+	private static CourseTag parseTag(String ifMatch) {
+		if(ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
 		}
+		return CourseTag.parse(ifMatch);
 	}
 }
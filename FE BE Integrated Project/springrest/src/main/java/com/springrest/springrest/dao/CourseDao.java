@@ -1,10 +1,55 @@
 package com.springrest.springrest.dao;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseTag;
+
+import jakarta.persistence.QueryHint;
 
 public interface CourseDao extends JpaRepository<Course, Long>{
 
+	//served from the query cache until Course_Struc changes
+	@Override
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+	List<Course> findAll();
+
+	//keyset page: next "limit" rows after the given id, uses the primary key index instead of OFFSET
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+	List<Course> findByIdGreaterThanOrderByIdAsc(long after, Pageable pageable);
+
+	//first keyset page, ids are user supplied and may be zero or negative
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+	List<Course> findAllByOrderByIdAsc(Pageable pageable);
+
+	//server side cursor over the whole table, must be consumed inside a transaction
+	//and kept out of the second level cache so one full scan does not flush the hot entries
+	@QueryHints({
+		@QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+		@QueryHint(name = HINT_READ_ONLY, value = "true"),
+		@QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+	})
+	@Query("select c from Course c order by c.id")
+	Stream<Course> streamAllOrderById();
+
+	//incarnation and version only, enough to answer If-None-Match without loading the row
+	@Query("select new com.springrest.springrest.service.CourseTag(c.incarnation, c.version) from Course c where c.id = ?1")
+	Optional<CourseTag> findTagById(long id);
+
+	//row count, sum of versions and sum of incarnations (mod a prime so it cannot overflow): an insert, update
+	//or delete changes at least one of them, see CatalogVersion
+	@Query("select count(c), coalesce(sum(c.version), 0), coalesce(sum(mod(c.incarnation, 1000003)), 0) from Course c")
+	List<Object[]> catalogFingerprint();
 }
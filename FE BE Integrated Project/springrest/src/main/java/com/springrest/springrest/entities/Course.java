@@ -1,10 +1,20 @@
 package com.springrest.springrest.entities;
 
 
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
@@ -21,6 +31,8 @@ import lombok.ToString;
 @Data
 @Entity
 @Table(name = "Course_Struc")  //table name
+@Cacheable   //second level cache, region configured in ehcache.xml
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "course")
 public class Course {
 	@Id  //primary key
 	@Column  //default
@@ -29,4 +41,16 @@ public class Course {
 	private String title;
 	@Column
 	private String description;
+	@Version  //optimistic locking, bumped by hibernate on every real update and exposed as the ETag
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	private long version;
+	@JsonIgnore  //part of the ETag, not of the json body
+	@Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+	private long incarnation;
+
+	//a new random value per insert, so a course deleted and created again does not match the old ETags
+	@PrePersist
+	void newIncarnation() {
+		incarnation = ThreadLocalRandom.current().nextLong();
+	}
 }
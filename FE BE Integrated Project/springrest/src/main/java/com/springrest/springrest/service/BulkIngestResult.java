@@ -0,0 +1,31 @@
+package com.springrest.springrest.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//outcome of a bulk ingest, one entry per chunk that was written in its own transaction
+@Data
+public class BulkIngestResult {
+
+	private int succeeded;
+	private int failed;
+	private List<Batch> batches = new ArrayList<>();
+
+	void record(Batch batch) {
+		batches.add(batch);
+		succeeded += batch.getSucceeded();
+		failed += batch.getFailed();
+	}
+
+	@Data
+	@AllArgsConstructor
+	public static class Batch {
+		private int index;
+		private int succeeded;
+		private int failed;
+		private String error;  //null when the whole batch committed
+	}
+}
@@ -0,0 +1,87 @@
+package com.springrest.springrest.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.springrest.springrest.dao.CourseDao;
+
+//version of the whole course listing, derived from the table itself (row count, sum of versions, sum of
+//incarnations) so every node computes the same tag for the same rows and a restart keeps it.
+//the table is read again after a write through this node, otherwise at most every refresh-ms: a write made
+//on another node shows up in the tag within that time. pending write-behind writes are not in the table yet,
+//while there are any this node's write count is mixed in
+@Component
+public class CatalogVersion {
+
+	private final LongSupplier fingerprint;
+	private final BooleanSupplier pendingWrites;
+	private final long refreshNanos;
+	private final LongSupplier clock;
+
+	private final AtomicLong writes = new AtomicLong();
+	private volatile Snapshot snapshot;
+
+	@Autowired
+	public CatalogVersion(CourseDao courseDao, ObjectProvider<WriteBehindCourseWriter> writeBehind,
+			@Value("${course.catalog.refresh-ms:1000}") long refreshMillis) {
+		this(() -> fingerprint(courseDao.catalogFingerprint()), () -> {
+			WriteBehindCourseWriter writer = writeBehind.getIfAvailable();
+			return writer != null && writer.pendingCount() > 0;
+		}, TimeUnit.MILLISECONDS.toNanos(refreshMillis), System::nanoTime);
+	}
+
+	CatalogVersion(LongSupplier fingerprint, BooleanSupplier pendingWrites, long refreshNanos, LongSupplier clock) {
+		this.fingerprint = fingerprint;
+		this.pendingWrites = pendingWrites;
+		this.refreshNanos = refreshNanos;
+		this.clock = clock;
+	}
+
+	public long current() {
+		long written = writes.get();  //taken before the read, a write committed during it forces another read next time
+		long now = clock.getAsLong();
+		Snapshot s = snapshot;
+		if(s == null || s.writes != written || now - s.readAt > refreshNanos) {
+			s = new Snapshot(fingerprint.getAsLong(), written, now);
+			snapshot = s;
+		}
+		return pendingWrites.getAsBoolean() ? s.value * 31 + written : s.value;
+	}
+
+	//called after a write through this node committed (or was queued for write-behind)
+	public void changed() {
+		writes.incrementAndGet();
+	}
+
+	public String eTag(long version) {
+		return "W/\"catalog-" + Long.toHexString(version) + "\"";
+	}
+
+	private static long fingerprint(List<Object[]> rows) {
+		long value = 0;
+		for(Object column : rows.get(0)) {
+			value = value * 1_000_003 + ((Number) column).longValue();
+		}
+		return value;
+	}
+
+	private static final class Snapshot {
+		final long value;
+		final long writes;
+		final long readAt;
+
+		Snapshot(long value, long writes, long readAt) {
+			this.value = value;
+			this.writes = writes;
+			this.readAt = readAt;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.springrest.springrest.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.springrest.springrest.entities.Course;
+
+//bounded in-process cache of single courses, least recently used entries go first and every entry expires after the ttl
+@Component
+public class CourseCache {
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final LongSupplier clock;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	//bumped on every write, a load that started before a write must not be cached
+	private long writeStamp;
+
+	private final LinkedHashMap<Long, Entry> entries;
+
+	@Autowired
+	public CourseCache(@Value("${course.cache.max-size:10000}") int maxSize,
+			@Value("${course.cache.ttl-seconds:300}") long ttlSeconds) {
+		this(maxSize, TimeUnit.SECONDS.toNanos(ttlSeconds), System::nanoTime);
+	}
+
+	CourseCache(int maxSize, long ttlNanos, LongSupplier clock) {
+		this.maxSize = maxSize;
+		this.ttlNanos = ttlNanos;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {  //access order gives us LRU for free
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				if(size() > CourseCache.this.maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public synchronized Course get(long courseId) {
+		Entry entry = entries.get(courseId);
+		if(entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if(clock.getAsLong() - entry.loadedAt > ttlNanos) {
+			entries.remove(courseId);
+			evictions.incrementAndGet();
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.course;
+	}
+
+	//stamp to take before reading from the database, see putIfUnchanged
+	public synchronized long stamp() {
+		return writeStamp;
+	}
+
+	//caches a value loaded from the database unless a write happened since the stamp was taken
+	public synchronized void putIfUnchanged(Course course, long stamp) {
+		if(stamp == writeStamp) {
+			entries.put(course.getId(), new Entry(course, clock.getAsLong()));
+		}
+	}
+
+	//replaces the entry unconditionally; CourseServiceImpl's write path evicts instead, because writes
+	//can reach the cache in a different order than they committed
+	public synchronized void put(Course course) {
+		writeStamp++;
+		entries.put(course.getId(), new Entry(course, clock.getAsLong()));
+	}
+
+	public synchronized void evict(long courseId) {
+		writeStamp++;
+		entries.remove(courseId);
+	}
+
+	public synchronized void clear() {
+		writeStamp++;
+		entries.clear();
+	}
+
+	//drops expired entries, the scheduler-free alternative is that get() expires them lazily
+	public synchronized void purgeExpired() {
+		long now = clock.getAsLong();
+		Iterator<Entry> it = entries.values().iterator();
+		while(it.hasNext()) {
+			if(now - it.next().loadedAt > ttlNanos) {
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	private static final class Entry {
+		final Course course;
+		final long loadedAt;
+
+		Entry(Course course, long loadedAt) {
+			this.course = course;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.springrest.springrest.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springrest.springrest.entities.Course;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//the full course listing serialized once per catalog version, as plain json and gzipped
+@Component
+public class CourseListingCache {
+
+	@Autowired
+	private CourseService courseService;
+
+	@Autowired
+	private CatalogVersion catalogVersion;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${course.listing.cache-max-bytes:16777216}")
+	private int maxBytes;
+
+	private final Timer serializationTimer;
+
+	private volatile Listing listing;
+
+	public CourseListingCache(MeterRegistry registry) {
+		this.serializationTimer = Timer.builder("course.listing.serialization")
+				.description("json + gzip encoding of the full course listing")
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	public Listing get() {
+		long version = catalogVersion.current();  //taken before the query, a write after this point forces a rebuild next time
+		Listing cached = listing;
+		if(cached != null && cached.version == version) {
+			return cached;
+		}
+		List<Course> courses = courseService.getCourses();
+		Listing built;
+		Timer.Sample sample = Timer.start();
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(courses);
+			built = new Listing(version, catalogVersion.eTag(version), json, gzip(json));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			sample.stop(serializationTimer);
+		}
+		if(built.json.length <= maxBytes) {
+			listing = built;
+		}
+		return built;
+	}
+
+	private static byte[] gzip(byte[] json) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(json);
+		}
+		return out.toByteArray();
+	}
+
+	public static final class Listing {
+		public final long version;
+		public final String eTag;
+		public final byte[] json;
+		public final byte[] gzip;
+
+		Listing(long version, String eTag, byte[] json, byte[] gzip) {
+			this.version = version;
+			this.eTag = eTag;
+			this.json = json;
+			this.gzip = gzip;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.springrest.springrest.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.springrest.springrest.entities.Course;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//one acknowledged but not yet flushed write, also the line format of the write-behind log
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseMutation {
+
+	public enum Type { UPSERT, DELETE }
+
+	private Type type;
+	private long id;
+	private String title;
+	private String description;
+	private long seq;  //assigned when the mutation is logged
+	@JsonIgnore
+	private String client;  //who submitted it, for ReplicaStickiness once it is flushed; not logged, null after a replay
+
+	public static CourseMutation upsert(Course course) {
+		return new CourseMutation(Type.UPSERT, course.getId(), course.getTitle(), course.getDescription(), 0, null);
+	}
+
+	public static CourseMutation delete(long courseId) {
+		return new CourseMutation(Type.DELETE, courseId, null, null, 0, null);
+	}
+
+	public Course toCourse() {
+		Course course = new Course();
+		course.setId(id);
+		course.setTitle(title);
+		course.setDescription(description);
+		return course;
+	}
+}
@@ -0,0 +1,603 @@
+package com.springrest.springrest.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.springrest.springrest.entities.Course;
+
+//in-memory inverted index over course title and description, ranked with BM25
+//terms are kept sorted so a query word also matches every indexed word it is a prefix of, a doc scores
+//the best of those matches per query word.
+//every course is an internal int doc; a posting list holds (doc, BM25 term impact) in primitive arrays, sorted
+//by impact with a small unsorted tail for recent additions, and each doc keeps its (term, tf) pairs so its
+//full score can be computed as soon as it is first seen. a query walks the lists highest impact first and stops
+//once the best score any unseen doc could still reach is below the k-th best score (threshold algorithm),
+//so a query usually touches a few postings per term instead of all of them.
+//a changed course gets a new doc, the old one is dead and skipped until the next rebuild drops it
+@Component
+public class CourseSearchIndex {
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int TITLE_BOOST = 2;           //a title word counts as two occurrences
+	private static final double PREFIX_WEIGHT = 0.5;    //a prefix-only match scores half of an exact one
+	private static final int MAX_PREFIX_EXPANSION = 64; //caps the work for very short prefixes
+	private static final double AVG_LENGTH_DRIFT = 0.1; //impacts are recomputed once the average length moved by 10%
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TreeMap<String, Postings> postings = new TreeMap<>();  //term -> its posting list
+	private List<Postings> termsById = new ArrayList<>();                //term id -> posting list, null once unused
+	private final Map<Long, Integer> docByCourse = new HashMap<>();     //course id -> its live doc
+
+	//per doc, indexed by doc; docTerms[doc] holds (term id << 32 | tf) sorted by term id, null for a dead doc
+	private long[] courseIds = new long[64];
+	private long[] versions = new long[64];
+	private int[] lengths = new int[64];
+	private long[][] docTerms = new long[64][];
+	private int docCount;
+	private int liveDocs;
+	private long totalLength;
+	private double impactAvgLength;  //average length the stored impacts were computed with
+
+	//while the startup loader runs, ids written by live traffic are not overwritten by the loader's older rows
+	private Set<Long> touchedWhileLoading;
+
+	public void put(Course course) {
+		put(course, false);
+	}
+
+	//write path: two writers commit v1 then v2 but may get here in the opposite order, so a course
+	//already indexed at a higher version is left alone
+	public void putIfNewer(Course course) {
+		put(course, true);
+	}
+
+	private void put(Course course, boolean onlyIfNewer) {
+		Map<String, Integer> terms = terms(course);
+		lock.writeLock().lock();
+		try {
+			Integer current = docByCourse.get(course.getId());
+			if(onlyIfNewer && current != null && versions[current] > course.getVersion()) {
+				return;
+			}
+			if(touchedWhileLoading != null) {
+				touchedWhileLoading.add(course.getId());
+			}
+			addLocked(course, terms);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(long courseId) {
+		lock.writeLock().lock();
+		try {
+			if(touchedWhileLoading != null) {
+				touchedWhileLoading.add(courseId);
+			}
+			Integer doc = docByCourse.remove(courseId);
+			if(doc != null) {
+				kill(doc);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//bulk loading from the database: between beginLoad and endLoad, load() skips every course that put or
+	//remove touched in the meantime, those already reflect a newer state than the row being loaded
+	public void beginLoad() {
+		lock.writeLock().lock();
+		try {
+			touchedWhileLoading = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void load(Course course) {
+		Map<String, Integer> terms = terms(course);
+		lock.writeLock().lock();
+		try {
+			if(touchedWhileLoading == null || !touchedWhileLoading.contains(course.getId())) {
+				addLocked(course, terms);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void endLoad() {
+		lock.writeLock().lock();
+		try {
+			touchedWhileLoading = null;
+			rebuild();  //sorts everything once instead of merging tails while the load keeps adding
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			termsById = new ArrayList<>();
+			docByCourse.clear();
+			courseIds = new long[64];
+			versions = new long[64];
+			lengths = new int[64];
+			docTerms = new long[64][];
+			docCount = liveDocs = 0;
+			totalLength = 0;
+			impactAvgLength = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return liveDocs;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//ids of the best matching courses, highest score first
+	public List<Long> search(String query, int limit) {
+		List<String> words = tokenize(query);
+		if(words.isEmpty() || limit < 1) {
+			return Collections.emptyList();
+		}
+		lock.readLock().lock();
+		try {
+			List<Cursor> cursors = cursors(words);
+			CursorsByTerm byTerm = new CursorsByTerm(cursors, termsById.size());
+			double[] best = new double[words.size()];
+			TopK top = new TopK(limit);
+			IntSet seen = new IntSet();
+			//recent additions are not in impact order, their docs are scored up front
+			for(Cursor cursor : cursors) {
+				Postings p = cursor.postings;
+				for(int i = p.sorted; i < p.size; i++) {
+					offer(p.docs[i], byTerm, best, seen, top);
+				}
+			}
+			//one queue per query word: a doc scores the best of a word's matching terms, so the most an unseen
+			//doc can still get is the sum over words of the highest bound among that word's cursors
+			List<PriorityQueue<Cursor>> byWord = new ArrayList<>();
+			for(int w = 0; w < words.size(); w++) {
+				byWord.add(new PriorityQueue<>((a, b) -> Double.compare(b.bound(), a.bound())));
+			}
+			for(Cursor cursor : cursors) {
+				if(cursor.bound() > 0) {
+					byWord.get(cursor.word).add(cursor);
+				}
+			}
+			while(true) {
+				double remaining = 0;
+				PriorityQueue<Cursor> next = null;
+				for(PriorityQueue<Cursor> queue : byWord) {
+					if(queue.isEmpty()) continue;
+					double bound = queue.peek().bound();
+					remaining += bound;
+					if(next == null || bound > next.peek().bound()) next = queue;
+				}
+				if(next == null || (top.isFull() && remaining <= top.minScore())) {
+					break;
+				}
+				Cursor cursor = next.poll();
+				offer(cursor.postings.docs[cursor.position++], byTerm, best, seen, top);
+				if(cursor.bound() > 0) {
+					next.add(cursor);
+				}
+			}
+			List<Long> ids = new ArrayList<>();
+			for(int doc : top.docsBestFirst()) {
+				ids.add(courseIds[doc]);
+			}
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if(text == null) {
+			return tokens;
+		}
+		StringBuilder current = new StringBuilder();
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(Character.isLetterOrDigit(c)) {
+				current.append(Character.toLowerCase(c));
+			} else if(current.length() > 0) {
+				tokens.add(current.toString());
+				current.setLength(0);
+			}
+		}
+		if(current.length() > 0) {
+			tokens.add(current.toString());
+		}
+		return tokens;
+	}
+
+	private static Map<String, Integer> terms(Course course) {
+		Map<String, Integer> terms = new HashMap<>();
+		for(String token : tokenize(course.getTitle())) terms.merge(token, TITLE_BOOST, Integer::sum);
+		for(String token : tokenize(course.getDescription())) terms.merge(token, 1, Integer::sum);
+		return terms;
+	}
+
+	private List<Cursor> cursors(List<String> words) {
+		int n = liveDocs;
+		List<Cursor> cursors = new ArrayList<>();
+		for(int w = 0; w < words.size(); w++) {
+			String word = words.get(w);
+			int expanded = 0;
+			for(Postings p : postings.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+				if(expanded++ == MAX_PREFIX_EXPANSION) break;
+				double weight = p.term.equals(word) ? 1.0 : PREFIX_WEIGHT;
+				double idf = Math.log(1 + (n - p.live + 0.5) / (p.live + 0.5));
+				cursors.add(new Cursor(p, w, weight * idf));
+			}
+		}
+		return cursors;
+	}
+
+	//a doc's score is the sum over query words of its best matching term for that word
+	//walks the doc's own terms, a doc has a few dozen while a short prefix can expand to dozens of cursors per word
+	private void offer(int doc, CursorsByTerm byTerm, double[] best, IntSet seen, TopK top) {
+		long[] terms = docTerms[doc];
+		if(terms == null || !seen.add(doc)) {
+			return;  //dead, or already scored through another list
+		}
+		Arrays.fill(best, 0);
+		for(long entry : terms) {
+			Cursor cursor = byTerm.get((int) (entry >>> 32));
+			if(cursor == null) {
+				continue;
+			}
+			float impact = impact((int) entry, lengths[doc], impactAvgLength);
+			for(; cursor != null; cursor = cursor.sameTerm) {
+				best[cursor.word] = Math.max(best[cursor.word], cursor.factor * impact);
+			}
+		}
+		double score = 0;
+		for(double s : best) score += s;
+		top.offer(doc, score);
+	}
+
+	//BM25 term frequency part, the idf is applied at query time
+	private static float impact(int tf, int length, double avgLength) {
+		return (float) (tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength)));
+	}
+
+	private void addLocked(Course course, Map<String, Integer> terms) {
+		Integer old = docByCourse.remove(course.getId());
+		if(old != null) {
+			kill(old);
+		}
+		if(docCount == courseIds.length) {
+			int capacity = docCount * 2;
+			courseIds = Arrays.copyOf(courseIds, capacity);
+			versions = Arrays.copyOf(versions, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			docTerms = Arrays.copyOf(docTerms, capacity);
+		}
+		int doc = docCount++;
+		long[] packed = new long[terms.size()];
+		int length = 0, k = 0;
+		for(Map.Entry<String, Integer> term : terms.entrySet()) {
+			Postings p = postings.computeIfAbsent(term.getKey(), t -> {
+				Postings created = new Postings(t, termsById.size());
+				termsById.add(created);
+				return created;
+			});
+			packed[k++] = (long) p.id << 32 | term.getValue();
+			p.live++;
+			length += term.getValue();
+		}
+		Arrays.sort(packed);
+		courseIds[doc] = course.getId();
+		versions[doc] = course.getVersion();
+		lengths[doc] = length;
+		docTerms[doc] = packed;
+		docByCourse.put(course.getId(), doc);
+		liveDocs++;
+		totalLength += length;
+
+		double avgLength = (double) totalLength / liveDocs;
+		if(impactAvgLength == 0 || Math.abs(avgLength - impactAvgLength) > AVG_LENGTH_DRIFT * impactAvgLength
+				|| docCount - liveDocs > Math.max(1024, liveDocs)) {
+			rebuild();  //also adds the new doc
+			return;
+		}
+		for(long entry : packed) {
+			Postings p = termsById.get((int) (entry >>> 32));
+			p.append(doc, impact((int) entry, length, impactAvgLength));
+			//a bulk load only appends, endLoad sorts every list once; merging a long list every sqrt(size)
+			//additions would make loading quadratic-ish in the size of the most common terms
+			if(touchedWhileLoading == null && p.size - p.sorted > Math.max(64, (int) Math.sqrt(p.size))) {
+				merge(p);
+			}
+		}
+	}
+
+	private void kill(int doc) {
+		for(long entry : docTerms[doc]) {
+			Postings p = termsById.get((int) (entry >>> 32));
+			if(--p.live == 0) {
+				postings.remove(p.term);
+				termsById.set(p.id, null);
+			}
+		}
+		docTerms[doc] = null;
+		liveDocs--;
+		totalLength -= lengths[doc];
+	}
+
+	//folds the unsorted tail into the sorted part and drops postings of dead docs
+	private void merge(Postings p) {
+		long[] tail = new long[p.size - p.sorted];
+		for(int i = 0; i < tail.length; i++) {
+			tail[i] = pack(p.impacts[p.sorted + i], p.docs[p.sorted + i]);
+		}
+		Arrays.sort(tail);  //ascending, read from the end
+		int[] docs = new int[Math.max(4, p.live + p.live / 4)];
+		float[] impacts = new float[docs.length];
+		int i = 0, j = tail.length - 1, n = 0;
+		while(i < p.sorted || j >= 0) {
+			boolean fromSorted = j < 0 || (i < p.sorted && p.impacts[i] >= Float.intBitsToFloat((int) (tail[j] >>> 32)));
+			int doc = fromSorted ? p.docs[i] : (int) tail[j];
+			float impact = fromSorted ? p.impacts[i++] : Float.intBitsToFloat((int) (tail[j--] >>> 32));
+			if(docTerms[doc] != null) {
+				docs[n] = doc;
+				impacts[n++] = impact;
+			}
+		}
+		p.docs = docs;
+		p.impacts = impacts;
+		p.sorted = p.size = n;
+	}
+
+	//renumbers live docs and terms, recomputes every impact with the current average length and sorts every list
+	private void rebuild() {
+		double avgLength = liveDocs == 0 ? 1 : (double) totalLength / liveDocs;
+		List<Postings> terms = new ArrayList<>(postings.size());
+		int[] remap = new int[termsById.size()];
+		for(Postings p : postings.values()) {
+			remap[p.id] = terms.size();
+			p.id = terms.size();
+			p.docs = new int[Math.max(4, p.live)];
+			p.impacts = new float[p.docs.length];
+			p.size = p.sorted = 0;
+			terms.add(p);
+		}
+		int next = 0;
+		for(int doc = 0; doc < docCount; doc++) {
+			long[] packed = docTerms[doc];
+			if(packed == null) {
+				continue;
+			}
+			for(int k = 0; k < packed.length; k++) {
+				packed[k] = (long) remap[(int) (packed[k] >>> 32)] << 32 | (packed[k] & 0xffffffffL);
+			}
+			Arrays.sort(packed);
+			courseIds[next] = courseIds[doc];
+			versions[next] = versions[doc];
+			lengths[next] = lengths[doc];
+			docTerms[next] = packed;
+			docByCourse.put(courseIds[next], next);
+			for(long entry : packed) {
+				terms.get((int) (entry >>> 32)).append(next, impact((int) entry, lengths[next], avgLength));
+			}
+			next++;
+		}
+		Arrays.fill(docTerms, next, docCount, null);
+		docCount = next;
+		termsById = terms;
+		impactAvgLength = avgLength;
+		for(Postings p : terms) {
+			long[] all = new long[p.size];
+			for(int i = 0; i < p.size; i++) all[i] = pack(p.impacts[i], p.docs[i]);
+			Arrays.sort(all);
+			for(int i = 0; i < p.size; i++) {
+				long entry = all[p.size - 1 - i];
+				p.docs[i] = (int) entry;
+				p.impacts[i] = Float.intBitsToFloat((int) (entry >>> 32));
+			}
+			p.sorted = p.size;
+		}
+	}
+
+	//impacts are positive, so their float bits sort like the floats themselves
+	private static long pack(float impact, int doc) {
+		return (long) Float.floatToIntBits(impact) << 32 | (doc & 0xffffffffL);
+	}
+
+	private static final class Postings {
+		final String term;
+		int id;
+		int[] docs = new int[4];
+		float[] impacts = new float[4];
+		int sorted;  //[0, sorted) ordered by impact, highest first; [sorted, size) in insertion order
+		int size;
+		int live;    //postings of live docs, the document frequency
+
+		Postings(String term, int id) {
+			this.term = term;
+			this.id = id;
+		}
+
+		void append(int doc, float impact) {
+			if(size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				impacts = Arrays.copyOf(impacts, size * 2);
+			}
+			docs[size] = doc;
+			impacts[size++] = impact;
+		}
+	}
+
+	private static final class Cursor {
+		final Postings postings;
+		final int word;       //index of the query word this term matched
+		final double factor;  //prefix weight * idf
+		int position;
+		Cursor sameTerm;      //another cursor on the same term, when two query words match it
+
+		Cursor(Postings postings, int word, double factor) {
+			this.postings = postings;
+			this.word = word;
+			this.factor = factor;
+		}
+
+		//the most any doc further down the sorted part can get from this term
+		double bound() {
+			return position < postings.sorted ? factor * postings.impacts[position] : 0;
+		}
+	}
+
+	//min-heap of the best k (doc, score) pairs
+	private static final class TopK {
+		final int[] docs;
+		final double[] scores;
+		int size;
+
+		TopK(int k) {
+			docs = new int[k];
+			scores = new double[k];
+		}
+
+		boolean isFull() {
+			return size == docs.length;
+		}
+
+		double minScore() {
+			return scores[0];
+		}
+
+		void offer(int doc, double score) {
+			if(size < docs.length) {
+				int i = size++;
+				while(i > 0 && scores[(i - 1) / 2] > score) {
+					docs[i] = docs[(i - 1) / 2];
+					scores[i] = scores[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				docs[i] = doc;
+				scores[i] = score;
+			} else if(score > scores[0]) {
+				int i = 0;
+				while(true) {
+					int child = 2 * i + 1;
+					if(child >= size) break;
+					if(child + 1 < size && scores[child + 1] < scores[child]) child++;
+					if(scores[child] >= score) break;
+					docs[i] = docs[child];
+					scores[i] = scores[child];
+					i = child;
+				}
+				docs[i] = doc;
+				scores[i] = score;
+			}
+		}
+
+		int[] docsBestFirst() {
+			Integer[] order = new Integer[size];
+			for(int i = 0; i < size; i++) order[i] = i;
+			Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+			int[] result = new int[size];
+			for(int i = 0; i < size; i++) result[i] = docs[order[i]];
+			return result;
+		}
+	}
+
+	//open addressing map of term id -> its cursors
+	private static final class CursorsByTerm {
+		final long[] present;  //bit per term id, most of a doc's terms are not in the query
+		final int[] keys;
+		final Cursor[] cursors;
+		final int shift;
+
+		CursorsByTerm(List<Cursor> all, int termCount) {
+			present = new long[(termCount + 63) >>> 6];
+			int capacity = Integer.highestOneBit(Math.max(4, all.size() * 4));
+			shift = 32 - Integer.numberOfTrailingZeros(capacity);
+			keys = new int[capacity];
+			Arrays.fill(keys, -1);
+			cursors = new Cursor[capacity];
+			for(Cursor cursor : all) {
+				present[cursor.postings.id >>> 6] |= 1L << cursor.postings.id;
+				int i = slot(cursor.postings.id);
+				if(keys[i] == cursor.postings.id) {
+					cursor.sameTerm = cursors[i];
+				}
+				keys[i] = cursor.postings.id;
+				cursors[i] = cursor;
+			}
+		}
+
+		Cursor get(int termId) {
+			if((present[termId >>> 6] & 1L << termId) == 0) {
+				return null;
+			}
+			int i = slot(termId);
+			return keys[i] == termId ? cursors[i] : null;
+		}
+
+		private int slot(int termId) {
+			int mask = keys.length - 1;
+			int i = (termId * 0x9E3779B9) >>> shift;
+			while(keys[i] >= 0 && keys[i] != termId) i = (i + 1) & mask;
+			return i;
+		}
+	}
+
+	//open addressing set of non-negative ints
+	private static final class IntSet {
+		int[] slots = filled(64);
+		int shift = 32 - 6;
+		int size;
+
+		boolean add(int value) {
+			if(size * 2 >= slots.length) {
+				int[] old = slots;
+				slots = filled(old.length * 2);
+				shift--;
+				size = 0;
+				for(int v : old) if(v >= 0) add(v);
+			}
+			int mask = slots.length - 1;
+			for(int i = (value * 0x9E3779B9) >>> shift; ; i = (i + 1) & mask) {
+				if(slots[i] == value) return false;
+				if(slots[i] < 0) {
+					slots[i] = value;
+					size++;
+					return true;
+				}
+			}
+		}
+
+		private static int[] filled(int capacity) {
+			int[] slots = new int[capacity];
+			Arrays.fill(slots, -1);
+			return slots;
+		}
+	}
+}
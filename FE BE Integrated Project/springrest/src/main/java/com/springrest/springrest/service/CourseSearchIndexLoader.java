@@ -0,0 +1,48 @@
+package com.springrest.springrest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+//fills the search index from the database once at startup, writes keep it current afterwards.
+//runs after CourseServiceImpl started the write-behind writer, which replays its log first: the replayed
+//mutations are not in the database yet, so they are indexed before the rows and win over them
+@Component
+public class CourseSearchIndexLoader {
+
+	private static final Logger log = LoggerFactory.getLogger(CourseSearchIndexLoader.class);
+
+	@Autowired
+	private CourseService courseService;
+
+	@Autowired
+	private CourseSearchIndex courseSearchIndex;
+
+	//only present with springrest.write-behind.enabled=true
+	@Autowired(required = false)
+	private WriteBehindCourseWriter writeBehind;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		long start = System.nanoTime();
+		courseSearchIndex.beginLoad();
+		try {
+			if(writeBehind != null) {
+				for(CourseMutation mutation : writeBehind.pendingMutations()) {
+					if(mutation.getType() == CourseMutation.Type.DELETE) {
+						courseSearchIndex.remove(mutation.getId());
+					} else {
+						courseSearchIndex.put(mutation.toCourse());
+					}
+				}
+			}
+			courseService.streamCourses(courseSearchIndex::load);
+		} finally {
+			courseSearchIndex.endLoad();
+		}
+		log.info("Indexed {} courses for search in {} ms", courseSearchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+}
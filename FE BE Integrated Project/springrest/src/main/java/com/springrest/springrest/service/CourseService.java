@@ -1,6 +1,9 @@
 package com.springrest.springrest.service;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.springrest.springrest.entities.Course;
 
@@ -8,13 +11,26 @@ public interface CourseService {
 
 	public List<Course> getCourses(); //get all courses
 	
+	public List<Course> getCourses(Long afterId, int limit); //get one keyset page of courses ordered by id, a null afterId starts at the first course
+
+	public void streamCourses(Consumer<Course> consumer); //push every course to the consumer without loading the table in memory
+	
 	public Course getCourses(long courseId); //get a single course
 
+	public CourseTag getCourseTag(long courseId); //incarnation and version of a course without loading it, null if unknown
+
+	public List<Course> searchCourses(String query, int limit); //full text search over title and description, best match first
+
 	public Course addCourse(Course course); //adding a course
 
+	public BulkIngestResult addCourses(Iterator<Course> courses); //adding many courses in chunked, jdbc batched transactions
+
 	public Course updateCourse(Course course); //updating a course
 
+	public Course updateCourse(Course course, CourseTag expected); //updating a course only if it is still the incarnation and version of the given tag
+
+	public Course patchCourse(long courseId, Map<String, String> fields, CourseTag expected); //updating only the given fields, the tag check is optional
+
 	public void deleteCourse(long courseId); //deleting a course
 	
 }
-
@@ -1,21 +1,70 @@
 package com.springrest.springrest.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.springrest.springrest.config.ReplicaStickiness;
 import com.springrest.springrest.dao.CourseDao;
 import com.springrest.springrest.entities.Course;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+
 @Service
+@Timed(value = "course.service", histogram = true)  //one timer per method, tagged with the method name
 public class CourseServiceImpl implements CourseService {
 	
 	@Autowired
 	private CourseDao courseDao;
 	
+	@Autowired
+	private EntityManager entityManager;
+	
+	@Autowired
+	private CourseCache courseCache;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private CourseSearchIndex courseSearchIndex;
+	
+	@Autowired
+	private CatalogVersion catalogVersion;
+	
+	@Autowired
+	private ReplicaStickiness replicaStickiness;
+	
+	//only present with springrest.write-behind.enabled=true
+	@Autowired(required = false)
+	private WriteBehindCourseWriter writeBehind;
+	
+	@Value("${course.bulk.chunk-size:1000}")
+	private int bulkChunkSize;
+
+	//orders write-behind submits with their index updates per course, see enqueue
+	private final Object[] enqueueLocks = new Object[64];
+	{
+		for(int i = 0; i < enqueueLocks.length; i++) enqueueLocks[i] = new Object();
+	}
+	
 //	List<Course> list;
 //	
 //	public CourseServiceImpl() {
@@ -24,10 +73,65 @@ public class CourseServiceImpl implements CourseService {
 //		list.add(new Course(146, "Hibernate Course", "this course will teach you complete hibernate"));
 //	}
 
+	@PostConstruct
+	void startWriteBehind() throws IOException {
+		if(writeBehind != null) {
+			writeBehind.start(this::applyMutations, this::deadLettered);
+		}
+	}
+
+	//the write was acknowledged and shown through the overlay and the index but never reached the database:
+	//readers go back to what the database has
+	private void deadLettered(CourseMutation mutation) {
+		courseCache.evict(mutation.getId());
+		Course current = courseDao.findById(mutation.getId()).orElse(null);
+		if(current == null) {
+			courseSearchIndex.remove(mutation.getId());
+		} else {
+			courseSearchIndex.put(current);
+		}
+		catalogVersion.changed();
+	}
+
+	//read-only transactions are what the replica routing looks at, see ReplicaRoutingDataSource
 	@Override
+	@Transactional(readOnly = true)
 	public List<Course> getCourses() {
 		//return list;
-		return courseDao.findAll();
+		List<Course> courses = courseDao.findAll();
+		return writeBehind == null ? courses : writeBehind.overlay(courses, null, Long.MAX_VALUE);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Course> getCourses(Long afterId, int limit) {
+		if(writeBehind == null) {
+			return page(afterId, limit);
+		}
+		//pending deletes can drop at most one row each, so fetch that many extra to still fill the page;
+		//a full fetch covers ids up to its last row, a short one everything after afterId
+		int fetch = limit + writeBehind.pendingCount();
+		List<Course> page = page(afterId, fetch);
+		long upToId = page.size() == fetch ? page.get(page.size() - 1).getId() : Long.MAX_VALUE;
+		List<Course> merged = writeBehind.overlay(page, afterId, upToId);
+		return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+	}
+
+	private List<Course> page(Long afterId, int limit) {
+		return afterId == null
+				? courseDao.findAllByOrderByIdAsc(PageRequest.of(0, limit))
+				: courseDao.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+	}
+
+	@Override
+	@Transactional(readOnly = true)  //the cursor stays open only while the transaction is alive, pending write-behind writes are not overlaid
+	public void streamCourses(Consumer<Course> consumer) {
+		try (Stream<Course> courses = courseDao.streamAllOrderById()) {
+			courses.forEach(course -> {
+				consumer.accept(course);
+				entityManager.detach(course);  //keep the persistence context from growing with the table
+			});
+		}
 	}
 
 	//@SuppressWarnings("deprecation")
@@ -41,15 +145,122 @@ public class CourseServiceImpl implements CourseService {
 //			}
 //		}
 //		return c;
-		return courseDao.findById(courseId).get();
+		CourseMutation pending = writeBehind == null ? null : writeBehind.pending(courseId);
+		if(pending != null) {  //read your own write before the flusher got to it
+			if(pending.getType() == CourseMutation.Type.DELETE) {
+				throw new NoSuchElementException("No course with id " + courseId);
+			}
+			return pending.toCourse();
+		}
+		Course cached = courseCache.get(courseId);
+		if(cached != null) {
+			return cached;
+		}
+		long stamp = courseCache.stamp();
+		Course course = courseDao.findById(courseId).get();  //findById runs in its own read-only transaction
+		courseCache.putIfUnchanged(course, stamp);
+		return course;
+	}
+
+	//the tag of the cached entry, or only the two columns from the database; null while a write-behind
+	//write is pending, it has no version yet
+	@Override
+	public CourseTag getCourseTag(long courseId) {
+		if(writeBehind != null && writeBehind.pending(courseId) != null) {
+			return null;
+		}
+		Course cached = courseCache.get(courseId);
+		if(cached != null) {
+			return CourseTag.of(cached);
+		}
+		return courseDao.findTagById(courseId).orElse(null);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Course> searchCourses(String query, int limit) {
+		List<Long> ids = courseSearchIndex.search(query, limit);
+		Map<Long, Course> byId = new HashMap<>();
+		courseDao.findAllById(ids).forEach(c -> byId.put(c.getId(), c));
+		return ids.stream()
+				.map(id -> {
+					CourseMutation pending = writeBehind == null ? null : writeBehind.pending(id);
+					if(pending == null) return byId.get(id);
+					return pending.getType() == CourseMutation.Type.UPSERT ? pending.toCourse() : null;
+				})
+				.filter(c -> c != null)  //deleted between the index lookup and the fetch
+				.collect(Collectors.toList());
 	}
 
 	@Override
 	public Course addCourse(Course course) {
 //		list.add(course);
 //		return course;
-		courseDao.save(course);
-		return course;
+		if(writeBehind != null) {
+			return enqueue(CourseMutation.upsert(course));
+		}
+		return write(course.getId(), null, true, current -> copyFields(course, current));
+	}
+
+	@Override
+	public BulkIngestResult addCourses(Iterator<Course> courses) {
+		if(writeBehind != null) {
+			writeBehind.flush();  //an older pending write must not land on top of the bulk rows later
+		}
+		BulkIngestResult result = new BulkIngestResult();
+		List<Course> chunk = new ArrayList<>(bulkChunkSize);
+		try {
+			while(courses.hasNext()) {
+				chunk.add(courses.next());
+				if(chunk.size() == bulkChunkSize) {
+					result.record(writeChunk(result.getBatches().size(), chunk));
+					chunk.clear();
+				}
+			}
+		} catch (RuntimeException e) {  //malformed input, keep what was already committed and stop reading
+			if(!chunk.isEmpty()) {
+				result.record(writeChunk(result.getBatches().size(), chunk));
+			}
+			result.record(new BulkIngestResult.Batch(result.getBatches().size(), 0, 0, e.getMessage()));
+			return result;
+		}
+		if(!chunk.isEmpty()) {
+			result.record(writeChunk(result.getBatches().size(), chunk));
+		}
+		return result;
+	}
+
+	//one transaction per chunk: existing ids are looked up with a single select, new rows are
+	//persisted so hibernate can group them into jdbc batches instead of a merge select per row
+	private BulkIngestResult.Batch writeChunk(int index, List<Course> chunk) {
+		Map<Long, Course> byId = new HashMap<>();
+		chunk.forEach(c -> byId.put(c.getId(), c));  //last one wins if the chunk repeats an id
+		List<Course> saved = new ArrayList<>(byId.size());
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				for(Course existing : courseDao.findAllById(byId.keySet())) {
+					Course incoming = byId.remove(existing.getId());
+					existing.setTitle(incoming.getTitle());
+					existing.setDescription(incoming.getDescription());
+					saved.add(existing);
+				}
+				byId.values().forEach(c -> {
+					c.setVersion(0);  //a new row starts at version 0 whatever the payload says
+					entityManager.persist(c);
+					saved.add(c);
+				});
+				entityManager.flush();  //bumps the versions of the updated rows
+				entityManager.clear();
+			});
+			saved.forEach(courseSearchIndex::putIfNewer);
+			catalogVersion.changed();
+			replicaStickiness.recordWrite();
+		} catch (RuntimeException e) {
+			return new BulkIngestResult.Batch(index, 0, chunk.size(), e.getMessage());
+		} finally {
+			chunk.forEach(c -> courseCache.evict(c.getId()));
+		}
+		return new BulkIngestResult.Batch(index, chunk.size(), 0, null);
 	}
 
 	@Override
@@ -63,8 +274,80 @@ public class CourseServiceImpl implements CourseService {
 //		});
 //		return course;
 		
-		courseDao.save(course);
-		return course;
+		if(writeBehind != null) {
+			return enqueue(CourseMutation.upsert(course));
+		}
+		return write(course.getId(), null, true, current -> copyFields(course, current));
+	}
+
+	@Override
+	public Course updateCourse(Course course, CourseTag expected) {
+		flushWriteBehind();
+		return write(course.getId(), expected, false, current -> copyFields(course, current));
+	}
+
+	@Override
+	public Course patchCourse(long courseId, Map<String, String> fields, CourseTag expected) {
+		for(String field : fields.keySet()) {
+			if(!field.equals("title") && !field.equals("description")) {
+				throw new IllegalArgumentException("Field '" + field + "' cannot be patched");
+			}
+		}
+		flushWriteBehind();
+		return write(courseId, expected, false, current -> {
+			if(fields.containsKey("title")) current.setTitle(fields.get("title"));
+			if(fields.containsKey("description")) current.setDescription(fields.get("description"));
+		});
+	}
+
+	//conditional writes and patches need the row as it really is, so they wait for pending writes to land
+	private void flushWriteBehind() {
+		if(writeBehind != null) {
+			writeBehind.flush();
+		}
+	}
+
+	private static void copyFields(Course from, Course to) {
+		to.setTitle(from.getTitle());
+		to.setDescription(from.getDescription());
+	}
+
+	//loads the row and applies the change to the managed entity: hibernate's dirty checking only issues an
+	//UPDATE (and bumps the version) when a column really changed, and the version check in that UPDATE
+	//turns a concurrent edit into an optimistic locking failure instead of a lost update
+	private Course write(long courseId, CourseTag expected, boolean createIfMissing, Consumer<Course> change) {
+		boolean[] changed = {false};
+		Course saved = transactionTemplate.execute(status -> {
+			Course current = courseDao.findById(courseId).orElse(null);
+			if(current == null) {
+				if(!createIfMissing) {
+					throw new NoSuchElementException("No course with id " + courseId);
+				}
+				current = new Course();
+				current.setId(courseId);
+				change.accept(current);
+				entityManager.persist(current);
+				changed[0] = true;
+				return current;
+			}
+			if(expected != null && !expected.matches(current)) {
+				throw new CourseVersionMismatchException(courseId, expected, CourseTag.of(current));
+			}
+			long before = current.getVersion();
+			change.accept(current);
+			entityManager.flush();  //a no-op when nothing is dirty
+			changed[0] = current.getVersion() != before;
+			return current;
+		});
+		//evict rather than put: two writers can commit v1 then v2 and still get here as v2 then v1,
+		//the next read loads whatever is committed (and a load racing this write is not cached, see CourseCache.stamp)
+		if(changed[0]) {
+			courseCache.evict(saved.getId());
+			courseSearchIndex.putIfNewer(saved);
+			catalogVersion.changed();
+			replicaStickiness.recordWrite();
+		}
+		return saved;
 	}
 
 	@Override
@@ -73,7 +356,63 @@ public class CourseServiceImpl implements CourseService {
 //				.stream()
 //				.filter(e->e.getId()!=courseId)
 //				.collect(Collectors.toList());
-		courseDao.deleteById(courseId);
+		if(writeBehind != null) {
+			enqueue(CourseMutation.delete(courseId));
+			return;
+		}
+		try {
+			courseDao.deleteById(courseId);
+			courseSearchIndex.remove(courseId);
+		} finally {
+			catalogVersion.changed();
+			replicaStickiness.recordWrite();
+			courseCache.evict(courseId);  //evict even if the delete failed half way, the next read reloads
+		}
+	}
+
+	//write-behind acknowledgement: the mutation is in the log, readers see it through the overlay
+	//until the flusher has written it, the version of the returned course is only known after that.
+	//pending mutations have no version yet, so the index is updated in submit order under a per-course lock
+	private Course enqueue(CourseMutation mutation) {
+		mutation.setClient(replicaStickiness.currentClient());
+		synchronized(enqueueLocks[Long.hashCode(mutation.getId()) & (enqueueLocks.length - 1)]) {
+			writeBehind.submit(mutation);
+			courseCache.evict(mutation.getId());
+			if(mutation.getType() == CourseMutation.Type.DELETE) {
+				courseSearchIndex.remove(mutation.getId());
+			} else {
+				courseSearchIndex.put(mutation.toCourse());
+			}
+		}
+		catalogVersion.changed();
+		return mutation.toCourse();
+	}
+
+	//called by the write-behind flusher with at most one mutation per course, all of them in one transaction
+	private void applyMutations(List<CourseMutation> batch) {
+		Map<Long, CourseMutation> upserts = new HashMap<>();
+		List<Long> deletes = new ArrayList<>();
+		batch.forEach(m -> {
+			if(m.getType() == CourseMutation.Type.DELETE) deletes.add(m.getId());
+			else upserts.put(m.getId(), m);
+		});
+		transactionTemplate.executeWithoutResult(status -> {
+			if(!deletes.isEmpty()) {
+				courseDao.deleteAllByIdInBatch(deletes);
+			}
+			for(Course existing : courseDao.findAllById(upserts.keySet())) {
+				CourseMutation incoming = upserts.remove(existing.getId());
+				existing.setTitle(incoming.getTitle());
+				existing.setDescription(incoming.getDescription());
+			}
+			upserts.values().forEach(m -> entityManager.persist(m.toCourse()));
+			entityManager.flush();
+			entityManager.clear();
+		});
+		//only the submitters: they read their writes from the overlay until now, from the primary for a while after.
+		//replayed mutations have no submitter left to serve
+		replicaStickiness.recordWrite(batch.stream().map(CourseMutation::getClient).filter(Objects::nonNull).collect(Collectors.toSet()));
+		batch.forEach(m -> courseCache.evict(m.getId()));
 	}
 
 }
@@ -0,0 +1,60 @@
+package com.springrest.springrest.service;
+
+import com.springrest.springrest.entities.Course;
+
+//what a course ETag identifies: the row's incarnation and its version. the version alone starts at 0 again
+//when a course is deleted and created anew, the incarnation is drawn at insert so the old tags stop matching
+public final class CourseTag {
+
+	private final long incarnation;
+	private final long version;
+
+	public CourseTag(long incarnation, long version) {
+		this.incarnation = incarnation;
+		this.version = version;
+	}
+
+	public static CourseTag of(Course course) {
+		return new CourseTag(course.getIncarnation(), course.getVersion());
+	}
+
+	public long getIncarnation() {
+		return incarnation;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public boolean matches(Course course) {
+		return course.getIncarnation() == incarnation && course.getVersion() == version;
+	}
+
+	//strong ETag, e.g. "3f9c1a2b7d4e5f60-4"
+	public String eTag() {
+		return "\"" + Long.toHexString(incarnation) + "-" + version + "\"";
+	}
+
+	//accepts what eTag() produced, with or without the W/ prefix
+	public static CourseTag parse(String eTag) {
+		String tag = eTag.trim();
+		if(tag.startsWith("W/")) {
+			tag = tag.substring(2);
+		}
+		tag = tag.replace("\"", "");
+		int dash = tag.indexOf('-');
+		if(dash < 1) {
+			throw new IllegalArgumentException("If-Match must be an ETag returned by this service");
+		}
+		try {
+			return new CourseTag(Long.parseUnsignedLong(tag.substring(0, dash), 16), Long.parseLong(tag.substring(dash + 1)));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("If-Match must be an ETag returned by this service");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return eTag();
+	}
+}
@@ -0,0 +1,11 @@
+package com.springrest.springrest.service;
+
+//thrown when a conditional write names a version that is no longer the current one
+public class CourseVersionMismatchException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CourseVersionMismatchException(long courseId, CourseTag expected, CourseTag actual) {
+		super("Course " + courseId + " is at " + actual + ", expected " + expected);
+	}
+}
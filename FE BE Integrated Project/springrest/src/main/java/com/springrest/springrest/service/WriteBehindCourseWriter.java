@@ -0,0 +1,495 @@
+package com.springrest.springrest.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springrest.springrest.entities.Course;
+
+import jakarta.annotation.PreDestroy;
+
+//write-behind mode (springrest.write-behind.enabled=true): a course write is acknowledged once it is
+//appended to a local log and kept as the newest pending mutation for its id; a background thread flushes
+//the pending mutations to the database in batches, so repeated edits of one course cost one row write.
+//
+//every mutation gets a sequence number and batches are flushed oldest first, so "everything up to the
+//checkpoint is in the database, nothing after it is" holds after each batch. the checkpoint file is replaced
+//atomically after every batch, a restart replays only the log entries after it, so a row that was already
+//flushed and then changed directly in the database is not overwritten again. the log is split into segments
+//named after their first sequence number, segments entirely at or below the checkpoint are deleted.
+//submitters do not fsync one by one: the first one to need durability writes and forces everything buffered
+//so far, the others find their entry already durable (group commit).
+//a mutation the database keeps rejecting (not a connection problem) is retried max-attempts times and then
+//written to the dead letter file and counted, so it cannot hold up everything queued behind it
+@Component
+@ConditionalOnProperty(name = "springrest.write-behind.enabled", havingValue = "true")
+public class WriteBehindCourseWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindCourseWriter.class);
+
+	private final ObjectMapper objectMapper;
+	private final Path logFile;
+	private final Path checkpointFile;
+	private final Path deadLetterFile;
+	private final int maxPending;
+	private final int batchSize;
+	private final long flushIntervalMillis;
+	private final long enqueueTimeoutMillis;
+	private final boolean fsync;
+	private final long segmentBytes;
+	private final int maxAttempts;
+
+	@Autowired
+	public WriteBehindCourseWriter(ObjectMapper objectMapper,
+			@Value("${springrest.write-behind.log-file:write-behind/courses.log}") String logFile,
+			@Value("${springrest.write-behind.max-pending:10000}") int maxPending,
+			@Value("${springrest.write-behind.batch-size:500}") int batchSize,
+			@Value("${springrest.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+			@Value("${springrest.write-behind.enqueue-timeout-ms:5000}") long enqueueTimeoutMillis,
+			@Value("${springrest.write-behind.fsync:true}") boolean fsync,
+			@Value("${springrest.write-behind.segment-bytes:67108864}") long segmentBytes,
+			@Value("${springrest.write-behind.max-attempts:5}") int maxAttempts) {
+		this.objectMapper = objectMapper;
+		this.logFile = Paths.get(logFile);
+		this.checkpointFile = Paths.get(logFile + ".checkpoint");
+		this.deadLetterFile = Paths.get(logFile + ".dead");
+		this.maxPending = maxPending;
+		this.batchSize = batchSize;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+		this.fsync = fsync;
+		this.segmentBytes = segmentBytes;
+		this.maxAttempts = maxAttempts;
+	}
+
+	private final Map<Long, CourseMutation> pending = new ConcurrentHashMap<>();                 //newest mutation per course
+	private final ConcurrentSkipListMap<Long, CourseMutation> bySeq = new ConcurrentSkipListMap<>();  //the same ones by sequence
+	private final Map<Long, Integer> failedAttempts = new ConcurrentHashMap<>();                  //by sequence
+	private final AtomicLong deadLettered = new AtomicLong();
+	private final ReentrantLock lock = new ReentrantLock();  //guards sequence numbers, the append buffer and "pending became smaller"
+	private final Condition drained = lock.newCondition();
+	private final Object sync = new Object();                //guards the segment files, the checkpoint and durableSeq
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "course-write-behind");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private long lastSeq;                                      //under lock
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();  //under lock, appended lines not written yet
+	private long bufferedUpTo;                                 //under lock, highest sequence in the buffer
+	private volatile long durableSeq;                          //written (and forced) up to here
+	private long checkpoint;                                   //under sync
+	private final TreeMap<Long, Path> segments = new TreeMap<>();  //under sync, first sequence -> file
+	private FileChannel channel;                               //under sync, the newest segment
+	private Consumer<List<CourseMutation>> applier;
+	private Consumer<CourseMutation> onDeadLetter;
+
+	//called once by CourseServiceImpl with the code that writes a batch in one transaction
+	public void start(Consumer<List<CourseMutation>> applier) throws IOException {
+		start(applier, m -> { });
+	}
+
+	//onDeadLetter is told about every mutation that was given up on, the caller's view of it is now wrong
+	public void start(Consumer<List<CourseMutation>> applier, Consumer<CourseMutation> onDeadLetter) throws IOException {
+		this.applier = applier;
+		this.onDeadLetter = onDeadLetter;
+		if(logFile.getParent() != null) {
+			Files.createDirectories(logFile.getParent());
+		}
+		replay();
+		synchronized(sync) {
+			openSegment(lastSeq + 1);  //never appends to an old segment, its last line may be torn
+			compact();                 //segments a crash left behind after the last checkpoint covered them
+		}
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	//durably records the mutation, blocks while too many courses are waiting for the database
+	public void submit(CourseMutation mutation) {
+		long seq;
+		lock.lock();
+		try {
+			long waitNanos = TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMillis);
+			while(pending.size() >= maxPending && !pending.containsKey(mutation.getId())) {
+				if(waitNanos <= 0) {
+					throw new WriteBehindFullException(maxPending);
+				}
+				waitNanos = drained.awaitNanos(waitNanos);
+			}
+			seq = appendLocked(mutation);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WriteBehindFullException(maxPending);
+		} finally {
+			lock.unlock();
+		}
+		awaitDurable(seq);
+	}
+
+	//assigns the next sequence number, buffers the log line and makes the mutation the pending one for its id
+	private long appendLocked(CourseMutation mutation) {
+		CourseMutation logged = new CourseMutation(mutation.getType(), mutation.getId(), mutation.getTitle(),
+				mutation.getDescription(), ++lastSeq, mutation.getClient());
+		try {
+			buffer.write(objectMapper.writeValueAsBytes(logged));
+		} catch (IOException e) {
+			lastSeq--;
+			throw new UncheckedIOException(e);
+		}
+		buffer.write('\n');
+		bufferedUpTo = logged.getSeq();
+		CourseMutation older = pending.put(logged.getId(), logged);  //coalesces with an older pending write for the same id
+		if(older != null) {
+			bySeq.remove(older.getSeq(), older);
+		}
+		bySeq.put(logged.getSeq(), logged);
+		return logged.getSeq();
+	}
+
+	//group commit: whoever gets the sync lock first writes and forces every buffered line, including the
+	//ones of the submitters queued behind it, which then return without touching the file
+	private void awaitDurable(long seq) {
+		if(durableSeq >= seq) {
+			return;
+		}
+		synchronized(sync) {
+			if(durableSeq >= seq) {
+				return;
+			}
+			byte[] lines;
+			long upTo;
+			lock.lock();
+			try {
+				lines = buffer.toByteArray();
+				upTo = bufferedUpTo;
+				buffer = new ByteArrayOutputStream();
+			} finally {
+				lock.unlock();
+			}
+			try {
+				ByteBuffer bytes = ByteBuffer.wrap(lines);
+				while(bytes.hasRemaining()) {
+					channel.write(bytes);
+				}
+				if(fsync) {
+					channel.force(false);
+				}
+				durableSeq = upTo;
+				if(channel.size() >= segmentBytes) {
+					openSegment(upTo + 1);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	public CourseMutation pending(long courseId) {
+		return pending.get(courseId);
+	}
+
+	//snapshot of every mutation not flushed yet, e.g. the ones just replayed from the log
+	public List<CourseMutation> pendingMutations() {
+		return new ArrayList<>(pending.values());
+	}
+
+	public int pendingCount() {
+		return pending.size();
+	}
+
+	public long getDeadLettered() {
+		return deadLettered.get();
+	}
+
+	//applies pending writes to rows read from the database that cover the ids (afterId, upToId], sorted by id;
+	//a null afterId means the rows start at the first course
+	public List<Course> overlay(List<Course> rows, Long afterId, long upToId) {
+		if(pending.isEmpty()) {
+			return rows;
+		}
+		TreeMap<Long, Course> byId = new TreeMap<>();
+		rows.forEach(c -> byId.put(c.getId(), c));
+		for(CourseMutation mutation : pending.values()) {
+			if((afterId != null && mutation.getId() <= afterId) || mutation.getId() > upToId) {
+				continue;
+			}
+			if(mutation.getType() == CourseMutation.Type.DELETE) {
+				byId.remove(mutation.getId());
+			} else {
+				byId.put(mutation.getId(), mutation.toCourse());
+			}
+		}
+		return new ArrayList<>(byId.values());
+	}
+
+	//writes everything submitted before this call, used before conditional writes that must see the database
+	//state; writes submitted meanwhile are left to the flusher, so steady traffic cannot keep this looping
+	public void flush() {
+		long target;
+		lock.lock();
+		try {
+			target = lastSeq;
+		} finally {
+			lock.unlock();
+		}
+		while(true) {
+			Map.Entry<Long, CourseMutation> oldest = bySeq.firstEntry();
+			if(oldest == null || oldest.getKey() > target) {
+				return;
+			}
+			flushBatch();
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			log.error("Write-behind flush failed, {} courses stay pending and are retried", pending.size(), e);
+		}
+	}
+
+	//the oldest batch in one transaction; when that fails for a reason other than the database being
+	//unreachable, the mutations are applied one at a time in order to find the one that is rejected
+	private synchronized void flushBatch() {
+		List<CourseMutation> batch = new ArrayList<>(batchSize);
+		for(CourseMutation mutation : bySeq.values()) {
+			batch.add(mutation);
+			if(batch.size() == batchSize) break;
+		}
+		if(batch.isEmpty()) {
+			return;
+		}
+		try {
+			applier.accept(batch);
+			flushed(batch);
+			return;
+		} catch (RuntimeException e) {
+			if(isTransient(e)) {
+				throw e;  //connection trouble says nothing about the mutations, the next run tries again
+			}
+			if(batch.size() == 1) {
+				if(!giveUp(batch.get(0), e)) throw e;
+				return;
+			}
+		}
+		for(CourseMutation mutation : batch) {
+			try {
+				applier.accept(List.of(mutation));
+				flushed(List.of(mutation));
+			} catch (RuntimeException e) {
+				if(isTransient(e) || !giveUp(mutation, e)) {
+					throw e;  //later mutations wait, nothing after the checkpoint may be in the database yet
+				}
+			}
+		}
+	}
+
+	//counts a rejection; true once the mutation was moved to the dead letter file and the flush can go on
+	private boolean giveUp(CourseMutation mutation, RuntimeException e) {
+		int attempts = failedAttempts.merge(mutation.getSeq(), 1, Integer::sum);
+		if(attempts < maxAttempts) {
+			return false;
+		}
+		try {
+			Map<String, Object> letter = new LinkedHashMap<>();
+			letter.put("mutation", mutation);
+			letter.put("error", String.valueOf(e));
+			Files.write(deadLetterFile, (objectMapper.writeValueAsString(letter) + "\n").getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		} catch (IOException io) {
+			throw new UncheckedIOException(io);
+		}
+		deadLettered.incrementAndGet();
+		log.error("Giving up on write-behind mutation {} after {} attempts, moved to {}", mutation, attempts, deadLetterFile, e);
+		flushed(List.of(mutation));
+		onDeadLetter.accept(mutation);
+		return true;
+	}
+
+	private static boolean isTransient(RuntimeException e) {
+		return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+				|| e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException;
+	}
+
+	//drops the mutations from pending (unless a newer write for the id came in) and moves the checkpoint
+	private void flushed(List<CourseMutation> batch) {
+		long done;
+		lock.lock();
+		try {
+			for(CourseMutation m : batch) {
+				bySeq.remove(m.getSeq(), m);
+				pending.remove(m.getId(), m);
+				failedAttempts.remove(m.getSeq());
+			}
+			Map.Entry<Long, CourseMutation> oldest = bySeq.firstEntry();
+			done = oldest == null ? lastSeq : oldest.getKey() - 1;
+			drained.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		synchronized(sync) {
+			if(done <= checkpoint) {
+				return;
+			}
+			try {
+				writeCheckpoint(done);
+				compact();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	//temp file + atomic rename, a crash leaves either the old or the new checkpoint
+	private void writeCheckpoint(long seq) throws IOException {
+		Path temp = Paths.get(checkpointFile + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.write(ByteBuffer.wrap(Long.toString(seq).getBytes(StandardCharsets.UTF_8)));
+			if(fsync) {
+				out.force(false);
+			}
+		}
+		Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		checkpoint = seq;
+	}
+
+	//deletes every segment whose entries are all at or below the checkpoint; once the newest segment is
+	//covered as well it is replaced by an empty one
+	private void compact() throws IOException {
+		if(checkpoint >= durableSeq && channel.size() > 0) {
+			openSegment(durableSeq + 1);
+		}
+		while(segments.size() > 1) {
+			Map.Entry<Long, Path> first = segments.firstEntry();
+			long nextFirst = segments.higherKey(first.getKey());
+			if(nextFirst - 1 > checkpoint) {
+				break;
+			}
+			Files.deleteIfExists(first.getValue());
+			segments.remove(first.getKey());
+		}
+	}
+
+	private void openSegment(long firstSeq) throws IOException {
+		if(channel != null) {
+			channel.close();
+		}
+		Path segment = Paths.get(logFile + "." + String.format("%019d", firstSeq));
+		if(Files.exists(segment) && Files.size(segment) > 0) {
+			//only on startup, when the first line of the newest segment was torn: nothing readable is in it
+			log.warn("Discarding {}, it holds no complete log entry", segment);
+			Files.delete(segment);
+		}
+		channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		segments.put(firstSeq, segment);
+	}
+
+	//loads the entries after the checkpoint into pending
+	private void replay() throws IOException {
+		if(Files.exists(checkpointFile)) {
+			checkpoint = Long.parseLong(Files.readString(checkpointFile, StandardCharsets.UTF_8).trim());
+		}
+		lastSeq = checkpoint;
+		Path dir = logFile.toAbsolutePath().getParent();
+		String prefix = logFile.getFileName() + ".";
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+			for(Path file : files) {
+				String suffix = file.getFileName().toString().substring(prefix.length());
+				if(suffix.chars().allMatch(Character::isDigit)) {
+					segments.put(Long.parseLong(suffix), file);
+				}
+			}
+		}
+		int replayed = 0;
+		for(Path segment : segments.values()) {
+			for(CourseMutation mutation : read(segment)) {
+				lastSeq = Math.max(lastSeq, mutation.getSeq());
+				if(mutation.getSeq() > checkpoint) {
+					CourseMutation older = pending.put(mutation.getId(), mutation);
+					if(older != null) {
+						bySeq.remove(older.getSeq());
+					}
+					bySeq.put(mutation.getSeq(), mutation);
+					replayed++;
+				}
+			}
+		}
+		durableSeq = lastSeq;
+		if(replayed > 0) {
+			log.info("Replaying {} logged course writes after checkpoint {} ({} courses)", replayed, checkpoint, pending.size());
+		}
+	}
+
+	private List<CourseMutation> read(Path file) throws IOException {
+		List<CourseMutation> mutations = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				try {
+					mutations.add(objectMapper.readValue(line, CourseMutation.class));
+				} catch (IOException e) {
+					log.warn("Skipping unreadable write-behind log line, most likely torn by a crash: {}", line);
+				}
+			}
+		}
+		return mutations;
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException {
+		flusher.shutdown();
+		try {
+			flusher.awaitTermination(10, TimeUnit.SECONDS);
+			flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			log.error("Could not flush {} pending courses on shutdown, they will be replayed from the log", pending.size(), e);
+		} finally {
+			synchronized(sync) {
+				if(channel != null) {
+					channel.close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.springrest.springrest.service;
+
+//the write-behind queue stayed full for longer than the enqueue timeout, the database is not keeping up
+public class WriteBehindFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public WriteBehindFullException(int maxPending) {
+		super("Write-behind queue is full (" + maxPending + " courses pending)");
+	}
+}
@@ -0,0 +1,86 @@
+package com.springrest.springrest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+//not a junit test: runs the same primary key lookup from many threads against a hikari pool with the
+//old defaults (10 connections, plain url) and with the settings from application.properties, and prints
+//connection acquire latency and queries/sec for both
+//usage: ConnectionPoolHarness [jdbcUrl] [user] [password] [threads] [seconds]
+public class ConnectionPoolHarness {
+
+	private static final String TUNED_PARAMS = "reWriteBatchedInserts=true&prepareThreshold=3"
+			+ "&preparedStatementCacheQueries=256&preparedStatementCacheSizeMiB=5";
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/scbdatabase";
+		String user = args.length > 1 ? args[1] : "postgres";
+		String password = args.length > 2 ? args[2] : "root";
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+		HikariConfig defaults = config(url, user, password);
+		run("defaults", defaults, threads, seconds);
+
+		HikariConfig tuned = config(url + (url.contains("?") ? "&" : "?") + TUNED_PARAMS, user, password);
+		tuned.setMaximumPoolSize(Runtime.getRuntime().availableProcessors() * 2 + 1);
+		tuned.setConnectionTimeout(5000);
+		run("tuned", tuned, threads, seconds);
+	}
+
+	private static HikariConfig config(String url, String user, String password) {
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(url);
+		config.setUsername(user);
+		config.setPassword(password);
+		return config;
+	}
+
+	private static void run(String label, HikariConfig config, int threads, int seconds) throws Exception {
+		try (HikariDataSource dataSource = new HikariDataSource(config)) {
+			AtomicLong queries = new AtomicLong();
+			long[][] acquire = new long[threads][];
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			for(int t = 0; t < threads; t++) {
+				int slot = t;
+				pool.execute(() -> {
+					long[] samples = new long[1 << 18];
+					int n = 0;
+					while(System.nanoTime() < deadline && n < samples.length) {
+						long start = System.nanoTime();
+						try (Connection c = dataSource.getConnection()) {
+							samples[n++] = System.nanoTime() - start;
+							try (PreparedStatement ps = c.prepareStatement("select id, title, description from course_struc where id = ?")) {
+								ps.setLong(1, ThreadLocalRandom.current().nextLong(1, 1000));
+								try (ResultSet rs = ps.executeQuery()) {
+									while(rs.next()) { }
+								}
+							}
+							queries.incrementAndGet();
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+					}
+					acquire[slot] = Arrays.copyOf(samples, n);
+				});
+			}
+			pool.shutdown();
+			pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+			long[] all = Arrays.stream(acquire).flatMapToLong(Arrays::stream).sorted().toArray();
+			System.out.printf("%-8s pool=%d threads=%d qps=%.0f acquire p50=%.3fms p99=%.3fms max=%.3fms%n",
+					label, config.getMaximumPoolSize(), threads, queries.get() / (double) seconds,
+					all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.springrest.springrest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseCache;
+
+//not a junit test: single course lookups by primary key with a skewed key distribution (most requests hit a few
+//hundred popular courses), once straight from the database and once read-through CourseCache, printing
+//p50/p99 per lookup for both. defaults to an in-memory H2 so it runs anywhere, pass a postgres url for real numbers
+//usage: CourseCacheHarness [jdbcUrl] [user] [password] [courses] [lookups]
+public class CourseCacheHarness {
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "jdbc:h2:mem:coursecacheharness;DB_CLOSE_DELAY=-1";
+		String user = args.length > 1 ? args[1] : "sa";
+		String password = args.length > 2 ? args[2] : "";
+		int courses = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+		int lookups = args.length > 4 ? Integer.parseInt(args[4]) : 200_000;
+
+		try (Connection connection = DriverManager.getConnection(url, user, password)) {
+			seed(connection, courses);
+			long[] ids = new long[lookups];
+			for(int i = 0; i < lookups; i++) {  //80% of the lookups go to 1% of the courses
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				ids[i] = random.nextInt(100) < 80 ? random.nextInt(Math.max(1, courses / 100)) : random.nextInt(courses);
+			}
+			try (PreparedStatement select = connection.prepareStatement(
+					"select id, title, description, version from harness_course where id = ?")) {
+				for(int round = 0; round < 3; round++) {  //the first rounds are warm-up
+					report("database", run(select, ids, null));
+					report("cached", run(select, ids, new CourseCache(10_000, TimeUnit.MINUTES.toSeconds(5))));
+				}
+			}
+		}
+	}
+
+	private static long[] run(PreparedStatement select, long[] ids, CourseCache cache) throws Exception {
+		long[] latencies = new long[ids.length];
+		for(int i = 0; i < ids.length; i++) {
+			long start = System.nanoTime();
+			Course course = cache == null ? null : cache.get(ids[i]);
+			if(course == null) {
+				long stamp = cache == null ? 0 : cache.stamp();
+				course = load(select, ids[i]);
+				if(cache != null) cache.putIfUnchanged(course, stamp);
+			}
+			latencies[i] = System.nanoTime() - start;
+		}
+		return latencies;
+	}
+
+	private static Course load(PreparedStatement select, long id) throws Exception {
+		select.setLong(1, id);
+		try (ResultSet rs = select.executeQuery()) {
+			rs.next();
+			Course course = new Course();
+			course.setId(rs.getLong(1));
+			course.setTitle(rs.getString(2));
+			course.setDescription(rs.getString(3));
+			course.setVersion(rs.getLong(4));
+			return course;
+		}
+	}
+
+	private static void seed(Connection connection, int courses) throws Exception {
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("drop table if exists harness_course");
+			ddl.execute("create table harness_course (id bigint primary key, title varchar(255), description varchar(1024), version bigint)");
+		}
+		try (PreparedStatement insert = connection.prepareStatement("insert into harness_course values (?, ?, ?, 0)")) {
+			for(int id = 0; id < courses; id++) {
+				insert.setLong(1, id);
+				insert.setString(2, "Course " + id);
+				insert.setString(3, "description of course " + id);
+				insert.addBatch();
+				if(id % 1000 == 999) insert.executeBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+
+	private static void report(String label, long[] latencies) {
+		long[] sorted = latencies.clone();
+		Arrays.sort(sorted);
+		System.out.printf("%-9s p50=%6.2fus p99=%7.2fus%n", label,
+				sorted[sorted.length / 2] / 1000.0, sorted[(int) (sorted.length * 0.99)] / 1000.0);
+	}
+}
@@ -0,0 +1,77 @@
+package com.springrest.springrest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//not a junit test: start the application (once with springrest.virtual-threads.enabled=true, once without)
+//and run this against it to compare throughput and tail latency at high client concurrency
+//usage: CourseLoadHarness [baseUrl] [path] [clients] [seconds]
+public class CourseLoadHarness {
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:8082";
+		String path = args.length > 1 ? args[1] : "/courses?limit=50";
+		int clients = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+
+		HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60)).build();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+		AtomicLong errors = new AtomicLong();
+		List<long[]> perClient = new ArrayList<>();
+		ExecutorService pool = Executors.newFixedThreadPool(clients);
+		for(int i = 0; i < clients; i++) {
+			long[] latencies = new long[1 << 16];
+			perClient.add(latencies);
+			pool.execute(() -> {
+				int n = 0;
+				while(System.nanoTime() < deadline && n < latencies.length - 1) {
+					long start = System.nanoTime();
+					try {
+						HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+						if(response.statusCode() >= 400) {
+							errors.incrementAndGet();
+						}
+					} catch (Exception e) {
+						errors.incrementAndGet();
+					}
+					latencies[++n] = System.nanoTime() - start;
+				}
+				latencies[0] = n;  //slot 0 holds the sample count
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(seconds + 120, TimeUnit.SECONDS);
+
+		int total = 0;
+		for(long[] l : perClient) total += (int) l[0];
+		long[] all = new long[total];
+		int k = 0;
+		for(long[] l : perClient) {
+			System.arraycopy(l, 1, all, k, (int) l[0]);
+			k += (int) l[0];
+		}
+		Arrays.sort(all);
+		System.out.printf("%s%s clients=%d requests=%d errors=%d throughput=%.0f req/s%n",
+				baseUrl, path, clients, total, errors.get(), total / (double) seconds);
+		System.out.printf("p50=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms%n",
+				percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), percentile(all, 1.0));
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		if(sorted.length == 0) return 0;
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1_000_000.0;
+	}
+}
@@ -0,0 +1,88 @@
+package com.springrest.springrest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseSearchIndex;
+
+//not a junit test: loads synthetic courses (default 1M, word frequencies roughly zipf over a 50k word vocabulary)
+//into CourseSearchIndex and prints build time, heap and per-query latency for common words, rare words,
+//short prefixes and multi-word queries. run with enough heap, e.g. -Xmx4g
+//usage: CourseSearchHarness [courses] [queries]
+public class CourseSearchHarness {
+
+	private static final int VOCABULARY = 50_000;
+
+	public static void main(String[] args) {
+		int courses = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+		Random random = new Random(1);
+		String[] words = new String[VOCABULARY];
+		for(int i = 0; i < VOCABULARY; i++) words[i] = word(i);
+
+		CourseSearchIndex index = new CourseSearchIndex();
+		long start = System.nanoTime();
+		index.beginLoad();
+		for(long id = 0; id < courses; id++) {
+			Course course = new Course();
+			course.setId(id);
+			course.setTitle(text(random, words, 3 + random.nextInt(4)));
+			course.setDescription(text(random, words, 10 + random.nextInt(21)));
+			index.load(course);
+		}
+		index.endLoad();
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		System.out.printf("indexed %d courses in %d ms, heap used %d MB%n", index.size(),
+				(System.nanoTime() - start) / 1_000_000, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+		for(int round = 0; round < 2; round++) {  //the first round is warm-up
+			run("common word", index, queries, r -> words[r.nextInt(20)]);
+			run("rare word", index, queries, r -> words[1000 + r.nextInt(40_000)]);
+			run("2 letter prefix", index, queries, r -> words[r.nextInt(VOCABULARY)].substring(0, 2));
+			run("3 letter prefix", index, queries, r -> words[400 + r.nextInt(VOCABULARY - 400)].substring(0, 3));
+			run("three words", index, queries, r -> text(r, words, 3));
+			run("typing (prefix + word)", index, queries, r -> words[zipf(r)] + " " + words[400 + r.nextInt(VOCABULARY - 400)].substring(0, 3));
+		}
+	}
+
+	private static void run(String label, CourseSearchIndex index, int queries, java.util.function.Function<Random, String> query) {
+		Random random = new Random(2);
+		long[] latencies = new long[queries];
+		long hits = 0;
+		for(int i = 0; i < queries; i++) {
+			String q = query.apply(random);
+			long start = System.nanoTime();
+			hits += index.search(q, 20).size();
+			latencies[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%-24s p50=%7.1fus p99=%8.1fus max=%8.1fus (avg %.1f hits)%n", label,
+				latencies[queries / 2] / 1000.0, latencies[(int) (queries * 0.99)] / 1000.0,
+				latencies[queries - 1] / 1000.0, hits / (double) queries);
+	}
+
+	private static String text(Random random, String[] words, int n) {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < n; i++) text.append(words[zipf(random)]).append(' ');
+		return text.toString();
+	}
+
+	//rank ~ 1/x over the vocabulary
+	private static int zipf(Random random) {
+		return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+	}
+
+	//pronounceable distinct words: a base-20 number spelled with syllables
+	private static String word(int i) {
+		String[] syllables = {"ka", "lo", "mi", "ne", "ru", "sa", "te", "vo", "zu", "pi",
+				"ba", "do", "fe", "gi", "ho", "ju", "ly", "ma", "no", "qu"};
+		StringBuilder word = new StringBuilder();
+		do {
+			word.append(syllables[i % 20]);
+			i /= 20;
+		} while(i > 0);
+		return word.toString();
+	}
+}
@@ -0,0 +1,31 @@
+package com.springrest.springrest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+class ConnectionLimitingDataSourceTest {
+
+	@Test
+	void testPermitIsReturnedOnClose() throws Exception {
+		DataSource target = mock(DataSource.class);
+		when(target.getConnection()).thenReturn(mock(Connection.class));
+		ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 10);
+
+		Connection first = dataSource.getConnection();
+		assertThat(dataSource.availablePermits()).isZero();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+		first.close();
+		first.close();  //a second close must not hand out an extra permit
+		assertThat(dataSource.availablePermits()).isEqualTo(1);
+	}
+}
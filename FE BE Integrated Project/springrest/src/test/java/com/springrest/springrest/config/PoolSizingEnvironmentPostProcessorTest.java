@@ -0,0 +1,27 @@
+package com.springrest.springrest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+class PoolSizingEnvironmentPostProcessorTest {
+
+	@Test
+	void testSizeFollowsCoresUntilTheDatabaseBudget() {
+		assertThat(PoolSizingEnvironmentPostProcessor.poolSize(4, 100, 10, 1)).isEqualTo(9);
+		assertThat(PoolSizingEnvironmentPostProcessor.poolSize(64, 100, 10, 1)).isEqualTo(90);
+		assertThat(PoolSizingEnvironmentPostProcessor.poolSize(8, 100, 10, 6)).isEqualTo(15);
+	}
+
+	@Test
+	void testExplicitSizeWins() {
+		MockEnvironment environment = new MockEnvironment().withProperty(PoolSizingEnvironmentPostProcessor.POOL_SIZE, "7");
+		new PoolSizingEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+		assertThat(environment.getProperty(PoolSizingEnvironmentPostProcessor.POOL_SIZE)).isEqualTo("7");
+
+		MockEnvironment derived = new MockEnvironment();
+		new PoolSizingEnvironmentPostProcessor().postProcessEnvironment(derived, null);
+		assertThat(derived.getProperty(PoolSizingEnvironmentPostProcessor.POOL_SIZE, Integer.class)).isGreaterThanOrEqualTo(2);
+	}
+}
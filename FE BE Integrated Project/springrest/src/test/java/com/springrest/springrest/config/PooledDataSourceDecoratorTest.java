@@ -0,0 +1,38 @@
+package com.springrest.springrest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+class PooledDataSourceDecoratorTest {
+
+	@Test
+	void testSemaphoreIsSizedToTheWrappedPoolAndLoggedAround() {
+		PooledDataSourceDecorator decorator = new PooledDataSourceDecorator(true, 1000, 100);
+		try (HikariDataSource small = pool(3); HikariDataSource large = pool(12)) {  //never started, no connection is opened
+			assertThat(limiter(decorator.decorate(small)).availablePermits()).isEqualTo(3);
+			assertThat(limiter(decorator.decorate(large)).availablePermits()).isEqualTo(12);
+		}
+	}
+
+	@Test
+	void testNoSemaphoreWithoutVirtualThreads() {
+		PooledDataSourceDecorator decorator = new PooledDataSourceDecorator(false, 1000, 100);
+		try (HikariDataSource pool = pool(3)) {
+			SlowAcquireLoggingDataSource logging = (SlowAcquireLoggingDataSource) decorator.decorate(pool);
+			assertThat(logging.getTargetDataSource()).isSameAs(pool);
+		}
+	}
+
+	private static ConnectionLimitingDataSource limiter(Object decorated) {
+		return (ConnectionLimitingDataSource) ((SlowAcquireLoggingDataSource) decorated).getTargetDataSource();
+	}
+
+	private static HikariDataSource pool(int size) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setMaximumPoolSize(size);
+		return pool;
+	}
+}
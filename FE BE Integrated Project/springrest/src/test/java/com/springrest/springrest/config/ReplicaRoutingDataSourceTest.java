@@ -0,0 +1,165 @@
+package com.springrest.springrest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//two embedded h2 databases stand in for the primary and the replica, each knows its own name
+class ReplicaRoutingDataSourceTest {
+
+	ReplicaStickiness stickiness = new ReplicaStickiness(200);
+	JdbcTemplate jdbc;
+	TransactionTemplate readOnly;
+	TransactionTemplate readWrite;
+
+	@BeforeEach
+	void setUp() {
+		DataSource primary = database("primary");
+		DataSource replica = database("replica");
+		DataSource routing = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, List.of(replica),
+				ReplicaRoutingDataSource.Selection.ROUND_ROBIN, stickiness));
+		jdbc = new JdbcTemplate(routing);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+		readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		readWrite = new TransactionTemplate(transactionManager);
+	}
+
+	@Test
+	void testReadOnlyTransactionGoesToReplica() {
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("replica");
+		assertThat(readWrite.<String>execute(status -> whoAmI())).isEqualTo("primary");
+		assertThat(whoAmI()).isEqualTo("primary");  //no transaction at all
+	}
+
+	@Test
+	void testReadsStickToPrimaryRightAfterAWrite() throws InterruptedException {
+		stickiness.recordWrite();
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("primary");
+		Thread.sleep(250);
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("replica");
+	}
+
+	@Test
+	void testStickinessIsPerClient() {
+		stickiness.bind("client-a");
+		stickiness.recordWrite();
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("primary");
+		stickiness.bind("client-b");
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("replica");
+		stickiness.bind(null);
+	}
+
+	//a write-behind batch names its submitters, everyone else keeps reading from the replica
+	@Test
+	void testBatchWritePinsOnlyItsSubmitters() {
+		stickiness.recordWrite(List.of("client-a"));
+		stickiness.bind("client-a");
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("primary");
+		stickiness.bind("client-b");
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("replica");
+		stickiness.bind(null);
+		assertThat(readOnly.<String>execute(status -> whoAmI())).isEqualTo("replica");
+	}
+
+	@Test
+	void testClientKeysAreBounded() {
+		ReplicaStickiness sticky = new ReplicaStickiness(60_000);
+		sticky.bind("x".repeat(1000));
+		assertThat(sticky.currentClient()).hasSize(ReplicaStickiness.MAX_KEY_LENGTH);
+		for(int i = 0; i < ReplicaStickiness.MAX_CLIENTS; i++) {
+			sticky.bind("client-" + i);
+			sticky.recordWrite();
+		}
+		sticky.bind("other");
+		assertThat(sticky.pinnedToPrimary()).isFalse();
+		sticky.bind("one-too-many");
+		sticky.recordWrite();  //not tracked, pins everybody instead of being forgotten
+		sticky.bind("other");
+		assertThat(sticky.pinnedToPrimary()).isTrue();
+		sticky.bind(null);
+	}
+
+	//the slow replica hands out connections as fast as the other one, only its queries take longer
+	@Test
+	void testLeastLatencyPicksTheReplicaWithTheFastestRoundTrip() {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(database("primary"),
+				List.of(slowQueries(database("replica")), database("replica2")),
+				ReplicaRoutingDataSource.Selection.LEAST_LATENCY, stickiness);
+		routing.probeLatency();
+		JdbcTemplate jdbc = new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+		TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+		readOnly.setReadOnly(true);
+		for(int i = 0; i < 5; i++) {
+			assertThat(readOnly.<String>execute(status -> jdbc.queryForObject("select name from whoami", String.class))).isEqualTo("replica2");
+		}
+	}
+
+	@Test
+	void testUsernamePasswordConnectionsAreRoutedToo() throws SQLException {
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(database("primary"), List.of(database("replica")),
+				ReplicaRoutingDataSource.Selection.ROUND_ROBIN, stickiness);
+		try (Connection connection = routing.getConnection("sa", "")) {
+			assertThat(connection.isValid(1)).isTrue();
+		}
+	}
+
+	private String whoAmI() {
+		return jdbc.queryForObject("select name from whoami", String.class);
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("create table if not exists whoami(name varchar(20))");
+		jdbc.execute("delete from whoami");
+		jdbc.update("insert into whoami values (?)", name);
+		return dataSource;
+	}
+
+	private static DataSource slowQueries(DataSource dataSource) {
+		return new DelegatingDataSource(dataSource) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				Connection connection = super.getConnection();
+				return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+						(proxy, method, args) -> {
+							Object result = invoke(connection, method, args);
+							if(!(result instanceof Statement)) {
+								return result;
+							}
+							return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Statement.class},
+									(p, m, a) -> {
+										if(m.getName().startsWith("execute")) Thread.sleep(20);
+										return invoke(result, m, a);
+									});
+						});
+			}
+		};
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
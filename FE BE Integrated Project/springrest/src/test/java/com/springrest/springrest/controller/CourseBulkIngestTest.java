@@ -0,0 +1,132 @@
+package com.springrest.springrest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springrest.springrest.dao.CourseDao;
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//POST /courses/bulk against H2 with chunks of 3 rows, every test works on course ids of its own
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:coursebulk;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+	"spring.jpa.hibernate.ddl-auto=create-drop",
+	"course.bulk.chunk-size=3"
+})
+class CourseBulkIngestTest {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	CourseService courseService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	CourseDao courseDao;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() {
+		//the second level cache manager is shared by every test context in the jvm, other contexts ran on other databases
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+	}
+
+	//one chunk holding an update of an existing row, a new row and that new row again
+	@Test
+	void testChunkUpdatesExistingRowsAndInsertsNewOnes() throws Exception {
+		Course existing = new Course();
+		existing.setId(1);
+		existing.setTitle("Java");
+		courseService.addCourse(existing);
+
+		JsonNode result = post(line(1, "Java 21") + line(2, "Spring") + "{\"id\":2,\"title\":\"Spring Boot\",\"version\":7}\n");
+
+		assertThat(result.get("succeeded").asInt()).isEqualTo(3);
+		assertThat(result.get("failed").asInt()).isZero();
+		assertThat(result.get("batches")).hasSize(1);
+		Course updated = courseDao.findById(1L).get();
+		assertThat(updated.getTitle()).isEqualTo("Java 21");
+		assertThat(updated.getVersion()).isEqualTo(1);
+		Course inserted = courseDao.findById(2L).get();
+		assertThat(inserted.getTitle()).isEqualTo("Spring Boot");  //the last one in the chunk wins
+		assertThat(inserted.getVersion()).isZero();                 //whatever the payload said
+	}
+
+	//the second chunk is rolled back and reported, the ones before and after it are committed
+	@Test
+	void testFailedChunkIsReportedAndTheOthersCommit() throws Exception {
+		String tooLong = "x".repeat(300);  //the title column holds 255 characters
+		JsonNode result = post(line(20, "a") + line(21, "b") + line(22, "c")
+				+ line(23, "d") + line(24, tooLong) + line(25, "f")
+				+ line(26, "g"));
+
+		assertThat(result.get("succeeded").asInt()).isEqualTo(4);
+		assertThat(result.get("failed").asInt()).isEqualTo(3);
+		JsonNode batches = result.get("batches");
+		assertThat(batches).hasSize(3);
+		assertThat(batches.get(0).get("error").isNull()).isTrue();
+		assertThat(batches.get(1).get("index").asInt()).isEqualTo(1);
+		assertThat(batches.get(1).get("failed").asInt()).isEqualTo(3);
+		assertThat(batches.get(1).get("error").asText()).isNotEmpty();
+		assertThat(batches.get(2).get("succeeded").asInt()).isEqualTo(1);
+		assertThat(courseDao.findAllById(List.of(20L, 21L, 22L, 23L, 24L, 25L, 26L)))
+				.extracting(Course::getId).containsExactlyInAnyOrder(20L, 21L, 22L, 26L);
+	}
+
+	//what was read before the broken line is written, nothing after it is read
+	@Test
+	void testMalformedLineStopsTheIngestAndKeepsWhatCameBefore() throws Exception {
+		JsonNode result = post(line(40, "a") + line(41, "b") + "{\"id\":42,\"title\":\n" + line(43, "d"));
+
+		assertThat(result.get("succeeded").asInt()).isEqualTo(2);
+		JsonNode batches = result.get("batches");
+		assertThat(batches).hasSize(2);
+		assertThat(batches.get(0).get("succeeded").asInt()).isEqualTo(2);
+		assertThat(batches.get(1).get("succeeded").asInt()).isZero();
+		assertThat(batches.get(1).get("error").asText()).isNotEmpty();
+		assertThat(courseDao.findAllById(List.of(40L, 41L, 42L, 43L)))
+				.extracting(Course::getId).containsExactlyInAnyOrder(40L, 41L);
+	}
+
+	private static String line(long id, String title) {
+		return "{\"id\":" + id + ",\"title\":\"" + title + "\"}\n";
+	}
+
+	private JsonNode post(String ndjson) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/courses/bulk"))
+				.header("Content-Type", "application/x-ndjson")
+				.POST(HttpRequest.BodyPublishers.ofString(ndjson))
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		assertThat(response.statusCode()).isEqualTo(200);
+		return objectMapper.readTree(response.body());
+	}
+}
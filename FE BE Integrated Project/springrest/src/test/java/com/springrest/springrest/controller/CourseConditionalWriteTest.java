@@ -0,0 +1,123 @@
+package com.springrest.springrest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.springrest.springrest.dao.CourseDao;
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//PATCH and PUT with If-Match through the real controller against H2, every test works on a course id of its own
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:coursewrites;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+	"spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CourseConditionalWriteTest {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	CourseService courseService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	CourseDao courseDao;
+
+	HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() {
+		//the second level cache manager is shared by every test context in the jvm, other contexts ran on other databases
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+	}
+
+	@Test
+	void testPatchOnlyChangesTheFieldsSent() throws Exception {
+		create(1, "Java", "the basics");
+		HttpResponse<String> patched = send("PATCH", "/courses/1", "{\"title\":\"Java 21\"}", null);
+		assertThat(patched.statusCode()).isEqualTo(200);
+		assertThat(patched.body()).contains("\"title\":\"Java 21\"").contains("\"description\":\"the basics\"");
+		assertThat(courseDao.findById(1L).get().getVersion()).isEqualTo(1);
+	}
+
+	//hibernate's dirty check: the same values again issue no UPDATE, the version and so the ETag stay
+	@Test
+	void testPatchWithTheSameValuesDoesNotBumpTheVersion() throws Exception {
+		create(2, "Java", "the basics");
+		String eTag = eTag("/courses/2");
+		HttpResponse<String> patched = send("PATCH", "/courses/2", "{\"title\":\"Java\",\"description\":\"the basics\"}", eTag);
+		assertThat(patched.statusCode()).isEqualTo(200);
+		assertThat(patched.headers().firstValue("ETag")).contains(eTag);
+		assertThat(courseDao.findById(2L).get().getVersion()).isZero();
+	}
+
+	//two clients read the same version, the second one to write must not overwrite the first one's change
+	@Test
+	void testStaleIfMatchIsRejected() throws Exception {
+		create(3, "Java", "the basics");
+		String read = eTag("/courses/3");
+		assertThat(send("PATCH", "/courses/3", "{\"title\":\"Java 21\"}", read).statusCode()).isEqualTo(200);
+
+		assertThat(send("PATCH", "/courses/3", "{\"description\":\"records and sealed types\"}", read).statusCode()).isEqualTo(412);
+		assertThat(send("PUT", "/courses", "{\"id\":3,\"title\":\"Java 8\",\"description\":\"lambdas\"}", read).statusCode()).isEqualTo(412);
+
+		Course stored = courseDao.findById(3L).get();
+		assertThat(stored.getTitle()).isEqualTo("Java 21");
+		assertThat(stored.getDescription()).isEqualTo("the basics");
+		assertThat(stored.getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void testPatchOfAnUnknownFieldIsABadRequest() throws Exception {
+		create(4, "Java", "the basics");
+		assertThat(send("PATCH", "/courses/4", "{\"version\":\"9\"}", null).statusCode()).isEqualTo(400);
+		assertThat(courseDao.findById(4L).get().getVersion()).isZero();
+	}
+
+	private void create(long id, String title, String description) {
+		Course c = new Course();
+		c.setId(id);
+		c.setTitle(title);
+		c.setDescription(description);
+		courseService.addCourse(c);
+	}
+
+	private String eTag(String path) throws IOException, InterruptedException {
+		HttpResponse<String> response = send("GET", path, null, null);
+		assertThat(response.statusCode()).isEqualTo(200);
+		return response.headers().firstValue("ETag").get();
+	}
+
+	private HttpResponse<String> send(String method, String path, String json, String ifMatch) throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json));
+		if(json != null) {
+			request.header("Content-Type", "application/json");
+		}
+		if(ifMatch != null) {
+			request.header("If-Match", ifMatch);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,113 @@
+package com.springrest.springrest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//GET /courses?after=&limit= against H2 holding courses -2..22, ids may be zero or negative
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:coursepaging;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+	"spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CourseKeysetPagingTest {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	CourseService courseService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() {
+		//the second level cache manager is shared by every test context in the jvm, other contexts ran on other databases
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		for(long id = -2; id <= 22; id++) {
+			Course c = new Course();
+			c.setId(id);
+			c.setTitle("Course " + id);
+			courseService.addCourse(c);  //an upsert, running it again for the next test changes nothing
+		}
+	}
+
+	//following X-Next-After from the first page visits every course once, in id order
+	@Test
+	void testPagingVisitsTheWholeTable() throws Exception {
+		List<Long> seen = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		String path = "/courses?limit=10";
+		while(path != null) {
+			HttpResponse<String> page = get(path);
+			assertThat(page.statusCode()).isEqualTo(200);
+			JsonNode courses = objectMapper.readTree(page.body());
+			courses.forEach(c -> seen.add(c.get("id").asLong()));
+			pageSizes.add(courses.size());
+			Optional<String> next = page.headers().firstValue("X-Next-After");
+			path = next.map(after -> "/courses?after=" + after + "&limit=10").orElse(null);
+		}
+		List<Long> all = new ArrayList<>();
+		for(long id = -2; id <= 22; id++) all.add(id);
+		assertThat(seen).isEqualTo(all);
+		assertThat(pageSizes).containsExactly(10, 10, 5);  //a short last page carries no X-Next-After
+	}
+
+	//a full last page still points further, the page after it is empty and ends the walk
+	@Test
+	void testFullLastPageIsFollowedByAnEmptyOne() throws Exception {
+		HttpResponse<String> last = get("/courses?after=-3&limit=25");
+		assertThat(objectMapper.readTree(last.body())).hasSize(25);
+		assertThat(last.headers().firstValue("X-Next-After")).contains("22");
+
+		HttpResponse<String> after = get("/courses?after=22&limit=25");
+		assertThat(after.statusCode()).isEqualTo(200);
+		assertThat(objectMapper.readTree(after.body())).isEmpty();
+		assertThat(after.headers().firstValue("X-Next-After")).isEmpty();
+	}
+
+	@Test
+	void testLimitMustBeBetweenOneAndOneThousand() throws Exception {
+		assertThat(get("/courses?limit=0").statusCode()).isEqualTo(400);
+		assertThat(get("/courses?limit=1001").statusCode()).isEqualTo(400);
+		assertThat(get("/courses?after=5&limit=-1").statusCode()).isEqualTo(400);
+		HttpResponse<String> one = get("/courses?limit=1");
+		assertThat(objectMapper.readTree(one.body()).get(0).get("id").asLong()).isEqualTo(-2);
+		assertThat(objectMapper.readTree(get("/courses?limit=1000").body())).hasSize(25);
+	}
+
+	private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+		return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+				HttpResponse.BodyHandlers.ofString());
+	}
+}
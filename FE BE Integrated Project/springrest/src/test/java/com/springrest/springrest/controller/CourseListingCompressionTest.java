@@ -0,0 +1,101 @@
+package com.springrest.springrest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//the real tomcat with server.compression on, against H2: the pre-gzipped listing must reach the client gzipped exactly once
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:courselisting;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+	"spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CourseListingCompressionTest {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	CourseService courseService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() {
+		//the second level cache manager is shared by every test context in the jvm, other contexts ran on other databases
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		for(long id = 1; id <= 100; id++) {  //well above server.compression.min-response-size
+			Course c = new Course();
+			c.setId(id);
+			c.setTitle("Course " + id);
+			c.setDescription("a description long enough to make the listing worth compressing " + id);
+			courseService.addCourse(c);  //an upsert, running it again for the next test changes nothing
+		}
+	}
+
+	@Test
+	void testListingIsGzippedOnce() throws Exception {
+		HttpResponse<byte[]> response = get("/courses", "gzip, deflate");
+		assertThat(response.headers().allValues("Content-Encoding")).containsExactly("gzip");
+		String json = new String(gunzip(response.body()), StandardCharsets.UTF_8);
+		assertThat(json).startsWith("[{").contains("\"title\":\"Course 100\"");
+	}
+
+	@Test
+	void testGzipWithZeroQualityIsNotSent() throws Exception {
+		HttpResponse<byte[]> response = get("/courses", "gzip;q=0, identity");
+		assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+		assertThat(new String(response.body(), StandardCharsets.UTF_8)).startsWith("[{");
+	}
+
+	@Test
+	void testSingleCourseRevalidationAnswers304() throws Exception {
+		HttpResponse<byte[]> first = get("/courses/7", null);
+		String eTag = first.headers().firstValue("ETag").get();
+		HttpResponse<byte[]> second = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/courses/7"))
+				.header("If-None-Match", eTag).build(), HttpResponse.BodyHandlers.ofByteArray());
+		assertThat(second.statusCode()).isEqualTo(304);
+		assertThat(second.body()).isEmpty();
+	}
+
+	private HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+		if(acceptEncoding != null) {
+			request.header("Accept-Encoding", acceptEncoding);
+		}
+		HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+		assertThat(response.statusCode()).isEqualTo(200);
+		return response;
+	}
+
+	private static byte[] gunzip(byte[] body) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			return in.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.springrest.springrest.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springrest.springrest.config.HibernateCacheConfig;
+import com.springrest.springrest.entities.Course;
+import com.springrest.springrest.service.CourseTag;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//runs against H2 in PostgreSQL mode instead of a real server, every call below is its own transaction
+//so repeated reads can only be answered by the second level or query cache
+@DataJpaTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:coursecache;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+	"spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HibernateCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CourseDaoCacheTest {
+
+	@Autowired
+	CourseDao courseDao;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		courseDao.deleteAll();
+		for(long id = 1; id <= 3; id++) {
+			Course c = new Course();
+			c.setId(id);
+			c.setTitle("Course " + id);
+			courseDao.save(c);
+		}
+		SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictAllRegions();
+		statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+	}
+
+	@Test
+	void testRepeatedFindByIdHitsSecondLevelCache() {
+		for(int i = 0; i < 5; i++) {
+			assertThat(courseDao.findById(2L)).isPresent();
+		}
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(4);
+	}
+
+	@Test
+	void testRepeatedFindAllHitsQueryCache() {
+		for(int i = 0; i < 5; i++) {
+			assertThat(courseDao.findAll()).hasSize(3);
+		}
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(4);
+	}
+
+	@Test
+	void testWriteInvalidatesQueryCache() {
+		courseDao.findAll();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Course c = courseDao.findById(1L).get();
+			c.setTitle("Renamed");
+		});
+		List<Course> courses = courseDao.findAll();
+		assertThat(courses).extracting(Course::getTitle).contains("Renamed");
+	}
+
+	@Test
+	void testFirstKeysetPageIncludesNonPositiveIds() {
+		for(long id : new long[] {-1, -5}) {
+			Course c = new Course();
+			c.setId(id);
+			c.setTitle("Course " + id);
+			courseDao.save(c);
+		}
+		assertThat(courseDao.findAllByOrderByIdAsc(PageRequest.of(0, 3))).extracting(Course::getId).containsExactly(-5L, -1L, 1L);
+		assertThat(courseDao.findByIdGreaterThanOrderByIdAsc(1, PageRequest.of(0, 3))).extracting(Course::getId).containsExactly(2L, 3L);
+	}
+
+	@Test
+	void testRecreatedCourseDoesNotReuseTheOldTag() {
+		CourseTag before = CourseTag.of(courseDao.findById(2L).get());
+		courseDao.deleteById(2L);
+		Course c = new Course();
+		c.setId(2);
+		c.setTitle("Course 2");
+		courseDao.save(c);
+		Course recreated = courseDao.findById(2L).get();
+		assertThat(recreated.getVersion()).isEqualTo(before.getVersion());
+		assertThat(before.matches(recreated)).isFalse();
+		assertThat(CourseTag.of(recreated).eTag()).isNotEqualTo(before.eTag());
+	}
+}
@@ -0,0 +1,52 @@
+package com.springrest.springrest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogVersionTest {
+
+	AtomicLong table = new AtomicLong(100);  //stands in for the fingerprint query
+	AtomicInteger reads = new AtomicInteger();
+	AtomicBoolean pending = new AtomicBoolean();
+	AtomicLong now = new AtomicLong();
+
+	CatalogVersion version = new CatalogVersion(() -> {
+		reads.incrementAndGet();
+		return table.get();
+	}, pending::get, 1000, now::get);
+
+	@Test
+	void testTableIsReadAtMostOncePerRefresh() {
+		assertThat(version.current()).isEqualTo(100);
+		table.set(200);  //written by another node
+		assertThat(version.current()).isEqualTo(100);
+		assertThat(reads).hasValue(1);
+		now.set(1001);
+		assertThat(version.current()).isEqualTo(200);
+		assertThat(reads).hasValue(2);
+	}
+
+	@Test
+	void testLocalWriteIsSeenImmediately() {
+		version.current();
+		table.set(200);
+		version.changed();
+		assertThat(version.current()).isEqualTo(200);
+	}
+
+	@Test
+	void testPendingWritesChangeTheVersionUntilFlushed() {
+		pending.set(true);
+		long first = version.current();
+		version.changed();
+		long second = version.current();
+		assertThat(second).isNotEqualTo(first);
+		pending.set(false);  //flushed, the table now has the rows
+		assertThat(version.current()).isEqualTo(100);
+	}
+}
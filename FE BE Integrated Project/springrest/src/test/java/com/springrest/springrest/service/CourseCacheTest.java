@@ -0,0 +1,58 @@
+package com.springrest.springrest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.springrest.springrest.entities.Course;
+
+class CourseCacheTest {
+
+	AtomicLong now = new AtomicLong();
+	CourseCache cache = new CourseCache(2, 100, now::get);
+
+	@Test
+	void testHitAfterLoad() {
+		cache.putIfUnchanged(course(1), cache.stamp());
+		assertThat(cache.get(1)).isNotNull();
+		assertThat(cache.get(2)).isNull();
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	void testLeastRecentlyUsedIsEvicted() {
+		cache.put(course(1));
+		cache.put(course(2));
+		cache.get(1);   //2 is now the eldest
+		cache.put(course(3));
+		assertThat(cache.get(2)).isNull();
+		assertThat(cache.get(1)).isNotNull();
+		assertThat(cache.getEvictions()).isEqualTo(1);
+	}
+
+	@Test
+	void testEntryExpiresAfterTtl() {
+		cache.put(course(1));
+		now.addAndGet(101);
+		assertThat(cache.get(1)).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void testLoadStartedBeforeWriteIsNotCached() {
+		long stamp = cache.stamp();
+		cache.evict(1);   //a concurrent delete lands while the read is in flight
+		cache.putIfUnchanged(course(1), stamp);
+		assertThat(cache.get(1)).isNull();
+	}
+
+	private Course course(long id) {
+		Course c = new Course();
+		c.setId(id);
+		c.setTitle("Course " + id);
+		return c;
+	}
+}
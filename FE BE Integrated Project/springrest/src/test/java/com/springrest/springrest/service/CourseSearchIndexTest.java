@@ -0,0 +1,226 @@
+package com.springrest.springrest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.springrest.springrest.entities.Course;
+
+class CourseSearchIndexTest {
+
+	CourseSearchIndex index = new CourseSearchIndex();
+
+	@BeforeEach
+	void setUp() {
+		index.put(course(1, "Java Course", "this course contains basics of Java"));
+		index.put(course(2, "Hibernate Course", "this course will teach you complete hibernate with java"));
+		index.put(course(3, "Spring Boot", "rest services with spring"));
+	}
+
+	@Test
+	void testTitleMatchRanksFirst() {
+		assertThat(index.search("java", 10)).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void testPrefixMatch() {
+		assertThat(index.search("hib", 10)).containsExactly(2L);
+		assertThat(index.search("Spr", 10)).containsExactly(3L);
+	}
+
+	@Test
+	void testUpdateAndRemoveAreReflected() {
+		index.put(course(3, "Spring Data", "jpa repositories"));
+		assertThat(index.search("rest", 10)).isEmpty();
+		assertThat(index.search("jpa", 10)).containsExactly(3L);
+
+		index.remove(1);
+		assertThat(index.search("java", 10)).containsExactly(2L);
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	@Test
+	void testOlderVersionDoesNotReplaceNewerOne() {
+		Course v2 = course(3, "Spring Data", "jpa");
+		v2.setVersion(2);
+		Course v1 = course(3, "Spring Batch", "jobs");
+		v1.setVersion(1);
+		index.putIfNewer(v2);
+		index.putIfNewer(v1);  //committed first, arrived last
+		assertThat(index.search("jpa", 10)).containsExactly(3L);
+		assertThat(index.search("jobs", 10)).isEmpty();
+	}
+
+	@Test
+	void testLimit() {
+		assertThat(index.search("course", 1)).hasSize(1);
+		assertThat(index.search("  ", 10)).isEmpty();
+	}
+
+	@Test
+	void testLoadDoesNotOverwriteLiveWrites() {
+		index.beginLoad();
+		index.put(course(10, "Kotlin", "written while loading"));
+		index.remove(11);
+		index.load(course(10, "Kotlin", "stale row from the database"));
+		index.load(course(11, "Scala", "deleted while loading"));
+		index.load(course(12, "Go", "plain row"));
+		index.endLoad();
+		assertThat(index.search("stale", 10)).isEmpty();
+		assertThat(index.search("scala", 10)).isEmpty();
+		assertThat(index.search("go", 10)).containsExactly(12L);
+		assertThat(index.search("written", 10)).containsExactly(10L);
+	}
+
+	//early termination must return the same top k as scoring every matching course
+	@Test
+	void testTopKMatchesExhaustiveScoring() {
+		Random random = new Random(42);
+		String[] vocabulary = new String[300];
+		for(int i = 0; i < vocabulary.length; i++) vocabulary[i] = "w" + i;
+		List<Map<String, Integer>> docs = new ArrayList<>();
+		index.clear();
+		index.beginLoad();
+		for(long id = 0; id < 3000; id++) {
+			Course c = course(id, words(random, vocabulary, 1 + random.nextInt(4)), words(random, vocabulary, 3 + random.nextInt(20)));
+			docs.add(tf(c));
+			index.load(c);
+		}
+		index.endLoad();  //impacts now use the exact average length
+		Bm25 bm25 = new Bm25(docs);
+		for(int q = 0; q < 200; q++) {
+			String query = q % 3 == 0 ? "w" + random.nextInt(30) : words(random, vocabulary, 1 + random.nextInt(3));
+			List<Long> found = index.search(query, 10);
+			List<Double> expected = new ArrayList<>();
+			for(Map<String, Integer> doc : docs) {
+				double score = bm25.score(query, doc);
+				if(score > 0) expected.add(score);
+			}
+			expected.sort((a, b) -> Double.compare(b, a));
+			expected = expected.subList(0, Math.min(10, expected.size()));
+
+			assertThat(found).hasSameSizeAs(expected);
+			for(int i = 0; i < found.size(); i++) {
+				assertThat(bm25.score(query, docs.get((int) (long) found.get(i)))).isCloseTo(expected.get(i), within(1e-4));
+			}
+		}
+	}
+
+	//updates and deletes go through the unsorted tails, merges and dead docs; with every course the same
+	//length the stored impacts stay exact, so the results must still match exhaustive scoring
+	@Test
+	void testTopKMatchesExhaustiveScoringAfterUpdates() {
+		Random random = new Random(7);
+		String[] vocabulary = new String[200];
+		for(int i = 0; i < vocabulary.length; i++) vocabulary[i] = "v" + i;
+		Map<Long, Map<String, Integer>> current = new HashMap<>();
+		index.clear();
+		for(int i = 0; i < 20_000; i++) {
+			long id = random.nextInt(2000);
+			if(random.nextInt(10) == 0) {
+				index.remove(id);
+				current.remove(id);
+			} else {
+				Course c = course(id, vocabulary[(int) (200 * Math.pow(random.nextDouble(), 3))] + "x", words(random, vocabulary, 5));
+				index.put(c);
+				current.put(id, tf(c));
+			}
+		}
+		List<Long> ids = new ArrayList<>(current.keySet());
+		List<Map<String, Integer>> docs = new ArrayList<>();
+		ids.forEach(id -> docs.add(current.get(id)));
+		Bm25 bm25 = new Bm25(docs);
+		assertThat(index.size()).isEqualTo(current.size());
+		for(int q = 0; q < 200; q++) {
+			String query = words(random, vocabulary, 1 + random.nextInt(2));
+			List<Long> found = index.search(query, 10);
+			List<Double> expected = new ArrayList<>();
+			for(Map<String, Integer> doc : docs) {
+				double score = bm25.score(query, doc);
+				if(score > 0) expected.add(score);
+			}
+			expected.sort((a, b) -> Double.compare(b, a));
+			expected = expected.subList(0, Math.min(10, expected.size()));
+
+			assertThat(found).hasSameSizeAs(expected);
+			for(int i = 0; i < found.size(); i++) {
+				assertThat(bm25.score(query, current.get(found.get(i)))).isCloseTo(expected.get(i), within(1e-4));
+			}
+		}
+	}
+
+	private static String words(Random random, String[] vocabulary, int n) {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < n; i++) {
+			int skewed = (int) (vocabulary.length * Math.pow(random.nextDouble(), 3));  //a few words are very common
+			text.append(vocabulary[skewed]).append(' ');
+		}
+		return text.toString();
+	}
+
+	private static Map<String, Integer> tf(Course c) {
+		Map<String, Integer> tf = new HashMap<>();
+		CourseSearchIndex.tokenize(c.getTitle()).forEach(t -> tf.merge(t, 2, Integer::sum));
+		CourseSearchIndex.tokenize(c.getDescription()).forEach(t -> tf.merge(t, 1, Integer::sum));
+		return tf;
+	}
+
+	//plain BM25 over every document, with the same title boost and prefix weight as the index
+	private static final class Bm25 {
+		final TreeSet<String> vocabulary = new TreeSet<>();
+		final Map<String, Integer> df = new HashMap<>();
+		final int n;
+		final double avgLength;
+
+		Bm25(List<Map<String, Integer>> docs) {
+			long totalLength = 0;
+			for(Map<String, Integer> tf : docs) {
+				vocabulary.addAll(tf.keySet());
+				tf.keySet().forEach(t -> df.merge(t, 1, Integer::sum));
+				totalLength += length(tf);
+			}
+			n = docs.size();
+			avgLength = (double) totalLength / n;
+		}
+
+		double score(String query, Map<String, Integer> tf) {
+			int length = length(tf);
+			double score = 0;
+			for(String word : CourseSearchIndex.tokenize(query)) {
+				int expanded = 0;
+				double best = 0;
+				for(String term : vocabulary.subSet(word, true, word + Character.MAX_VALUE, false)) {
+					if(expanded++ == 64) break;  //same cap on prefix expansion as the index
+					int f = tf.getOrDefault(term, 0);
+					if(f == 0) continue;
+					double idf = Math.log(1 + (n - df.get(term) + 0.5) / (df.get(term) + 0.5));
+					float impact = (float) (f * 2.2 / (f + 1.2 * (1 - 0.75 + 0.75 * length / avgLength)));
+					best = Math.max(best, (term.equals(word) ? 1.0 : 0.5) * idf * impact);
+				}
+				score += best;
+			}
+			return score;
+		}
+
+		static int length(Map<String, Integer> tf) {
+			return tf.values().stream().mapToInt(Integer::intValue).sum();
+		}
+	}
+
+	private static Course course(long id, String title, String description) {
+		Course c = new Course();
+		c.setId(id);
+		c.setTitle(title);
+		c.setDescription(description);
+		return c;
+	}
+}
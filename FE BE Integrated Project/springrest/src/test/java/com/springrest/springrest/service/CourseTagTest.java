@@ -0,0 +1,34 @@
+package com.springrest.springrest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.springrest.springrest.entities.Course;
+
+class CourseTagTest {
+
+	@Test
+	void testParseReadsBackTheETag() {
+		Course course = new Course();
+		course.setIncarnation(-42);
+		course.setVersion(7);
+		String eTag = CourseTag.of(course).eTag();
+		assertThat(CourseTag.parse(eTag).matches(course)).isTrue();
+		assertThat(CourseTag.parse("W/" + eTag).matches(course)).isTrue();
+	}
+
+	@Test
+	void testSameVersionOfAnotherIncarnationDoesNotMatch() {
+		Course course = new Course();
+		course.setIncarnation(1);
+		assertThat(new CourseTag(2, 0).matches(course)).isFalse();
+		assertThat(new CourseTag(1, 0).matches(course)).isTrue();
+	}
+
+	@Test
+	void testVersionOnlyTagIsRejected() {
+		assertThatThrownBy(() -> CourseTag.parse("\"3\"")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
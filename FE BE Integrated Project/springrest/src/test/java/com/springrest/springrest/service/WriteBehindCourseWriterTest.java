@@ -0,0 +1,210 @@
+package com.springrest.springrest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springrest.springrest.entities.Course;
+
+class WriteBehindCourseWriterTest {
+
+	@TempDir
+	Path dir;
+
+	List<List<CourseMutation>> flushed = new CopyOnWriteArrayList<>();
+	WriteBehindCourseWriter writer;
+
+	@AfterEach
+	void close() throws IOException {
+		writer.shutdown();
+	}
+
+	//the scheduled flusher effectively never runs, the tests flush by hand
+	WriteBehindCourseWriter start(int maxPending) throws IOException {
+		return start(maxPending, 1 << 20, 3, batch -> flushed.add(new ArrayList<>(batch)));
+	}
+
+	WriteBehindCourseWriter start(int maxPending, long segmentBytes, int maxAttempts,
+			Consumer<List<CourseMutation>> applier) throws IOException {
+		writer = new WriteBehindCourseWriter(new ObjectMapper(), dir.resolve("courses.log").toString(),
+				maxPending, 2, 3_600_000, 10, false, segmentBytes, maxAttempts);
+		writer.start(applier);
+		return writer;
+	}
+
+	@Test
+	void testWritesToOneCourseAreCoalesced() throws IOException {
+		start(10);
+		writer.submit(CourseMutation.upsert(course(1, "a")));
+		writer.submit(CourseMutation.upsert(course(1, "b")));
+		assertThat(writer.pendingCount()).isEqualTo(1);
+		assertThat(writer.pending(1).getTitle()).isEqualTo("b");
+
+		writer.flush();
+		assertThat(flushed).hasSize(1);
+		assertThat(flushed.get(0)).extracting(CourseMutation::getTitle).containsExactly("b");
+		assertThat(writer.pending(1)).isNull();
+	}
+
+	@Test
+	void testLogIsTruncatedOnceEverythingIsFlushed() throws IOException {
+		start(10);
+		for(int i = 1; i <= 5; i++) {
+			writer.submit(CourseMutation.upsert(course(i, "t")));
+		}
+		assertThat(logBytes()).isPositive();
+		writer.flush();
+		assertThat(flushed).hasSize(3);  //batches of 2
+		assertThat(logBytes()).isZero();
+	}
+
+	@Test
+	void testSegmentsCoveredByTheCheckpointAreDeleted() throws IOException {
+		start(10, 1, 3, batch -> flushed.add(new ArrayList<>(batch)));  //every write starts a new segment
+		for(int i = 1; i <= 3; i++) {
+			writer.submit(CourseMutation.upsert(course(i, "t")));
+		}
+		assertThat(segments()).hasSize(4);
+		writer.flush();  //batches [1,2] then [3]
+		assertThat(segments()).hasSize(1);
+		assertThat(logBytes()).isZero();
+	}
+
+	@Test
+	void testReplayStartsAfterTheCheckpoint() throws IOException {
+		WriteBehindCourseWriter crashed = start(10);
+		crashed.submit(CourseMutation.upsert(course(1, "flushed")));
+		crashed.flush();
+		crashed.submit(CourseMutation.upsert(course(2, "pending")));
+		flushed.clear();
+
+		start(10);  //same directory, the first writer never shut down
+		writer.flush();
+		assertThat(flushed).flatExtracting(b -> b).extracting(CourseMutation::getId).containsExactly(2L);
+	}
+
+	@Test
+	void testRejectedMutationIsDeadLetteredAfterMaxAttempts() throws IOException {
+		start(10, 1 << 20, 3, batch -> {
+			if(batch.stream().anyMatch(m -> m.getId() == 2)) {
+				throw new IllegalStateException("rejected");
+			}
+			flushed.add(new ArrayList<>(batch));
+		});
+		for(int i = 1; i <= 3; i++) {
+			writer.submit(CourseMutation.upsert(course(i, "t")));
+		}
+		assertThatThrownBy(writer::flush).hasMessage("rejected");
+		assertThatThrownBy(writer::flush).hasMessage("rejected");
+		writer.flush();  //third attempt: given up on, 3 goes through
+
+		assertThat(flushed).flatExtracting(b -> b).extracting(CourseMutation::getId).containsExactly(1L, 3L);
+		assertThat(writer.getDeadLettered()).isEqualTo(1);
+		assertThat(writer.pendingCount()).isZero();
+		assertThat(Files.readString(dir.resolve("courses.log.dead"))).contains("\"id\":2").contains("rejected");
+		assertThat(logBytes()).isZero();
+	}
+
+	@Test
+	void testUnreachableDatabaseDoesNotDeadLetter() throws IOException {
+		int[] failures = {10};
+		start(10, 1 << 20, 3, batch -> {
+			if(failures[0]-- > 0) {
+				throw new TransientDataAccessResourceException("connection refused");
+			}
+			flushed.add(new ArrayList<>(batch));
+		});
+		writer.submit(CourseMutation.upsert(course(1, "t")));
+		for(int i = 0; i < 10; i++) {
+			assertThatThrownBy(writer::flush).isInstanceOf(TransientDataAccessResourceException.class);
+		}
+		writer.flush();
+		assertThat(writer.getDeadLettered()).isZero();
+		assertThat(flushed).flatExtracting(b -> b).extracting(CourseMutation::getId).containsExactly(1L);
+	}
+
+	//every batch written brings a new submit with it, flush must still return once the earlier ones are in
+	@Test
+	void testFlushDoesNotChaseNewWrites() throws IOException {
+		long[] next = {100};
+		start(1000, 1 << 20, 3, batch -> writer.submit(CourseMutation.upsert(course(next[0]++, "new"))));
+		writer.submit(CourseMutation.upsert(course(1, "t")));
+		assertTimeoutPreemptively(Duration.ofSeconds(5), writer::flush);
+		assertThat(writer.pending(1)).isNull();
+	}
+
+	@Test
+	void testLogIsReplayedAfterACrash() throws IOException {
+		Files.writeString(dir.resolve("courses.log." + String.format("%019d", 1)),
+				"{\"type\":\"UPSERT\",\"id\":1,\"title\":\"a\",\"description\":\"d\",\"seq\":1}\n"
+				+ "{\"type\":\"DELETE\",\"id\":2,\"seq\":2}\n"
+				+ "{\"type\":\"UPSERT\",\"id\":1,\"title\":\"b\",\"seq\":3");  //torn last line
+		writer = new WriteBehindCourseWriter(new ObjectMapper(), dir.resolve("courses.log").toString(),
+				10, 10, 3_600_000, 10, false, 1 << 20, 3);
+		writer.start(batch -> flushed.add(new ArrayList<>(batch)));
+		writer.flush();
+
+		assertThat(flushed).flatExtracting(b -> b).extracting(CourseMutation::getId).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(flushed).flatExtracting(b -> b).filteredOn(m -> m.getId() == 1).extracting(CourseMutation::getTitle).containsExactly("a");
+	}
+
+	@Test
+	void testSubmitFailsWhenTooManyCoursesArePending() throws IOException {
+		start(2);
+		writer.submit(CourseMutation.upsert(course(1, "a")));
+		writer.submit(CourseMutation.upsert(course(2, "a")));
+		writer.submit(CourseMutation.upsert(course(2, "b")));  //coalesces, does not need room
+		assertThatThrownBy(() -> writer.submit(CourseMutation.upsert(course(3, "a"))))
+				.isInstanceOf(WriteBehindFullException.class);
+	}
+
+	@Test
+	void testOverlayAppliesPendingWritesInRange() throws IOException {
+		start(10);
+		writer.submit(CourseMutation.upsert(course(2, "new")));
+		writer.submit(CourseMutation.delete(3));
+		writer.submit(CourseMutation.upsert(course(9, "outside")));
+
+		List<Course> merged = writer.overlay(List.of(course(1, "a"), course(3, "b"), course(5, "c")), 0L, 5);
+		assertThat(merged).extracting(Course::getId).containsExactly(1L, 2L, 5L);
+		assertThat(merged.get(1).getTitle()).isEqualTo("new");
+	}
+
+	private long logBytes() throws IOException {
+		long bytes = 0;
+		for(Path segment : segments()) {
+			bytes += Files.size(segment);
+		}
+		return bytes;
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> f.getFileName().toString().matches("courses\\.log\\.\\d+")).collect(Collectors.toList());
+		}
+	}
+
+	private static Course course(long id, String title) {
+		Course course = new Course();
+		course.setId(id);
+		course.setTitle(title);
+		return course;
+	}
+}
@@ -0,0 +1,122 @@
+package org.sapient.ordermanagement.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cart that is being edited: keeps its subtotal up to date on every add, remove and
+ * quantity change, so reading the amounts is O(1) however many lines the cart has.
+ * The subtotal is kept in whole paise (long), so adding and removing never drifts.
+ * Create one with OrderService.newCart so the same rates apply as in calculateFinalAmount.
+ */
+public class Cart {
+
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+    private final boolean discountEligible;
+    private final double discountRate;
+    private final double taxRate;
+    private long subtotalPaise;
+
+    public Cart(boolean discountEligible, double discountRate, double taxRate) {
+        this.discountEligible = discountEligible;
+        this.discountRate = discountRate;
+        this.taxRate = taxRate;
+    }
+
+    /**
+     * Adds quantity more of the item; the unit price of a line already in the cart stays as it was.
+     */
+    public void add(String itemId, double unitPrice, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        Line line = lines.get(itemId);
+        if (line == null) {
+            line = new Line(toPaise(unitPrice), 0);
+            lines.put(itemId, line);
+        }
+        setQuantity(itemId, line, line.quantity + quantity);
+    }
+
+    /**
+     * Sets the quantity of an item already in the cart; 0 removes the line.
+     */
+    public void setQuantity(String itemId, int quantity) {
+        Line line = lines.get(itemId);
+        if (line == null) {
+            throw new IllegalArgumentException("Item not in cart: " + itemId);
+        }
+        setQuantity(itemId, line, quantity);
+    }
+
+    public void remove(String itemId) {
+        Line line = lines.get(itemId);
+        if (line != null) {
+            setQuantity(itemId, line, 0);
+        }
+    }
+
+    public double getSubtotal() {
+        return subtotalPaise / 100.0;
+    }
+
+    public double getDiscount() {
+        return discountEligible ? getSubtotal() * discountRate : 0;
+    }
+
+    public double getTax() {
+        return (getSubtotal() - getDiscount()) * taxRate;
+    }
+
+    public double getFinalAmount() {
+        double afterDiscount = getSubtotal() - getDiscount();
+        return afterDiscount + afterDiscount * taxRate;
+    }
+
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    /**
+     * The cart as an Order for checkout, one price per unit.
+     */
+    public Order toOrder() {
+        List<Double> prices = new ArrayList<>();
+        for (Line line : lines.values()) {
+            prices.addAll(Collections.nCopies(line.quantity, line.unitPaise / 100.0));
+        }
+        return new Order(prices, discountEligible);
+    }
+
+    private void setQuantity(String itemId, Line line, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative: " + quantity);
+        }
+        subtotalPaise += line.unitPaise * (quantity - line.quantity);
+        line.quantity = quantity;
+        if (quantity == 0) {
+            lines.remove(itemId);
+        }
+    }
+
+    private static long toPaise(double price) {
+        long paise = Math.round(price * 100);
+        if (price < 0 || Math.abs(price * 100 - paise) > 1e-6) {
+            throw new IllegalArgumentException("Price must be a non-negative amount in whole paise: " + price);
+        }
+        return paise;
+    }
+
+    private static class Line {
+        final long unitPaise;
+        int quantity;
+
+        Line(long unitPaise, int quantity) {
+            this.unitPaise = unitPaise;
+            this.quantity = quantity;
+        }
+    }
+}
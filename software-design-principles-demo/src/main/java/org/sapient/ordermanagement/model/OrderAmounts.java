@@ -0,0 +1,40 @@
+package org.sapient.ordermanagement.model;
+
+/**
+ * Amounts for many orders at once, one array slot per order, as returned by
+ * OrderService's bulk pricing.
+ */
+public class OrderAmounts {
+
+    private final double[] subtotals;
+    private final double[] discounts;
+    private final double[] taxes;
+    private final double[] finalAmounts;
+
+    public OrderAmounts(int orders) {
+        this.subtotals = new double[orders];
+        this.discounts = new double[orders];
+        this.taxes = new double[orders];
+        this.finalAmounts = new double[orders];
+    }
+
+    public int size() {
+        return finalAmounts.length;
+    }
+
+    public double[] getSubtotals() {
+        return subtotals;
+    }
+
+    public double[] getDiscounts() {
+        return discounts;
+    }
+
+    public double[] getTaxes() {
+        return taxes;
+    }
+
+    public double[] getFinalAmounts() {
+        return finalAmounts;
+    }
+}
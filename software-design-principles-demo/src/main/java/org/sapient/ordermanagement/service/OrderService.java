@@ -1,11 +1,34 @@
 package org.sapient.ordermanagement.service;
 
+import org.sapient.ordermanagement.model.Cart;
 import org.sapient.ordermanagement.model.Order;
+import org.sapient.ordermanagement.model.OrderAmounts;
+
+import java.nio.DoubleBuffer;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class OrderService {
 
-    private static final double DISCOUNT_RATE = 0.10;
-    private static final double TAX_RATE = 0.18;
+    private static final double DEFAULT_DISCOUNT_RATE = 0.10;
+    private static final double DEFAULT_TAX_RATE = 0.18;
+    private static final int BULK_CHUNK = 16_384; // orders per fork-join task
+
+    private final double discountRate;
+    private final double taxRate;
+
+    public OrderService() {
+        this(DEFAULT_DISCOUNT_RATE, DEFAULT_TAX_RATE);
+    }
+
+    /**
+     * Rates come from configuration, so a rate change does not need a new build.
+     */
+    public OrderService(double discountRate, double taxRate) {
+        this.discountRate = discountRate;
+        this.taxRate = taxRate;
+    }
 
     /**
      * Calculate final order amount after discount and tax.
@@ -19,6 +42,31 @@ public class OrderService {
         return applyTax(total); // KISS: single responsibility per method
     }
 
+    /**
+     * An empty cart that keeps its amounts up to date as it is edited, priced with this service's rates.
+     */
+    public Cart newCart(boolean discountEligible) {
+        return new Cart(discountEligible, discountRate, taxRate);
+    }
+
+    /**
+     * Bulk version of calculateFinalAmount for repricing many orders: the item prices of order i are
+     * prices[offsets[i] .. offsets[i + 1]), and bit i of discountEligible says whether it gets the discount.
+     * Chunks of orders are priced in parallel on the common fork-join pool.
+     */
+    public OrderAmounts calculateFinalAmounts(double[] prices, int[] offsets, BitSet discountEligible) {
+        return calculateFinalAmounts(DoubleBuffer.wrap(prices), offsets, discountEligible);
+    }
+
+    /**
+     * Same, for prices that live off-heap or in a memory-mapped file.
+     */
+    public OrderAmounts calculateFinalAmounts(DoubleBuffer prices, int[] offsets, BitSet discountEligible) {
+        OrderAmounts amounts = new OrderAmounts(offsets.length - 1);
+        ForkJoinPool.commonPool().invoke(new BulkTask(prices, offsets, discountEligible, amounts, 0, amounts.size()));
+        return amounts;
+    }
+
     // --- DRY: This method prevents subtotal calculation code from repeating in multiple places ---
     private double calculateSubtotal(Order order) {
         return order.getItemPrices()
@@ -29,12 +77,71 @@ public class OrderService {
 
     // --- KISS: Simple method, no over-engineering for discount logic ---
     private double applyDiscount(double amount) {
-        return amount - (amount * DISCOUNT_RATE);
+        return amount - (amount * discountRate);
     }
 
     // --- KISS: Tax calculation kept separate and simple ---
     private double applyTax(double amount) {
-        return amount + (amount * TAX_RATE);
+        return amount + (amount * taxRate);
+    }
+
+    private class BulkTask extends RecursiveAction {
+        private final DoubleBuffer prices;
+        private final int[] offsets;
+        private final BitSet eligible;
+        private final OrderAmounts amounts;
+        private final int from;
+        private final int to;
+
+        BulkTask(DoubleBuffer prices, int[] offsets, BitSet eligible, OrderAmounts amounts, int from, int to) {
+            this.prices = prices;
+            this.offsets = offsets;
+            this.eligible = eligible;
+            this.amounts = amounts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BULK_CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BulkTask(prices, offsets, eligible, amounts, from, middle),
+                        new BulkTask(prices, offsets, eligible, amounts, middle, to));
+                return;
+            }
+            double[] subtotals = amounts.getSubtotals();
+            double[] discounts = amounts.getDiscounts();
+            double[] taxes = amounts.getTaxes();
+            double[] finalAmounts = amounts.getFinalAmounts();
+            for (int order = from; order < to; order++) {
+                double subtotal = sum(prices, offsets[order], offsets[order + 1]);
+                double discount = eligible.get(order) ? subtotal * discountRate : 0;
+                double tax = (subtotal - discount) * taxRate;
+                subtotals[order] = subtotal;
+                discounts[order] = discount;
+                taxes[order] = tax;
+                finalAmounts[order] = subtotal - discount + tax;
+            }
+        }
+    }
+
+    // Four independent running sums keep the CPU's floating point units busy (one sum would wait on
+    // the previous add every time). The addition order differs from a plain loop, so results can differ
+    // from calculateFinalAmount in the last bits.
+    private static double sum(DoubleBuffer prices, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += prices.get(i);
+            s1 += prices.get(i + 1);
+            s2 += prices.get(i + 2);
+            s3 += prices.get(i + 3);
+        }
+        for (; i < to; i++) {
+            s0 += prices.get(i);
+        }
+        return (s0 + s1) + (s2 + s3);
     }
 
     /**
@@ -0,0 +1,87 @@
+package org.sapient.ordermanagement.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.sapient.ordermanagement.service.OrderService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class CartTest {
+
+    private final OrderService service = new OrderService();
+
+    /**
+     * Property: after any sequence of edits the cart's amounts match OrderService.calculateFinalAmount
+     * on the same items, and its subtotal is exactly the decimal sum of the line prices.
+     */
+    @Test
+    public void randomEditsAlwaysMatchBatchCalculation() {
+        for (long seed = 0; seed < 500; seed++) {
+            Random random = new Random(seed);
+            Cart cart = service.newCart(random.nextBoolean());
+            Map<String, long[]> model = new HashMap<>();   // item -> {unit paise, quantity}
+            List<String> items = new ArrayList<>();
+            for (int step = 0, steps = random.nextInt(200); step < steps; step++) {
+                int op = items.isEmpty() ? 0 : random.nextInt(3);
+                if (op == 0) {
+                    String item = "sku-" + random.nextInt(50);
+                    long paise = random.nextInt(5_000_000);
+                    int quantity = 1 + random.nextInt(20);
+                    cart.add(item, paise / 100.0, quantity);
+                    long[] line = model.computeIfAbsent(item, k -> { items.add(k); return new long[] {paise, 0}; });
+                    line[1] += quantity;
+                } else {
+                    String item = items.get(random.nextInt(items.size()));
+                    int quantity = op == 1 ? 0 : random.nextInt(30);
+                    if (op == 1) cart.remove(item); else cart.setQuantity(item, quantity);
+                    if (quantity == 0) {
+                        model.remove(item);
+                        items.remove(item);
+                    } else {
+                        model.get(item)[1] = quantity;
+                    }
+                }
+            }
+
+            BigDecimal exact = BigDecimal.ZERO;
+            for (long[] line : model.values()) {
+                exact = exact.add(BigDecimal.valueOf(line[0]).multiply(BigDecimal.valueOf(line[1])).movePointLeft(2));
+            }
+            assertEquals(0, exact.compareTo(BigDecimal.valueOf(cart.getSubtotal())), "seed " + seed);
+            assertEquals(model.size(), cart.getLineCount(), "seed " + seed);
+
+            double batch = service.calculateFinalAmount(cart.toOrder());
+            assertEquals(batch, cart.getFinalAmount(), Math.max(1e-9, Math.abs(batch) * 1e-12), "seed " + seed);
+        }
+    }
+
+    @Test
+    public void amountsAreBrokenDown() {
+        Cart cart = service.newCart(true);
+        cart.add("burger", 100.0, 1);
+        cart.add("pizza", 250.0, 1);
+        cart.add("cola", 25.0, 2);
+        assertEquals(400.0, cart.getSubtotal());
+        assertEquals(40.0, cart.getDiscount(), 1e-9);
+        assertEquals(64.8, cart.getTax(), 1e-9);
+        assertEquals(424.8, cart.getFinalAmount(), 1e-9);
+
+        cart.setQuantity("cola", 0);
+        assertEquals(350.0, cart.getSubtotal());
+        assertEquals(2, cart.getLineCount());
+    }
+
+    @Test
+    public void pricesMustBeWholePaise() {
+        Cart cart = service.newCart(false);
+        assertThrows(IllegalArgumentException.class, () -> cart.add("odd", 10.005, 1));
+        assertThrows(IllegalArgumentException.class, () -> cart.add("free", 10.0, 0));
+    }
+}
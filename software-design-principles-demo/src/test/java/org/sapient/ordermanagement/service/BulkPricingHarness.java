@@ -0,0 +1,59 @@
+package org.sapient.ordermanagement.service;
+
+import org.sapient.ordermanagement.model.Order;
+import org.sapient.ordermanagement.model.OrderAmounts;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Not a JUnit test: prices 2M orders (8 items each on average) with calculateFinalAmount one order at a
+ * time and with the bulk API, and prints orders/sec for both.
+ */
+public class BulkPricingHarness {
+
+    private static final int ORDERS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(5);
+        List<Order> orders = new ArrayList<>(ORDERS);
+        int[] offsets = new int[ORDERS + 1];
+        BitSet eligible = new BitSet(ORDERS);
+        double[] prices = new double[ORDERS * 16];
+        int items = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            List<Double> itemPrices = new ArrayList<>();
+            for (int j = 1 + random.nextInt(15); j > 0; j--) {
+                double price = random.nextInt(100_000) / 100.0;
+                itemPrices.add(price);
+                prices[items++] = price;
+            }
+            offsets[i + 1] = items;
+            eligible.set(i, i % 3 == 0);
+            orders.add(new Order(itemPrices, i % 3 == 0));
+        }
+        OrderService service = new OrderService();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            double sink = 0;
+            long start = System.nanoTime();
+            for (Order order : orders) {
+                sink += service.calculateFinalAmount(order);
+            }
+            print("per order", System.nanoTime() - start);
+
+            start = System.nanoTime();
+            OrderAmounts amounts = service.calculateFinalAmounts(prices, offsets, eligible);
+            print("bulk (" + Runtime.getRuntime().availableProcessors() + " cores)", System.nanoTime() - start);
+            sink -= amounts.getFinalAmounts()[round];
+            if (sink == 42) System.out.println();
+        }
+    }
+
+    private static void print(String label, long nanos) {
+        System.out.printf("%-16s %,14.0f orders/sec%n", label, ORDERS / (nanos / 1e9));
+    }
+}
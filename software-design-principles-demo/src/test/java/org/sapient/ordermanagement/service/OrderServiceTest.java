@@ -0,0 +1,62 @@
+package org.sapient.ordermanagement.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.sapient.ordermanagement.model.Order;
+import org.sapient.ordermanagement.model.OrderAmounts;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class OrderServiceTest {
+
+    private final OrderService service = new OrderService();
+
+    @Test
+    public void bulkAmountsMatchPerOrderAmounts() {
+        Random random = new Random(11);
+        int orders = 100_000;   // several fork-join chunks
+        int[] offsets = new int[orders + 1];
+        List<Double> all = new ArrayList<>();
+        List<Order> perOrder = new ArrayList<>();
+        BitSet eligible = new BitSet();
+        for (int i = 0; i < orders; i++) {
+            List<Double> prices = new ArrayList<>();
+            for (int j = random.nextInt(12); j > 0; j--) {
+                prices.add(random.nextInt(1_000_000) / 100.0);
+            }
+            boolean discount = random.nextBoolean();
+            eligible.set(i, discount);
+            perOrder.add(new Order(prices, discount));
+            all.addAll(prices);
+            offsets[i + 1] = all.size();
+        }
+        double[] prices = all.stream().mapToDouble(Double::doubleValue).toArray();
+
+        OrderAmounts onHeap = service.calculateFinalAmounts(prices, offsets, eligible);
+        DoubleBuffer direct = ByteBuffer.allocateDirect(prices.length * Double.BYTES).asDoubleBuffer().put(prices);
+        OrderAmounts offHeap = service.calculateFinalAmounts(direct, offsets, eligible);
+
+        for (int i = 0; i < orders; i++) {
+            double expected = service.calculateFinalAmount(perOrder.get(i));
+            assertEquals(expected, onHeap.getFinalAmounts()[i], 1e-6, "order " + i);
+            assertEquals(onHeap.getFinalAmounts()[i], offHeap.getFinalAmounts()[i], 0.0);
+        }
+    }
+
+    @Test
+    public void bulkAmountsAreBrokenDown() {
+        OrderAmounts amounts = service.calculateFinalAmounts(new double[] {100, 250, 50, 40}, new int[] {0, 3, 4}, BitSet.valueOf(new long[] {1}));
+        assertEquals(400, amounts.getSubtotals()[0], 1e-9);
+        assertEquals(40, amounts.getDiscounts()[0], 1e-9);
+        assertEquals(64.8, amounts.getTaxes()[0], 1e-9);
+        assertEquals(424.8, amounts.getFinalAmounts()[0], 1e-9);
+        assertEquals(0, amounts.getDiscounts()[1], 0.0);
+        assertEquals(47.2, amounts.getFinalAmounts()[1], 1e-9);
+    }
+}
@@ -0,0 +1,15 @@
+package org.sapient.fooddelivery.dispatch;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// An order handed to a partner; pass it back to DispatchScheduler.complete when delivered.
+public class Assignment {
+    public final String orderId;
+    public final FleetPartner partner;
+    final AtomicBoolean completed = new AtomicBoolean();
+
+    public Assignment(String orderId, FleetPartner partner) {
+        this.orderId = orderId;
+        this.partner = partner;
+    }
+}
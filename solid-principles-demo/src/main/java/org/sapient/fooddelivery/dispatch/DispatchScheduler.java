@@ -0,0 +1,231 @@
+package org.sapient.fooddelivery.dispatch;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+// ===============================
+//  DISPATCH - picks the nearest partner with free capacity for each order.
+//  Partners with free capacity sit in a grid of cellDegrees x cellDegrees cells; a lookup scans rings
+//  of cells around the order's cell and stops once no farther ring can hold anyone closer.
+//  Membership and load of a partner only change under its stripe lock (partner id -> one of STRIPES
+//  locks), so different partners are reserved, released and moved in parallel; lookups take no lock.
+//  When nobody is free within maxRings the order waits, and is assigned as soon as a partner frees up.
+// ===============================
+public class DispatchScheduler {
+    private static final int STRIPES = 64;
+
+    private final double cellDegrees;
+    private final int maxRings;
+    private final Map<Long, Set<FleetPartner>> available = new ConcurrentHashMap<>();
+    private final Map<Integer, FleetPartner> partners = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Deque<Waiting> waiting = new ConcurrentLinkedDeque<>();
+    private final ReentrantLock servingLock = new ReentrantLock();
+    private final AtomicBoolean serveRequested = new AtomicBoolean();
+
+    public DispatchScheduler(double cellDegrees, int maxRings) {
+        this.cellDegrees = cellDegrees;
+        this.maxRings = maxRings;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void register(FleetPartner partner) {
+        ReentrantLock lock = stripe(partner);
+        lock.lock();
+        try {
+            partner.cell = cell(partner.lat, partner.lon);
+            partners.put(partner.id, partner);
+            if (partner.load < partner.capacity) {
+                cellSet(partner.cell).add(partner);
+            }
+        } finally {
+            lock.unlock();
+        }
+        serveWaiting();
+    }
+
+    // Completes right away when someone is free, otherwise once a partner frees up.
+    public CompletableFuture<Assignment> assign(String orderId, double lat, double lon) {
+        Assignment assignment = tryAssign(orderId, lat, lon);
+        if (assignment != null) {
+            return CompletableFuture.completedFuture(assignment);
+        }
+        Waiting w = new Waiting(orderId, lat, lon);
+        waiting.addLast(w);
+        serveWaiting();   // a partner may have freed up between the lookup and the enqueue
+        return w.future;
+    }
+
+    // Each assignment frees its slot once; completing it again is a bug in the caller.
+    public void complete(Assignment assignment) {
+        if (!assignment.completed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Order " + assignment.orderId + " was already completed");
+        }
+        FleetPartner partner = assignment.partner;
+        ReentrantLock lock = stripe(partner);
+        lock.lock();
+        try {
+            if (partner.load-- == partner.capacity) {
+                cellSet(partner.cell).add(partner);
+            }
+        } finally {
+            lock.unlock();
+        }
+        serveWaiting();
+    }
+
+    public void move(int partnerId, double lat, double lon) {
+        FleetPartner partner = partners.get(partnerId);
+        if (partner == null) {
+            throw new IllegalArgumentException("Unknown partner " + partnerId);
+        }
+        long newCell = cell(lat, lon);
+        ReentrantLock lock = stripe(partner);
+        lock.lock();
+        try {
+            partner.lat = lat;
+            partner.lon = lon;
+            if (newCell != partner.cell) {
+                boolean free = partner.load < partner.capacity;
+                if (free) cellSet(partner.cell).remove(partner);
+                partner.cell = newCell;
+                if (free) cellSet(newCell).add(partner);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waitingOrders() {
+        return waiting.size();
+    }
+
+    private Assignment tryAssign(String orderId, double lat, double lon) {
+        while (true) {
+            FleetPartner nearest = nearest(lat, lon);
+            if (nearest == null) {
+                return null;
+            }
+            if (reserve(nearest)) {
+                return new Assignment(orderId, nearest);
+            }
+            // someone else took the last slot between the lookup and the reservation, look again
+        }
+    }
+
+    private FleetPartner nearest(double lat, double lon) {
+        int row = (int) Math.floor(lat / cellDegrees);
+        int col = (int) Math.floor(lon / cellDegrees);
+        double lonScale = Math.cos(Math.toRadians(lat));
+        FleetPartner best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRings; ring++) {
+            double ringMin = Math.max(0, ring - 1) * cellDegrees * lonScale;   // closest any point in this ring can be
+            if (best != null && ringMin * ringMin > bestDistance) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (int c = col - ring; c <= col + ring; c += edgeRow ? 1 : 2 * ring) {
+                    Set<FleetPartner> cell = available.get(key(r, c));
+                    if (cell == null) continue;
+                    for (FleetPartner p : cell) {
+                        double dy = p.lat - lat;
+                        double dx = (p.lon - lon) * lonScale;
+                        double distance = dx * dx + dy * dy;
+                        if (distance < bestDistance) {
+                            best = p;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean reserve(FleetPartner partner) {
+        ReentrantLock lock = stripe(partner);
+        lock.lock();
+        try {
+            if (partner.load >= partner.capacity) {
+                return false;
+            }
+            if (++partner.load == partner.capacity) {
+                cellSet(partner.cell).remove(partner);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Rebalancing: hands waiting orders, oldest first, to whoever is free now. An order nobody near it can
+    // take does not hold up the ones behind it; it keeps its place in the queue for the next round.
+    // One thread serves at a time; a request that arrives meanwhile makes it go round once more, so a freed
+    // partner is never missed.
+    private void serveWaiting() {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        serveRequested.set(true);
+        while (serveRequested.get() && servingLock.tryLock()) {
+            try {
+                serveRequested.set(false);
+                List<Waiting> unmatched = new ArrayList<>();
+                Waiting w;
+                for (int n = waiting.size(); n > 0 && (w = waiting.pollFirst()) != null; n--) {
+                    Assignment assignment = tryAssign(w.orderId, w.lat, w.lon);
+                    if (assignment == null) {
+                        unmatched.add(w);
+                    } else {
+                        w.future.complete(assignment);
+                    }
+                }
+                for (int i = unmatched.size() - 1; i >= 0; i--) {
+                    waiting.addFirst(unmatched.get(i));
+                }
+            } finally {
+                servingLock.unlock();
+            }
+        }
+    }
+
+    private Set<FleetPartner> cellSet(long cell) {
+        return available.computeIfAbsent(cell, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    private long cell(double lat, double lon) {
+        return key((int) Math.floor(lat / cellDegrees), (int) Math.floor(lon / cellDegrees));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    private ReentrantLock stripe(FleetPartner partner) {
+        return stripes[partner.id & (STRIPES - 1)];
+    }
+
+    private static class Waiting {
+        final String orderId;
+        final double lat;
+        final double lon;
+        final CompletableFuture<Assignment> future = new CompletableFuture<>();
+
+        Waiting(String orderId, double lat, double lon) {
+            this.orderId = orderId;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.sapient.fooddelivery.dispatch;
+
+import org.sapient.fooddelivery.delivery.DeliveryPartner;
+
+// A DeliveryPartner in the live pool of DispatchScheduler: where it is and how many orders it carries.
+// Position and load change under the partner's stripe lock in DispatchScheduler; reads need no lock.
+public class FleetPartner {
+    public final int id;
+    public final DeliveryPartner partner;
+    public final int capacity;
+    volatile double lat;
+    volatile double lon;
+    volatile long cell;
+    volatile int load;
+
+    public FleetPartner(int id, DeliveryPartner partner, int capacity, double lat, double lon) {
+        this.id = id;
+        this.partner = partner;
+        this.capacity = capacity;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    public double getLat() { return lat; }
+    public double getLon() { return lon; }
+    public int getLoad() { return load; }
+}
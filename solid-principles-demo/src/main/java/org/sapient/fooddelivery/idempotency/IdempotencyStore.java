@@ -0,0 +1,21 @@
+package org.sapient.fooddelivery.idempotency;
+
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.service.PaymentSteps;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Runs the action at most once per order id within the store's time window; a repeat gets the first result.
+// A repeat that arrives while the first call is still running waits for it.
+// The action reports its payment through PaymentSteps. If it throws before charging, nothing is recorded and
+// a retry runs it again. If it throws after, running it again could charge twice, so the outcome is kept as
+// the final result: FAILED (payment outcome unknown) or PAID_NOT_DELIVERED.
+public interface IdempotencyStore {
+    OrderResult execute(String orderId, Function<PaymentSteps, OrderResult> action);
+
+    // For an action that charges nothing: a failure is never recorded.
+    default OrderResult execute(String orderId, Supplier<OrderResult> action) {
+        return execute(orderId, steps -> action.get());
+    }
+}
@@ -0,0 +1,21 @@
+package org.sapient.fooddelivery.idempotency;
+
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.service.OrderProcessor;
+
+// Decorator for at-least-once delivery: a retried Order.id gets the first result back instead of
+// being charged and dispatched again. Only a failure before the payment lets a retry run again.
+public class IdempotentOrderProcessor {
+    private final OrderProcessor processor;
+    private final IdempotencyStore store;
+
+    public IdempotentOrderProcessor(OrderProcessor processor, IdempotencyStore store) {
+        this.processor = processor;
+        this.store = store;
+    }
+
+    public OrderResult process(Order order) {
+        return store.execute(order.id, steps -> processor.process(order, steps));
+    }
+}
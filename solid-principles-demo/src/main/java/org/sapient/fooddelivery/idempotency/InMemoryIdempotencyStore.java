@@ -0,0 +1,126 @@
+package org.sapient.fooddelivery.idempotency;
+
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.service.PaymentSteps;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Striped in-memory store: an order id hashes to one of STRIPES insertion-ordered maps, each with its own
+// monitor held only for a map lookup/insert. Oldest finished entries leave first, when older than the window
+// or when the stripe is at its share of maxEntries. An entry whose action is still running is never dropped,
+// a retry would charge again; a stripe full of running orders answers "store full, retry later" instead.
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    public InMemoryIdempotencyStore(int maxEntries, Duration window) {
+        this(maxEntries, window, System::currentTimeMillis);
+    }
+
+    InMemoryIdempotencyStore(int maxEntries, Duration window, LongSupplier clock) {
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        int perStripe = Math.max(1, maxEntries / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    @Override
+    public OrderResult execute(String orderId, Function<PaymentSteps, OrderResult> action) {
+        Stripe stripe = stripes[(orderId.hashCode() & 0x7fffffff) % STRIPES];
+        long now = clock.getAsLong();
+        Entry mine = new Entry(now);
+        Entry existing;
+        synchronized (stripe) {
+            stripe.expire(now - windowMillis);
+            existing = stripe.get(orderId);
+            if (existing == null) {
+                if (!stripe.makeRoom()) {
+                    // not run and not recorded, so a retry can still go through
+                    return new OrderResult(orderId, OrderResult.Status.FAILED, 0, "Idempotency store full, retry later");
+                }
+                stripe.put(orderId, mine);
+            }
+        }
+        if (existing != null) {
+            try {
+                return existing.result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        PaymentProgress progress = new PaymentProgress();
+        try {
+            OrderResult result = action.apply(progress);
+            mine.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {   // an Error too, or callers waiting on the entry hang
+            if (progress.mayHaveCharged()) {
+                mine.result.complete(progress.failure(orderId));   // kept: a retry must not charge again
+            } else {
+                synchronized (stripe) {
+                    stripe.remove(orderId, mine);
+                }
+                mine.result.completeExceptionally(e);   // callers already waiting get the same failure
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        final long createdAt;
+        final CompletableFuture<OrderResult> result = new CompletableFuture<>();
+
+        Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static class Stripe extends LinkedHashMap<String, Entry> {
+        private final int maxEntries;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        // drops finished entries created before the cutoff, stepping over running ones
+        void expire(long createdBefore) {
+            Iterator<Entry> eldest = values().iterator();
+            while (eldest.hasNext()) {
+                Entry entry = eldest.next();
+                if (entry.createdAt >= createdBefore) {
+                    break;
+                }
+                if (entry.result.isDone()) {
+                    eldest.remove();
+                }
+            }
+        }
+
+        // frees a slot for one more entry by dropping the oldest finished one; false if all are running
+        boolean makeRoom() {
+            if (size() < maxEntries) {
+                return true;
+            }
+            Iterator<Entry> eldest = values().iterator();
+            while (eldest.hasNext()) {
+                if (eldest.next().result.isDone()) {
+                    eldest.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.sapient.fooddelivery.idempotency;
+
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.service.PaymentSteps;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+// ===============================
+//  Persistent variant: a fixed size hash table in a memory-mapped file, so results survive a restart.
+//  An order id hashes to a block of BLOCK slots and is linear-probed inside that block only, so one lock
+//  per block is enough. A slot is free when unused or older than the window; a full block reuses its
+//  oldest finished slot; a block whose slots all belong to running orders answers "store full, retry
+//  later" without running the action. The order is marked IN_PROGRESS before the action runs, and
+//  CHARGING / PAID as the payment goes: a repeat that finds such a mark after a restart gets FAILED
+//  ("needs reconciliation") or PAID_NOT_DELIVERED instead of a second charge.
+//  Writes reach the page cache at once (they survive a process crash); call flush() for power loss.
+// ===============================
+public class MappedIdempotencyStore implements IdempotencyStore, AutoCloseable {
+    private static final int SLOT = 128;
+    private static final int BLOCK = 64;
+    private static final int MAX_KEY = 64;
+    private static final int MAX_REASON = 40;
+    private static final byte EMPTY = 0, IN_PROGRESS = 1, DONE = 2, CHARGING = 3, PAID = 4;
+    // slot layout
+    private static final int STATE = 0, STATUS = 1, KEY_LEN = 2, TIME = 4, TOTAL = 12, REASON_LEN = 20, KEY = 21, REASON = KEY + MAX_KEY;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final int blocks;
+    private final ReentrantLock[] locks;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Map<String, CompletableFuture<OrderResult>> running = new ConcurrentHashMap<>();
+
+    public MappedIdempotencyStore(Path file, int slots, Duration window) throws IOException {
+        this(file, slots, window, System::currentTimeMillis);
+    }
+
+    MappedIdempotencyStore(Path file, int slots, Duration window, LongSupplier clock) throws IOException {
+        this.blocks = Math.max(1, slots / BLOCK);
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) blocks * BLOCK * SLOT);
+        this.locks = new ReentrantLock[blocks];
+        for (int i = 0; i < blocks; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public OrderResult execute(String orderId, Function<PaymentSteps, OrderResult> action) {
+        byte[] key = orderId.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY) {
+            throw new IllegalArgumentException("Order id longer than " + MAX_KEY + " bytes: " + orderId);
+        }
+        CompletableFuture<OrderResult> mine = new CompletableFuture<>();
+        CompletableFuture<OrderResult> other = running.putIfAbsent(orderId, mine);
+        if (other != null) {
+            return join(other);   // same order running in this process right now
+        }
+        try {
+            int block = (orderId.hashCode() & 0x7fffffff) % blocks;
+            int slot;
+            ReentrantLock lock = locks[block];
+            lock.lock();
+            try {
+                long now = clock.getAsLong();
+                slot = find(block, key, now);
+                if (slot >= 0) {
+                    OrderResult previous = read(slot, orderId);
+                    mine.complete(previous);
+                    return previous;
+                }
+                slot = claim(block, now);
+                if (slot < 0) {
+                    OrderResult busy = new OrderResult(orderId, OrderResult.Status.FAILED, 0,
+                            "Idempotency store full, retry later");
+                    mine.complete(busy);   // not run and not recorded, so a retry can still go through
+                    return busy;
+                }
+                write(slot, IN_PROGRESS, key, now, null);
+            } finally {
+                lock.unlock();
+            }
+            int claimed = slot;
+            PaymentProgress progress = new PaymentProgress() {
+                @Override
+                public void charging(double total) {
+                    super.charging(total);
+                    mark(lock, claimed, CHARGING, total);
+                }
+
+                @Override
+                public void paid(double total) {
+                    super.paid(total);
+                    mark(lock, claimed, PAID, total);
+                }
+            };
+            OrderResult result;
+            try {
+                result = action.apply(progress);
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    if (progress.mayHaveCharged()) {
+                        result = progress.failure(orderId);   // kept: a retry must not charge again
+                        write(slot, DONE, key, clock.getAsLong(), result);
+                        mine.complete(result);
+                    } else {
+                        table.put(slot * SLOT + STATE, EMPTY);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+            lock.lock();
+            try {
+                write(slot, DONE, key, clock.getAsLong(), result);
+            } finally {
+                lock.unlock();
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {   // an Error too, or callers waiting on mine hang
+            mine.completeExceptionally(e);   // no-op when a final result was kept above
+            throw e;
+        } finally {
+            running.remove(orderId, mine);
+        }
+    }
+
+    public void flush() {
+        table.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    // slot holding this key inside the window, or -1
+    private int find(int block, byte[] key, long now) {
+        for (int i = 0; i < BLOCK; i++) {
+            int slot = block * BLOCK + i;
+            int base = slot * SLOT;
+            byte state = table.get(base + STATE);
+            if (state == EMPTY) continue;
+            if (table.getLong(base + TIME) < now - windowMillis) continue;
+            if (sameKey(base, key)) return slot;
+        }
+        return -1;
+    }
+
+    // a free or expired slot, else the oldest finished one in the block, else -1. A slot of an order that
+    // is still running here is never taken, however old; one left over from a crash is, once expired.
+    private int claim(int block, long now) {
+        int oldest = -1;
+        long oldestTime = Long.MAX_VALUE;
+        for (int i = 0; i < BLOCK; i++) {
+            int slot = block * BLOCK + i;
+            int base = slot * SLOT;
+            byte state = table.get(base + STATE);
+            long time = table.getLong(base + TIME);
+            if (state == EMPTY) return slot;
+            if (state == DONE) {
+                if (time < now - windowMillis) return slot;
+                if (time < oldestTime) {
+                    oldest = slot;
+                    oldestTime = time;
+                }
+            } else if (time < now - windowMillis && !running.containsKey(key(base))) {
+                return slot;
+            }
+        }
+        return oldest;
+    }
+
+    private String key(int base) {
+        byte[] bytes = new byte[table.getShort(base + KEY_LEN)];
+        table.get(base + KEY, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void mark(ReentrantLock lock, int slot, byte state, double total) {
+        lock.lock();
+        try {
+            table.putDouble(slot * SLOT + TOTAL, total);
+            table.put(slot * SLOT + STATE, state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean sameKey(int base, byte[] key) {
+        if (table.getShort(base + KEY_LEN) != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (table.get(base + KEY + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private void write(int slot, byte state, byte[] key, long time, OrderResult result) {
+        int base = slot * SLOT;
+        table.putShort(base + KEY_LEN, (short) key.length);
+        table.put(base + KEY, key, 0, key.length);   // absolute bulk put, Java 16+
+        table.putLong(base + TIME, time);
+        if (result != null) {
+            byte[] reason = result.reason == null ? new byte[0] : result.reason.getBytes(StandardCharsets.UTF_8);
+            int reasonLength = Math.min(reason.length, MAX_REASON);
+            while (reasonLength < reason.length && (reason[reasonLength] & 0xC0) == 0x80) {
+                reasonLength--;   // cut before a whole character, not inside one
+            }
+            table.put(base + STATUS, (byte) result.status.ordinal());
+            table.putDouble(base + TOTAL, result.total);
+            table.put(base + REASON_LEN, (byte) (result.reason == null ? -1 : reasonLength));
+            table.put(base + REASON, reason, 0, reasonLength);
+        }
+        table.put(base + STATE, state);
+    }
+
+    private OrderResult read(int slot, String orderId) {
+        int base = slot * SLOT;
+        byte state = table.get(base + STATE);
+        if (state == IN_PROGRESS || state == CHARGING) {
+            return new OrderResult(orderId, OrderResult.Status.FAILED, state == CHARGING ? table.getDouble(base + TOTAL) : 0,
+                    "Previous attempt did not finish, needs reconciliation");
+        }
+        if (state == PAID) {
+            return OrderResult.paidNotDelivered(orderId, table.getDouble(base + TOTAL));
+        }
+        int reasonLength = table.get(base + REASON_LEN);
+        String reason = null;
+        if (reasonLength >= 0) {
+            byte[] bytes = new byte[reasonLength];
+            table.get(base + REASON, bytes);
+            reason = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new OrderResult(orderId, OrderResult.Status.values()[table.get(base + STATUS)],
+                table.getDouble(base + TOTAL), reason);
+    }
+
+    private static OrderResult join(CompletableFuture<OrderResult> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
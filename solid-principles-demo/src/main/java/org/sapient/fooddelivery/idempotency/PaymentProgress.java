@@ -0,0 +1,36 @@
+package org.sapient.fooddelivery.idempotency;
+
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.service.PaymentSteps;
+
+// How far one execute() got with the payment, which decides what a failure leaves behind.
+class PaymentProgress implements PaymentSteps {
+    private volatile boolean charging;
+    private volatile boolean paid;
+    private volatile double total;
+
+    @Override
+    public void charging(double total) {
+        this.total = total;
+        this.charging = true;
+    }
+
+    @Override
+    public void paid(double total) {
+        this.total = total;
+        this.paid = true;
+    }
+
+    boolean mayHaveCharged() {
+        return charging || paid;
+    }
+
+    // the final result kept for an action that failed after charging
+    OrderResult failure(String orderId) {
+        return paid ? OrderResult.paidNotDelivered(orderId, total) : outcomeUnknown(orderId, total);
+    }
+
+    static OrderResult outcomeUnknown(String orderId, double total) {
+        return new OrderResult(orderId, OrderResult.Status.FAILED, total, "Payment outcome unknown, needs reconciliation");
+    }
+}
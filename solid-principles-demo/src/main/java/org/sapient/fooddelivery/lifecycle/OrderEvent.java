@@ -0,0 +1,18 @@
+package org.sapient.fooddelivery.lifecycle;
+
+// One state transition as stored in the event log.
+public class OrderEvent {
+    public final long sequence;
+    public final long timestamp;
+    public final String orderId;
+    public final OrderState state;
+    public final long amountPaise;
+
+    public OrderEvent(long sequence, long timestamp, String orderId, OrderState state, long amountPaise) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.state = state;
+        this.amountPaise = amountPaise;
+    }
+}
@@ -0,0 +1,196 @@
+package org.sapient.fooddelivery.lifecycle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+// ===============================
+//  EVENT SOURCING - the event log is the truth, the map of current states is rebuilt from it.
+//  Every snapshotInterval events the whole map is written to a snapshot file and the log segments it
+//  covers are deleted, so a restart reads one snapshot plus at most about snapshotInterval events,
+//  however many orders came before. NOTIFIED orders are left out of the snapshot and forgotten then, and so
+//  are FAILED ones older than the retry window, so the snapshot only grows with the orders still in flight
+//  and the recent failures.
+//  Retries: RECEIVED after FAILED (within the retry window) starts attempt n + 1. A NOTIFIED order, or one
+//  that failed longer ago, counts as unknown: RECEIVED starts it again at attempt 1. Because record() treats
+//  these exactly as the snapshot does, whether a snapshot was taken in between never changes the outcome.
+// ===============================
+public class OrderLifecycle implements AutoCloseable {
+    private static final Duration DEFAULT_RETRY_WINDOW = Duration.ofHours(24);
+
+    private final Path dir;
+    private final SegmentedEventLog log;
+    private final int snapshotInterval;
+    private final long retryWindowMillis;
+    private final LongSupplier clock;
+    private final Map<String, Tracked> orders = new ConcurrentHashMap<>();
+    private long lastSnapshot;
+
+    public OrderLifecycle(Path dir, int segmentBytes, int snapshotInterval) throws IOException {
+        this(dir, segmentBytes, snapshotInterval, DEFAULT_RETRY_WINDOW);
+    }
+
+    public OrderLifecycle(Path dir, int segmentBytes, int snapshotInterval, Duration retryWindow) throws IOException {
+        this(dir, segmentBytes, snapshotInterval, retryWindow, System::currentTimeMillis);
+    }
+
+    OrderLifecycle(Path dir, int segmentBytes, int snapshotInterval, Duration retryWindow, LongSupplier clock) throws IOException {
+        this.dir = dir;
+        this.snapshotInterval = snapshotInterval;
+        this.retryWindowMillis = retryWindow.toMillis();
+        this.clock = clock;
+        Files.createDirectories(dir);
+        this.log = new SegmentedEventLog(dir.resolve("log"), segmentBytes);
+        recover();
+    }
+
+    // Appends the transition and applies it; throws if the order cannot move there from where it is.
+    public synchronized void record(String orderId, OrderState state, long amountPaise) {
+        long now = clock.getAsLong();
+        Tracked current = known(orders.get(orderId), now);
+        OrderState from = current == null ? null : current.state;
+        boolean allowed = from == null ? state == OrderState.RECEIVED || state == OrderState.FAILED
+                : from == OrderState.FAILED ? state == OrderState.RECEIVED   // a retry
+                : from.canMoveTo(state);
+        if (!allowed) {
+            throw new IllegalStateException("Order " + orderId + " cannot go from " + from + " to " + state);
+        }
+        long sequence = log.append(orderId, state, amountPaise, now);
+        apply(orderId, state, amountPaise, now);
+        if (sequence - lastSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    public OrderState state(String orderId) {
+        Tracked tracked = orders.get(orderId);
+        return tracked == null ? null : tracked.state;
+    }
+
+    // 1 for the first try, n + 1 for each RECEIVED after a FAILED; 0 for an unknown order
+    public int attempt(String orderId) {
+        Tracked tracked = orders.get(orderId);
+        return tracked == null ? 0 : tracked.attempt;
+    }
+
+    public long amountPaise(String orderId) {
+        Tracked tracked = orders.get(orderId);
+        return tracked == null ? 0 : tracked.amountPaise;
+    }
+
+    // e.g. ordersIn(PAID) after a restart: charged but never dispatched
+    public List<String> ordersIn(OrderState state) {
+        return orders.entrySet().stream()
+                .filter(e -> e.getValue().state == state)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized void snapshot() {
+        long sequence = log.lastSequence();
+        Path tmp = dir.resolve("snapshot.tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                long now = clock.getAsLong();
+                orders.values().removeIf(t -> known(t, now) == null);
+                out.writeLong(sequence);
+                out.writeInt(orders.size());
+                for (Map.Entry<String, Tracked> e : orders.entrySet()) {
+                    Tracked t = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeByte(t.state.ordinal());
+                    out.writeLong(t.amountPaise);
+                    out.writeInt(t.attempt);
+                    out.writeLong(t.since);
+                }
+            }
+            log.sync();   // the snapshot must never be ahead of the log on disk
+            Path snapshot = dir.resolve(String.format("snapshot-%020d.bin", sequence));
+            Files.move(tmp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            for (Path old : snapshots()) {
+                if (!old.equals(snapshot)) Files.delete(old);
+            }
+            log.deleteBefore(sequence + 1);
+            lastSnapshot = sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int trackedOrders() {
+        return orders.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void recover() throws IOException {
+        List<Path> snapshots = snapshots();
+        if (!snapshots.isEmpty()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshots.get(snapshots.size() - 1))))) {
+                lastSnapshot = in.readLong();
+                for (int i = in.readInt(); i > 0; i--) {
+                    String id = in.readUTF();
+                    OrderState state = OrderState.values()[in.readByte()];
+                    orders.put(id, new Tracked(state, in.readLong(), in.readInt(), in.readLong()));
+                }
+            }
+        }
+        log.replay(lastSnapshot + 1, e -> apply(e.orderId, e.state, e.amountPaise, e.timestamp));
+    }
+
+    // Same rules when recording and when replaying, with the event's own time.
+    private void apply(String orderId, OrderState state, long amountPaise, long time) {
+        Tracked previous = known(orders.get(orderId), time);
+        int attempt = previous == null ? 1
+                : previous.state == OrderState.FAILED && state == OrderState.RECEIVED ? previous.attempt + 1
+                : previous.attempt;
+        long amount = amountPaise != 0 || previous == null || state == OrderState.RECEIVED ? amountPaise : previous.amountPaise;
+        orders.put(orderId, new Tracked(state, amount, attempt, time));
+    }
+
+    // null when the order counts as unknown: done, or failed longer than the retry window ago
+    private Tracked known(Tracked tracked, long now) {
+        if (tracked == null || tracked.state == OrderState.NOTIFIED) {
+            return null;
+        }
+        if (tracked.state == OrderState.FAILED && now - tracked.since > retryWindowMillis) {
+            return null;
+        }
+        return tracked;
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().matches("snapshot-\\d+\\.bin")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static class Tracked {
+        final OrderState state;
+        final long amountPaise;
+        final int attempt;
+        final long since;   // when it got into this state
+
+        Tracked(OrderState state, long amountPaise, int attempt, long since) {
+            this.state = state;
+            this.amountPaise = amountPaise;
+            this.attempt = attempt;
+            this.since = since;
+        }
+    }
+}
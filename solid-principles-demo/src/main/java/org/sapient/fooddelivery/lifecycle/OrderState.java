@@ -0,0 +1,21 @@
+package org.sapient.fooddelivery.lifecycle;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Where an order is in OrderProcessor's flow. FAILED can be reached from any non-final state.
+public enum OrderState {
+    RECEIVED, VALIDATED, PAID, DISPATCHED, NOTIFIED, FAILED;
+
+    public boolean canMoveTo(OrderState next) {
+        if (isFinal()) return false;
+        if (next == FAILED) return true;
+        return next.ordinal() == ordinal() + 1;
+    }
+
+    public boolean isFinal() {
+        return FINAL.contains(this);
+    }
+
+    private static final Set<OrderState> FINAL = EnumSet.of(NOTIFIED, FAILED);
+}
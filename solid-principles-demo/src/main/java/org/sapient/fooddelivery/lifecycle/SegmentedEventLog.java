@@ -0,0 +1,169 @@
+package org.sapient.fooddelivery.lifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+// ===============================
+//  Append-only event log in fixed size memory-mapped segment files, named after the first sequence
+//  number they hold (events-00000000000000000001.seg). An append is a few puts into the mapped
+//  segment; a full segment is closed and a new one mapped.
+//  Record: [int length][int crc32 of body][body: long seq, long time, long amount, byte state,
+//  short idLength, id bytes]. A zero length ends a segment; a bad crc (a write torn by a crash)
+//  ends the log, and the next append overwrites it.
+// ===============================
+public class SegmentedEventLog implements AutoCloseable {
+    private static final int HEADER = 8;
+    private static final int FIXED_BODY = 8 + 8 + 8 + 1 + 2;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();   // first sequence -> file
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer current;
+    private long nextSequence = 1;
+
+    public SegmentedEventLog(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(f -> f.getFileName().toString().matches("events-\\d+\\.seg"))
+                    .forEach(f -> segments.put(firstSequence(f), f));
+        }
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            // find the end of the last segment: the position after its last intact record
+            long first = segments.lastKey();
+            mapSegment(segments.get(first));
+            nextSequence = first;
+            int position = 0;
+            OrderEvent event;
+            while ((event = readAt(current, position)) != null) {
+                nextSequence = event.sequence + 1;
+                position += HEADER + current.getInt(position);
+            }
+            current.position(position);   // an empty last segment still starts at its own first sequence
+        }
+    }
+
+    public synchronized long append(String orderId, OrderState state, long amountPaise, long timestamp) {
+        byte[] id = orderId.getBytes(StandardCharsets.UTF_8);
+        int body = FIXED_BODY + id.length;
+        if (current.remaining() < HEADER + body + HEADER) {   // keep room for the zero length end marker
+            openSegment(nextSequence);
+        }
+        long sequence = nextSequence++;
+        int start = current.position();
+        current.position(start + HEADER);
+        current.putLong(sequence).putLong(timestamp).putLong(amountPaise)
+                .put((byte) state.ordinal()).putShort((short) id.length).put(id);
+        crc.reset();
+        crc.update(current.slice(start + HEADER, body));
+        current.putInt(start + 4, (int) crc.getValue());
+        current.putInt(current.position(), 0);            // end marker, overwritten by the next append
+        current.putInt(start, body);                       // length last: the record only counts once complete
+        return sequence;
+    }
+
+    // Calls the consumer for every event with sequence >= from, in order.
+    public synchronized void replay(long from, Consumer<OrderEvent> consumer) {
+        Long start = segments.floorKey(from);
+        for (Path file : new ArrayList<>(segments.tailMap(start == null ? 0 : start).values())) {
+            MappedByteBuffer segment = file.equals(segments.lastEntry().getValue()) ? current : map(file);
+            int position = 0;
+            OrderEvent event;
+            while ((event = readAt(segment, position)) != null) {
+                if (event.sequence >= from) consumer.accept(event);
+                position += HEADER + segment.getInt(position);
+            }
+        }
+    }
+
+    // Deletes segments that only hold events below the given sequence (already in a snapshot).
+    public synchronized void deleteBefore(long sequence) throws IOException {
+        List<Long> firsts = new ArrayList<>(segments.keySet());
+        for (int i = 0; i + 1 < firsts.size() && firsts.get(i + 1) <= sequence; i++) {
+            Files.deleteIfExists(segments.remove(firsts.get(i)));
+        }
+    }
+
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized void sync() {
+        current.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        current.force();
+        channel.close();
+    }
+
+    private OrderEvent readAt(MappedByteBuffer segment, int position) {
+        if (position + HEADER > segment.capacity()) return null;
+        int length = segment.getInt(position);
+        if (length < FIXED_BODY || position + HEADER + length > segment.capacity()) return null;
+        crc.reset();
+        crc.update(segment.slice(position + HEADER, length));
+        if ((int) crc.getValue() != segment.getInt(position + 4)) return null;
+        int p = position + HEADER;
+        long sequence = segment.getLong(p);
+        long time = segment.getLong(p + 8);
+        long amount = segment.getLong(p + 16);
+        OrderState state = OrderState.values()[segment.get(p + 24)];
+        byte[] id = new byte[segment.getShort(p + 25)];
+        segment.get(p + 27, id);
+        return new OrderEvent(sequence, time, new String(id, StandardCharsets.UTF_8), state, amount);
+    }
+
+    private void openSegment(long firstSequence) {
+        Path file = dir.resolve(String.format("events-%020d.seg", firstSequence));
+        segments.put(firstSequence, file);
+        mapSegment(file);
+    }
+
+    private void mapSegment(Path file) {
+        try {
+            if (channel != null) {
+                current.force();
+                channel.close();
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer map(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("events-".length(), name.length() - ".seg".length()));
+    }
+}
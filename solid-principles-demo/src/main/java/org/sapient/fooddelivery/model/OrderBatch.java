@@ -0,0 +1,70 @@
+package org.sapient.fooddelivery.model;
+
+import java.util.Arrays;
+
+// Many orders in flat primitive columns for bulk pricing: the items of order i are
+// qty[itemStart[i] .. itemStart[i + 1]) and priceInPaise[...] / itemName[...] at the same positions.
+// Money is in paise (long), so totals are exact. clear() keeps the arrays, so a batch
+// can be refilled for the next run without allocating.
+public class OrderBatch {
+    private int[] itemStart;
+    private int[] qty;
+    private long[] priceInPaise;
+    private String[] itemName;   // null for items added without one; only used by item discount rules
+    private int orders;
+    private int items;
+
+    public OrderBatch(int orderCapacity, int itemCapacity) {
+        this.itemStart = new int[orderCapacity + 1];
+        this.qty = new int[itemCapacity];
+        this.priceInPaise = new long[itemCapacity];
+        this.itemName = new String[itemCapacity];
+    }
+
+    // Returns the index of the new order.
+    public int add(Order order) {
+        startOrder();
+        for (OrderItem item : order.items) {
+            addItem(item.name, item.qty, Math.round(item.price * 100));
+        }
+        return orders - 1;
+    }
+
+    // Building an order column by column, without Order/OrderItem objects: startOrder, then addItem per item.
+    public void startOrder() {
+        if (orders + 1 == itemStart.length) {
+            itemStart = Arrays.copyOf(itemStart, itemStart.length * 2);
+        }
+        orders++;
+        itemStart[orders] = items;
+    }
+
+    public void addItem(int quantity, long pricePaise) {
+        addItem(null, quantity, pricePaise);
+    }
+
+    public void addItem(String name, int quantity, long pricePaise) {
+        if (items == qty.length) {
+            qty = Arrays.copyOf(qty, Math.max(16, items * 2));
+            priceInPaise = Arrays.copyOf(priceInPaise, qty.length);
+            itemName = Arrays.copyOf(itemName, qty.length);
+        }
+        qty[items] = quantity;
+        priceInPaise[items] = pricePaise;
+        itemName[items] = name;
+        items++;
+        itemStart[orders] = items;
+    }
+
+    public void clear() {
+        orders = 0;
+        items = 0;
+    }
+
+    public int size() { return orders; }
+    public int firstItem(int order) { return itemStart[order]; }
+    public int endItem(int order) { return itemStart[order + 1]; }
+    public int qty(int item) { return qty[item]; }
+    public long priceInPaise(int item) { return priceInPaise[item]; }
+    public String itemName(int item) { return itemName[item]; }
+}
@@ -0,0 +1,36 @@
+package org.sapient.fooddelivery.model;
+
+// Outcome of processing one order, so callers (and the batch pipeline) can tell what happened.
+public class OrderResult {
+    // PAID_NOT_DELIVERED: charged, but the order did not go out; needs a refund or a redelivery
+    public enum Status { COMPLETED, PAYMENT_DECLINED, REJECTED, FAILED, PAID_NOT_DELIVERED }
+
+    public final String orderId;
+    public final Status status;
+    public final double total;
+    public final String reason;
+
+    public OrderResult(String orderId, Status status, double total, String reason) {
+        this.orderId = orderId;
+        this.status = status;
+        this.total = total;
+        this.reason = reason;
+    }
+
+    public static OrderResult completed(String orderId, double total) {
+        return new OrderResult(orderId, Status.COMPLETED, total, null);
+    }
+
+    public static OrderResult declined(String orderId, double total) {
+        return new OrderResult(orderId, Status.PAYMENT_DECLINED, total, "Payment declined");
+    }
+
+    public static OrderResult paidNotDelivered(String orderId, double total) {
+        return new OrderResult(orderId, Status.PAID_NOT_DELIVERED, total, "Paid, but the order did not complete");
+    }
+
+    @Override
+    public String toString() {
+        return orderId + " " + status + " " + total + (reason == null ? "" : " (" + reason + ")");
+    }
+}
@@ -0,0 +1,19 @@
+package org.sapient.fooddelivery.notifier;
+
+import java.util.List;
+
+// Provider-level API that takes many messages of one channel per call.
+// Throwing means none of the batch is known to be delivered; the dispatcher retries the whole batch.
+public interface BulkNotificationProvider {
+    void send(Notification.Channel channel, List<Notification> batch);
+
+    // For providers without a bulk API: the existing one-at-a-time notifiers, called in a loop.
+    static BulkNotificationProvider of(EmailNotifier email, SmsNotifier sms) {
+        return (channel, batch) -> {
+            for (Notification n : batch) {
+                if (channel == Notification.Channel.EMAIL) email.sendEmail(n.to, n.message);
+                else sms.sendSms(n.to, n.message);
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package org.sapient.fooddelivery.notifier;
+
+// One queued email or SMS inside NotificationDispatcher.
+public class Notification {
+    public enum Channel { EMAIL, SMS }
+
+    public final Channel channel;
+    public final String to;
+    public final String message;
+    int attempts;
+
+    public Notification(Channel channel, String to, String message) {
+        this.channel = channel;
+        this.to = to;
+        this.message = message;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,194 @@
+package org.sapient.fooddelivery.notifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+// ===============================
+//  ISP - the dispatcher is both an EmailNotifier and an SmsNotifier, callers keep depending on
+//  the one interface they use.
+//  sendEmail/sendSms only put the message in a ring buffer and return; one background thread
+//  drains it in batches to the provider's bulk API. The same message to the same recipient within
+//  the coalescing window is sent once. Failed batches are retried with backoff off the order path,
+//  and messages that keep failing (or find the buffer full, or come after close) end up in the
+//  dead-letter queue.
+// ===============================
+public class NotificationDispatcher implements EmailNotifier, SmsNotifier, AutoCloseable {
+    private final BulkNotificationProvider provider;
+    private final RingBuffer<Notification> buffer;
+    private final int batchSize;
+    private final long coalesceWindowNanos;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+
+    private final Map<String, Long> recentlySent = new ConcurrentHashMap<>();   // coalescing key -> enqueue time
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final BlockingQueue<Notification> deadLetters;
+    private final Thread drainer;
+    private volatile boolean running = true;
+    private final AtomicInteger producers = new AtomicInteger();   // sends between the running check and the offer
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public NotificationDispatcher(BulkNotificationProvider provider, int capacity, int batchSize,
+                                  long coalesceWindowMillis, int maxAttempts, long retryBackoffMillis) {
+        this.provider = provider;
+        this.buffer = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis);
+        this.deadLetters = new LinkedBlockingQueue<>(capacity);
+        this.drainer = new Thread(this::drainLoop, "notification-dispatcher");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    @Override
+    public void sendEmail(String to, String message) {
+        enqueue(new Notification(Notification.Channel.EMAIL, to, message));
+    }
+
+    @Override
+    public void sendSms(String to, String message) {
+        enqueue(new Notification(Notification.Channel.SMS, to, message));
+    }
+
+    // The coalescing check, the enqueue and the record happen in one compute, so two threads sending the
+    // same message cannot both pass, and a message the full buffer turned away is not remembered as sent.
+    private void enqueue(Notification n) {
+        producers.incrementAndGet();
+        try {
+            if (!running) {
+                deadLetter(n);   // closed: nobody would drain it any more
+                return;
+            }
+            long now = System.nanoTime();
+            String key = n.channel + "|" + n.to + "|" + n.message;
+            recentlySent.compute(key, (k, previous) -> {
+                if (previous != null && now - previous < coalesceWindowNanos) {
+                    coalesced.incrementAndGet();
+                    return previous;
+                }
+                if (!buffer.offer(n)) {
+                    deadLetter(n);
+                    return null;
+                }
+                return now;
+            });
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        long lastCleanup = System.nanoTime();
+        while (running || producers.get() > 0 || buffer.size() > 0) {
+            Retry due;
+            while (batch.size() < batchSize && (due = retries.poll()) != null) {
+                batch.add(due.notification);
+            }
+            buffer.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            } else {
+                dispatch(batch);
+                batch.clear();
+            }
+            long now = System.nanoTime();
+            if (now - lastCleanup > coalesceWindowNanos) {
+                recentlySent.values().removeIf(t -> now - t >= coalesceWindowNanos);
+                lastCleanup = now;
+            }
+        }
+    }
+
+    private void dispatch(List<Notification> batch) {
+        List<Notification> email = new ArrayList<>();
+        List<Notification> sms = new ArrayList<>();
+        batch.forEach(n -> (n.channel == Notification.Channel.EMAIL ? email : sms).add(n));
+        send(Notification.Channel.EMAIL, email);
+        send(Notification.Channel.SMS, sms);
+    }
+
+    private void send(Notification.Channel channel, List<Notification> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            provider.send(channel, batch);
+            sent.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            for (Notification n : batch) {
+                if (++n.attempts >= maxAttempts) {
+                    deadLetter(n);
+                } else {
+                    retried.incrementAndGet();
+                    retries.add(new Retry(n, System.nanoTime() + (retryBackoffNanos << (n.attempts - 1))));
+                }
+            }
+        }
+    }
+
+    private void deadLetter(Notification n) {
+        if (!deadLetters.offer(n)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // Messages that could not be delivered, for an operator or a replay job to pick up.
+    public BlockingQueue<Notification> getDeadLetters() {
+        return deadLetters;
+    }
+
+    public long getSent() { return sent.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getRetried() { return retried.get(); }
+    public long getDropped() { return dropped.get(); }
+
+    // Sends what is already buffered; pending retries are moved to the dead-letter queue, and so is
+    // anything sent after close.
+    @Override
+    public void close() {
+        running = false;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        retries.forEach(r -> deadLetter(r.notification));
+        retries.clear();
+    }
+
+    private static class Retry implements Delayed {
+        final Notification notification;
+        final long dueNanos;
+
+        Retry(Notification notification, long dueNanos) {
+            this.notification = notification;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Retry) other).dueNanos);
+        }
+    }
+}
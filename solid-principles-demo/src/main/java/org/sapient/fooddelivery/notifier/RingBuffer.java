@@ -0,0 +1,57 @@
+package org.sapient.fooddelivery.notifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free queue for many producers and one consumer. Producers claim a slot by CAS on the
+// tail and then publish into it; the consumer treats a claimed but still empty slot as "nothing yet".
+class RingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;   // written by the consumer only
+
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;   // next power of two
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // false when full, never blocks
+    boolean offer(T item) {
+        while (true) {
+            long t = tail.get();
+            if (t - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.set((int) t & mask, item);
+                return true;
+            }
+        }
+    }
+
+    // consumer only: moves up to max items into the list, returns how many
+    int drainTo(List<T> into, int max) {
+        long h = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) h & mask;
+            T item = slots.get(index);
+            if (item == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            into.add(item);
+            h++;
+            count++;
+        }
+        head = h;
+        return count;
+    }
+
+    int size() {
+        return (int) (tail.get() - head);
+    }
+}
@@ -0,0 +1,29 @@
+package org.sapient.fooddelivery.payment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// Non-blocking payment: the future completes with the gateway's answer (true = paid).
+// Still a PaymentMethod, so it can be handed to OrderProcessor as is; pay() then just waits for the answer.
+public interface AsyncPaymentMethod extends PaymentMethod {
+    CompletableFuture<Boolean> payAsync(double amount);
+
+    @Override
+    default boolean pay(double amount) {
+        try {
+            return payAsync(amount).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    // Existing blocking implementations (UpiPayment, CreditCardPayment, ...) run on the given executor.
+    static AsyncPaymentMethod adapt(PaymentMethod method, Executor executor) {
+        if (method instanceof AsyncPaymentMethod) {
+            return (AsyncPaymentMethod) method;
+        }
+        return amount -> CompletableFuture.supplyAsync(() -> method.pay(amount), executor);
+    }
+}
@@ -0,0 +1,35 @@
+package org.sapient.fooddelivery.payment;
+
+import java.time.Duration;
+
+// Per-provider limits used by ResilientPaymentMethod.
+public class PaymentPolicy {
+    public final Duration timeout;          // per attempt, and the longest a call waits for a bulkhead slot
+    public final int maxConcurrent;         // bulkhead: calls in flight to this provider
+    public final int maxQueued;             // calls waiting for a bulkhead slot; beyond that they are rejected
+    public final Duration hedgeDelay;       // null = no hedging; see ResilientPaymentMethod before turning it on
+    public final int maxRetries;            // extra attempts after a RetryablePaymentException
+    public final int failureThreshold;      // consecutive failures that open the circuit
+    public final Duration openDuration;     // how long an open circuit rejects calls before one trial call
+
+    public PaymentPolicy(Duration timeout, int maxConcurrent, Duration hedgeDelay,
+                         int failureThreshold, Duration openDuration) {
+        this(timeout, maxConcurrent, 0, hedgeDelay, 0, failureThreshold, openDuration);
+    }
+
+    public PaymentPolicy(Duration timeout, int maxConcurrent, int maxQueued, Duration hedgeDelay,
+                         int maxRetries, int failureThreshold, Duration openDuration) {
+        this.timeout = timeout;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.hedgeDelay = hedgeDelay;
+        this.maxRetries = maxRetries;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    // The queue covers OrderPipeline's default of 1024 orders in flight.
+    public static PaymentPolicy defaults() {
+        return new PaymentPolicy(Duration.ofSeconds(2), 64, 1024, null, 2, 5, Duration.ofSeconds(10));
+    }
+}
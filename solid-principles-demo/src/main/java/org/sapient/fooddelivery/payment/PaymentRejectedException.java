@@ -0,0 +1,8 @@
+package org.sapient.fooddelivery.payment;
+
+// The call never reached the gateway: no bulkhead slot was free in time or the circuit is open.
+public class PaymentRejectedException extends RuntimeException {
+    public PaymentRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,252 @@
+package org.sapient.fooddelivery.payment;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+// ===============================
+//  DECORATOR over any AsyncPaymentMethod (OCP: providers don't change)
+//  - timeout per attempt
+//  - bulkhead: at most maxConcurrent calls in flight at the provider. A slot is only freed when the provider
+//    answers, also after our timeout gave up on it, so a hanging gateway cannot be flooded. Up to maxQueued
+//    calls wait (without a thread) for a slot, at most timeout long; more are rejected at once.
+//  - retry: a RetryablePaymentException (turned away before charging) is sent again up to maxRetries times
+//  - circuit breaker: after failureThreshold failures in a row calls are rejected for openDuration,
+//    then a single trial call decides whether to close it again. Every open/close starts a new generation;
+//    answers to calls admitted in an older generation no longer move the circuit.
+//  - hedging: if the first attempt has not answered after hedgeDelay a second one is sent and the first
+//    answer wins. pay(double) carries no payment id, so only enable this for a provider that
+//    deduplicates retries on its side, otherwise a slow first attempt plus the hedge can charge twice.
+//    A hedge never waits for a slot: under load it is skipped.
+//  A decline (false) is an answer, not a failure; only exceptions and timeouts count against the circuit.
+//  Timeouts are not retried, the provider may still charge.
+// ===============================
+public class ResilientPaymentMethod implements AsyncPaymentMethod {
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "payment-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final String name;
+    private final AsyncPaymentMethod delegate;
+    private final PaymentPolicy policy;
+    private final Semaphore bulkhead;
+    private final Queue<Waiter> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger draining = new AtomicInteger();
+
+    // circuit state, guarded by this
+    private int consecutiveFailures;
+    private boolean trialInFlight;
+    private long generation;
+    private volatile long openUntilNanos;   // 0 = closed
+
+    public ResilientPaymentMethod(String name, AsyncPaymentMethod delegate, PaymentPolicy policy) {
+        this.name = name;
+        this.delegate = delegate;
+        this.policy = policy;
+        this.bulkhead = new Semaphore(policy.maxConcurrent);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> payAsync(double amount) {
+        Ticket ticket;
+        try {
+            ticket = admit();
+        } catch (PaymentRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Payment payment = new Payment(amount);
+        acquire(payment, true);
+        if (policy.hedgeDelay != null && !ticket.trial) {
+            TIMER.schedule(() -> {
+                if (!payment.result.isDone()) {
+                    payment.pending.incrementAndGet();
+                    acquire(payment, false);
+                }
+            }, policy.hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return payment.result.whenComplete((paid, e) -> {
+            if (e == null) onSuccess(ticket);
+            else if (e instanceof PaymentRejectedException) onRejected(ticket);  // not the gateway's fault
+            else onFailure(ticket);
+        });
+    }
+
+    public boolean isOpen() {
+        return openUntilNanos != 0;
+    }
+
+    // Starts an attempt now if a slot is free, otherwise queues it (mayWait) or fails it.
+    private void acquire(Payment payment, boolean mayWait) {
+        if (bulkhead.tryAcquire()) {
+            call(payment);
+        } else if (!mayWait || !enqueue(payment)) {
+            payment.attemptFailed(new PaymentRejectedException(name + ": too many payments in flight"));
+        }
+    }
+
+    private boolean enqueue(Payment payment) {
+        if (queued.incrementAndGet() > policy.maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        Waiter waiter = new Waiter(payment);
+        waiter.expiry = TIMER.schedule(() -> {
+            if (waiter.claim()) {
+                waiting.remove(waiter);
+                payment.attemptFailed(new PaymentRejectedException(name + ": no free slot within " + policy.timeout));
+            }
+        }, policy.timeout.toNanos(), TimeUnit.NANOSECONDS);
+        waiting.offer(waiter);
+        drainWaiting();  // a slot may have been freed while we were queueing
+        return true;
+    }
+
+    // Hands free slots to waiting calls. Only one thread drains at a time, the others just leave a note,
+    // so a provider answering synchronously cannot recurse through the whole queue.
+    private void drainWaiting() {
+        if (draining.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (!waiting.isEmpty() && bulkhead.tryAcquire()) {
+                Waiter next = waiting.poll();
+                if (next != null && next.claim()) {
+                    next.expiry.cancel(false);
+                    call(next.payment);
+                } else {
+                    bulkhead.release();
+                }
+            }
+            missed = draining.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    // Holds a bulkhead slot until the provider answers.
+    private void call(Payment payment) {
+        CompletableFuture<Boolean> call;
+        try {
+            call = delegate.payAsync(payment.amount);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((paid, e) -> {
+            bulkhead.release();
+            drainWaiting();
+        });
+        call.copy().orTimeout(policy.timeout.toNanos(), TimeUnit.NANOSECONDS).whenComplete((paid, e) -> {
+            if (e == null) {
+                payment.result.complete(paid);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RetryablePaymentException && !payment.result.isDone()
+                    && payment.retriesLeft.getAndDecrement() > 0) {
+                acquire(payment, true);
+            } else {
+                payment.attemptFailed(cause);
+            }
+        });
+    }
+
+    private synchronized Ticket admit() {
+        if (openUntilNanos == 0) {
+            return new Ticket(generation, false);
+        }
+        if (System.nanoTime() - openUntilNanos < 0 || trialInFlight) {
+            throw new PaymentRejectedException(name + ": circuit open");
+        }
+        trialInFlight = true;
+        return new Ticket(generation, true);
+    }
+
+    private synchronized void onSuccess(Ticket ticket) {
+        if (ticket.generation != generation) {
+            return;  // admitted before the circuit last opened or closed
+        }
+        consecutiveFailures = 0;
+        if (ticket.trial) {
+            trialInFlight = false;
+            openUntilNanos = 0;
+            generation++;
+        }
+    }
+
+    private synchronized void onFailure(Ticket ticket) {
+        if (ticket.generation != generation) {
+            return;
+        }
+        if (ticket.trial || ++consecutiveFailures >= policy.failureThreshold) {
+            trialInFlight = false;
+            consecutiveFailures = 0;
+            openUntilNanos = System.nanoTime() + policy.openDuration.toNanos();
+            generation++;
+        }
+    }
+
+    private synchronized void onRejected(Ticket ticket) {
+        if (ticket.trial && ticket.generation == generation) {
+            trialInFlight = false;
+        }
+    }
+
+    private static final class Ticket {
+        final long generation;
+        final boolean trial;
+
+        Ticket(long generation, boolean trial) {
+            this.generation = generation;
+            this.trial = trial;
+        }
+    }
+
+    // One payAsync call: its attempts (first, hedge, retries) race to complete the result.
+    private final class Payment {
+        final double amount;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        final AtomicInteger retriesLeft = new AtomicInteger(policy.maxRetries);
+
+        Payment(double amount) {
+            this.amount = amount;
+        }
+
+        // the last attempt to fail fails the payment
+        void attemptFailed(Throwable e) {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class Waiter {
+        final Payment payment;
+        final AtomicBoolean claimed = new AtomicBoolean();
+        ScheduledFuture<?> expiry;   // set before the waiter is queued
+
+        Waiter(Payment payment) {
+            this.payment = payment;
+        }
+
+        // either the drain or the expiry gets it, never both
+        boolean claim() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            queued.decrementAndGet();
+            return true;
+        }
+    }
+}
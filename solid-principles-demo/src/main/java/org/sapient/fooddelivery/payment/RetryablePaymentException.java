@@ -0,0 +1,9 @@
+package org.sapient.fooddelivery.payment;
+
+// The provider turned the call away before charging (overloaded, connection refused, ...), so sending it
+// again cannot charge twice. ResilientPaymentMethod retries these up to PaymentPolicy.maxRetries times.
+public class RetryablePaymentException extends RuntimeException {
+    public RetryablePaymentException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package org.sapient.fooddelivery.payment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Local stand-in for a payment provider, for benchmarks and tests: answers after a simulated latency
+// without holding a thread. degrade() makes a share of the calls slow or turned away, like a sick gateway.
+public class SimulatedPaymentGateway implements AsyncPaymentMethod {
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "simulated-gateway");
+        t.setDaemon(true);
+        return t;
+    });
+    private final long latencyMicros;
+    private volatile double slowShare;
+    private volatile long slowLatencyMicros;
+    private volatile double failureShare;
+
+    public SimulatedPaymentGateway(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+    }
+
+    public void degrade(double slowShare, long slowLatencyMicros, double failureShare) {
+        this.slowShare = slowShare;
+        this.slowLatencyMicros = slowLatencyMicros;
+        this.failureShare = failureShare;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> payAsync(double amount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = random.nextDouble() < slowShare ? slowLatencyMicros : latencyMicros;
+        boolean fail = random.nextDouble() < failureShare;
+        CompletableFuture<Boolean> answer = new CompletableFuture<>();
+        clock.schedule(() -> {
+            if (fail) answer.completeExceptionally(new RetryablePaymentException("gateway unavailable"));
+            else answer.complete(true);
+        }, delay, TimeUnit.MICROSECONDS);
+        return answer;
+    }
+}
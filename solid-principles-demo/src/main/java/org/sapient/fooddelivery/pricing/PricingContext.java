@@ -0,0 +1,17 @@
+package org.sapient.fooddelivery.pricing;
+
+// Where and when an order is priced, and which coupon (if any) the customer entered.
+public class PricingContext {
+    public final String jurisdiction;
+    public final String couponCode;   // null = none
+    public final int hourOfDay;
+
+    public PricingContext(String jurisdiction, String couponCode, int hourOfDay) {
+        this.jurisdiction = jurisdiction;
+        this.couponCode = couponCode;
+        if (hourOfDay < 0 || hourOfDay > 23) {
+            throw new IllegalArgumentException("Hour of day must be 0-23, got " + hourOfDay);
+        }
+        this.hourOfDay = hourOfDay;
+    }
+}
@@ -0,0 +1,66 @@
+package org.sapient.fooddelivery.pricing;
+
+import org.sapient.fooddelivery.model.Order;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+// ===============================
+//  OCP - new prices are data (a RuleSet), not code: publish() compiles the rules once and swaps
+//  the plan in atomically. Pricing threads read the current plan with one volatile load and
+//  never wait; an order already being priced finishes on the plan it started with.
+//  The last KEPT_VERSIONS compiled plans are kept, so rolling back to one of them costs nothing.
+// ===============================
+public class PricingEngine {
+    private static final int KEPT_VERSIONS = 16;
+
+    private final AtomicReference<PricingPlan> current;
+    private final Map<Long, PricingPlan> plans = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PricingPlan> eldest) {
+            return size() > KEPT_VERSIONS;
+        }
+    });
+
+    public PricingEngine(RuleSet initial) {
+        this.current = new AtomicReference<>(compile(initial));
+    }
+
+    public PricingPlan publish(RuleSet ruleSet) {
+        PricingPlan plan = compile(ruleSet);
+        current.set(plan);
+        return plan;
+    }
+
+    // Goes back to one of the recently published versions.
+    public void activate(long version) {
+        PricingPlan plan = plans.get(version);
+        if (plan == null) {
+            throw new IllegalArgumentException("Rule set version " + version + " is not among the recent versions");
+        }
+        current.set(plan);
+    }
+
+    public long priceInPaise(Order order, PricingContext context) {
+        return current.get().priceInPaise(order, context);
+    }
+
+    public PricingPlan currentPlan() {
+        return current.get();
+    }
+
+    // Publishing a recent version again reuses its plan; the same version with other rules is a mistake.
+    private PricingPlan compile(RuleSet ruleSet) {
+        synchronized (plans) {
+            PricingPlan plan = plans.get(ruleSet.version);
+            if (plan == null) {
+                plan = new PricingPlan(ruleSet);
+                plans.put(ruleSet.version, plan);
+            } else if (!plan.rules.equals(ruleSet.rules)) {
+                throw new IllegalArgumentException("Rule set version " + ruleSet.version + " was already published with other rules");
+            }
+            return plan;
+        }
+    }
+}
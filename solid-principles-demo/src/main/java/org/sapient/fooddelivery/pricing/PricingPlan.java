@@ -0,0 +1,90 @@
+package org.sapient.fooddelivery.pricing;
+
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderBatch;
+import org.sapient.fooddelivery.model.OrderItem;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A RuleSet compiled into lookup tables, so pricing an order is a few map lookups and integer math:
+// taxes summed per jurisdiction, surges folded into one rate per hour, discounts keyed by item name.
+// Immutable, so any number of threads can price with it while a newer plan is being published.
+public class PricingPlan {
+    public final long version;
+    final List<PricingRule> rules;   // as published, to tell a repeat publish from a conflicting one
+    private final Map<String, Integer> taxByJurisdiction = new HashMap<>();
+    private final Map<String, PricingRule.Coupon> coupons = new HashMap<>();
+    private final Map<String, Integer> discountByItem = new HashMap<>();
+    private final int[] surgeByHour = new int[24];
+
+    PricingPlan(RuleSet ruleSet) {
+        this.version = ruleSet.version;
+        this.rules = ruleSet.rules;
+        for (PricingRule rule : ruleSet.rules) {
+            if (rule instanceof PricingRule.JurisdictionTax) {
+                PricingRule.JurisdictionTax tax = (PricingRule.JurisdictionTax) rule;
+                taxByJurisdiction.merge(tax.jurisdiction, tax.basisPoints, Integer::sum);
+            } else if (rule instanceof PricingRule.Coupon) {
+                PricingRule.Coupon coupon = (PricingRule.Coupon) rule;
+                coupons.put(coupon.code, coupon);
+            } else if (rule instanceof PricingRule.ItemDiscount) {
+                PricingRule.ItemDiscount discount = (PricingRule.ItemDiscount) rule;
+                discountByItem.merge(discount.itemName, discount.basisPoints, Math::max);   // best discount wins
+            } else if (rule instanceof PricingRule.Surge) {
+                PricingRule.Surge surge = (PricingRule.Surge) rule;
+                int hours = surge.toHour >= surge.fromHour ? surge.toHour - surge.fromHour : surge.toHour + 24 - surge.fromHour;
+                for (int i = 0; i < hours; i++) {
+                    surgeByHour[(surge.fromHour + i) % 24] += surge.basisPoints;
+                }
+            }
+        }
+    }
+
+    // item discounts -> surge -> coupon -> tax, each step rounded half up to the paisa
+    public long priceInPaise(Order order, PricingContext context) {
+        long subtotal = 0;
+        List<OrderItem> items = order.items;
+        for (int i = 0, n = items.size(); i < n; i++) {
+            OrderItem item = items.get(i);
+            long line = Math.round(item.price * 100) * item.qty;
+            subtotal += line - basisPoints(line, discountByItem.getOrDefault(item.name, 0));
+        }
+        return finish(subtotal, context);
+    }
+
+    // The same price for one order of a batch; items added to it without a name get no item discount.
+    public long priceInPaise(OrderBatch batch, int order, PricingContext context) {
+        long subtotal = 0;
+        for (int item = batch.firstItem(order), end = batch.endItem(order); item < end; item++) {
+            long line = batch.qty(item) * batch.priceInPaise(item);
+            String name = batch.itemName(item);
+            subtotal += name == null ? line : line - basisPoints(line, discountByItem.getOrDefault(name, 0));
+        }
+        return finish(subtotal, context);
+    }
+
+    private long finish(long subtotal, PricingContext context) {
+        subtotal += basisPoints(subtotal, surgeByHour[context.hourOfDay]);
+        if (context.couponCode != null) {
+            subtotal -= couponDiscount(coupons.get(context.couponCode), subtotal);
+        }
+        return subtotal + basisPoints(subtotal, taxByJurisdiction.getOrDefault(context.jurisdiction, 0));
+    }
+
+    private static long couponDiscount(PricingRule.Coupon coupon, long subtotal) {
+        if (coupon == null || subtotal < coupon.minSubtotalPaise) {
+            return 0;
+        }
+        long discount = coupon.flatPaise + basisPoints(subtotal, coupon.percentBasisPoints);
+        if (coupon.maxDiscountPaise > 0) {
+            discount = Math.min(discount, coupon.maxDiscountPaise);
+        }
+        return Math.min(discount, subtotal);
+    }
+
+    private static long basisPoints(long amount, int basisPoints) {
+        return (amount * basisPoints + 5_000) / 10_000;
+    }
+}
@@ -0,0 +1,135 @@
+package org.sapient.fooddelivery.pricing;
+
+import java.util.Objects;
+
+// The kinds of rule a RuleSet can hold. Rates are in basis points (1% = 100), money in paise.
+// Rules are values: two rules with the same fields are equal.
+public abstract class PricingRule {
+    private PricingRule() { }
+
+    public static PricingRule tax(String jurisdiction, int basisPoints) {
+        return new JurisdictionTax(jurisdiction, basisPoints);
+    }
+
+    public static PricingRule coupon(String code, int percentBasisPoints, long flatPaise, long minSubtotalPaise, long maxDiscountPaise) {
+        return new Coupon(code, percentBasisPoints, flatPaise, minSubtotalPaise, maxDiscountPaise);
+    }
+
+    // fromHour (0-23) inclusive, toHour (0-24) exclusive, may wrap past midnight (22 -> 2); 0 -> 24 is all day
+    public static PricingRule surge(int fromHour, int toHour, int basisPoints) {
+        if (fromHour < 0 || fromHour > 23 || toHour < 0 || toHour > 24) {
+            throw new IllegalArgumentException("Surge hours must be 0-23 and 0-24, got " + fromHour + " -> " + toHour);
+        }
+        return new Surge(fromHour, toHour, basisPoints);
+    }
+
+    public static PricingRule itemDiscount(String itemName, int basisPoints) {
+        return new ItemDiscount(itemName, basisPoints);
+    }
+
+    // Several taxes for one jurisdiction (e.g. CGST + SGST) add up.
+    public static final class JurisdictionTax extends PricingRule {
+        public final String jurisdiction;
+        public final int basisPoints;
+
+        JurisdictionTax(String jurisdiction, int basisPoints) {
+            this.jurisdiction = jurisdiction;
+            this.basisPoints = basisPoints;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof JurisdictionTax)) {
+                return false;
+            }
+            JurisdictionTax o = (JurisdictionTax) other;
+            return Objects.equals(jurisdiction, o.jurisdiction) && basisPoints == o.basisPoints;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jurisdiction, basisPoints);
+        }
+    }
+
+    public static final class Coupon extends PricingRule {
+        public final String code;
+        public final int percentBasisPoints;
+        public final long flatPaise;
+        public final long minSubtotalPaise;
+        public final long maxDiscountPaise;   // 0 = no cap
+
+        Coupon(String code, int percentBasisPoints, long flatPaise, long minSubtotalPaise, long maxDiscountPaise) {
+            this.code = code;
+            this.percentBasisPoints = percentBasisPoints;
+            this.flatPaise = flatPaise;
+            this.minSubtotalPaise = minSubtotalPaise;
+            this.maxDiscountPaise = maxDiscountPaise;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Coupon)) {
+                return false;
+            }
+            Coupon o = (Coupon) other;
+            return Objects.equals(code, o.code) && percentBasisPoints == o.percentBasisPoints && flatPaise == o.flatPaise
+                    && minSubtotalPaise == o.minSubtotalPaise && maxDiscountPaise == o.maxDiscountPaise;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(code, percentBasisPoints, flatPaise, minSubtotalPaise, maxDiscountPaise);
+        }
+    }
+
+    public static final class Surge extends PricingRule {
+        public final int fromHour;
+        public final int toHour;
+        public final int basisPoints;
+
+        Surge(int fromHour, int toHour, int basisPoints) {
+            this.fromHour = fromHour;
+            this.toHour = toHour;
+            this.basisPoints = basisPoints;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Surge)) {
+                return false;
+            }
+            Surge o = (Surge) other;
+            return fromHour == o.fromHour && toHour == o.toHour && basisPoints == o.basisPoints;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fromHour, toHour, basisPoints);
+        }
+    }
+
+    public static final class ItemDiscount extends PricingRule {
+        public final String itemName;
+        public final int basisPoints;
+
+        ItemDiscount(String itemName, int basisPoints) {
+            this.itemName = itemName;
+            this.basisPoints = basisPoints;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ItemDiscount)) {
+                return false;
+            }
+            ItemDiscount o = (ItemDiscount) other;
+            return Objects.equals(itemName, o.itemName) && basisPoints == o.basisPoints;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(itemName, basisPoints);
+        }
+    }
+}
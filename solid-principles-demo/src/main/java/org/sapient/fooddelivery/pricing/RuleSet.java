@@ -0,0 +1,14 @@
+package org.sapient.fooddelivery.pricing;
+
+import java.util.List;
+
+// A versioned set of rules as authored; PricingEngine compiles it into a PricingPlan.
+public class RuleSet {
+    public final long version;
+    public final List<PricingRule> rules;
+
+    public RuleSet(long version, List<PricingRule> rules) {
+        this.version = version;
+        this.rules = List.copyOf(rules);
+    }
+}
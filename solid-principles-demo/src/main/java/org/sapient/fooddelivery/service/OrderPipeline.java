@@ -0,0 +1,97 @@
+package org.sapient.fooddelivery.service;
+
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+// ===============================
+//  BATCH PIPELINE
+//  Runs the OrderProcessor stages for many orders at once:
+//  validate + price   -> fork-join pool, CPU bound, one task per order
+//  pay + deliver      -> fixed pool of paymentConcurrency threads; a blocking PaymentMethod holds one per call,
+//                        an AsyncPaymentMethod only uses it for delivery. A ResilientPaymentMethod admits
+//                        maxConcurrent + maxQueued payments of its PaymentPolicy and rejects the rest, so keep
+//                        maxInFlight within that (the defaults, 64 + 1024, cover maxInFlight = 1024).
+//                        A delivery failing after the charge comes back as PAID_NOT_DELIVERED, not FAILED
+//  notify             -> its own pool, fire and forget, never delays a result
+//  At most maxInFlight orders are between "read from the stream" and "paid and delivered", so a slow
+//  gateway slows down reading the stream instead of filling the queues (backpressure).
+// ===============================
+public class OrderPipeline implements AutoCloseable {
+    private final OrderProcessor processor;
+    private final ForkJoinPool pricingPool;
+    private final ExecutorService paymentPool;
+    private final ExecutorService notificationPool;
+    private final Semaphore inFlight;
+
+    public OrderPipeline(OrderProcessor processor, int parallelism, int paymentConcurrency, int maxInFlight) {
+        this.processor = processor;
+        this.pricingPool = new ForkJoinPool(parallelism);
+        this.paymentPool = Executors.newFixedThreadPool(paymentConcurrency, daemon("order-payment"));
+        this.notificationPool = Executors.newFixedThreadPool(Math.max(1, paymentConcurrency / 4), daemon("order-notify"));
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public List<OrderResult> processAll(Stream<Order> orders) {
+        List<CompletableFuture<OrderResult>> results = new ArrayList<>();
+        orders.forEach(order -> {
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<OrderResult> result = CompletableFuture
+                    .supplyAsync(() -> processor.price(order), pricingPool)
+                    .thenCompose(total -> processor.payAndDeliverAsync(order, total, paymentPool)
+                            .thenApply(paid -> {
+                                if (paid.status == OrderResult.Status.COMPLETED) {
+                                    notificationPool.execute(() -> processor.notifyCustomer(order, total));
+                                }
+                                return paid;
+                            }))
+                    .exceptionally(e -> failed(order, e))
+                    .whenComplete((r, e) -> inFlight.release());
+            results.add(result);
+        });
+        List<OrderResult> out = new ArrayList<>(results.size());
+        results.forEach(r -> out.add(r.join()));
+        return out;
+    }
+
+    private static OrderResult failed(Order order, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        OrderResult.Status status = cause instanceof IllegalArgumentException
+                ? OrderResult.Status.REJECTED   // what OrderValidator throws
+                : OrderResult.Status.FAILED;
+        return new OrderResult(order.id, status, 0, cause.getMessage());
+    }
+
+    // Waits for queued notifications to go out.
+    @Override
+    public void close() {
+        pricingPool.shutdown();
+        paymentPool.shutdown();
+        notificationPool.shutdown();
+        try {
+            notificationPool.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -1,9 +1,18 @@
 package org.sapient.fooddelivery.service;
 
 import org.sapient.fooddelivery.delivery.DeliveryPartner;
+import org.sapient.fooddelivery.lifecycle.OrderLifecycle;
+import org.sapient.fooddelivery.lifecycle.OrderState;
 import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderResult;
 import org.sapient.fooddelivery.notifier.EmailNotifier;
+import org.sapient.fooddelivery.payment.AsyncPaymentMethod;
 import org.sapient.fooddelivery.payment.PaymentMethod;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 // ===============================
 //  DIP - DEPENDENCY INVERSION PRINCIPLE
 //  OrderProcessor depends on abstractions (PaymentMethod, DeliveryPartner, Notifier)
@@ -15,27 +24,136 @@ public class OrderProcessor {
     private final PaymentMethod paymentMethod;
     private final DeliveryPartner deliveryPartner;
     private final EmailNotifier emailNotifier;
+    private final OrderLifecycle lifecycle;
 
     public OrderProcessor(OrderValidator validator,
                           PriceCalculator calculator,
                           PaymentMethod paymentMethod,
                           DeliveryPartner deliveryPartner,
                           EmailNotifier emailNotifier) {
+        this(validator, calculator, paymentMethod, deliveryPartner, emailNotifier, null);
+    }
+
+    // With a lifecycle every step is recorded, so after a crash OrderLifecycle tells which orders
+    // were e.g. paid but never dispatched.
+    public OrderProcessor(OrderValidator validator,
+                          PriceCalculator calculator,
+                          PaymentMethod paymentMethod,
+                          DeliveryPartner deliveryPartner,
+                          EmailNotifier emailNotifier,
+                          OrderLifecycle lifecycle) {
         this.validator = validator;
         this.calculator = calculator;
         this.paymentMethod = paymentMethod;
         this.deliveryPartner = deliveryPartner;
         this.emailNotifier = emailNotifier;
+        this.lifecycle = lifecycle;
+    }
+
+    public OrderResult process(Order order) {
+        return process(order, PaymentSteps.NONE);
+    }
+
+    // Reports the payment to steps as it happens, so a caller knows whether an exception came before the charge.
+    // A confirmation that cannot be sent does not fail a delivered order; it stays DISPATCHED in the lifecycle.
+    public OrderResult process(Order order, PaymentSteps steps) {
+        double total = price(order);
+        OrderResult result = payAndDeliver(order, total, steps);
+        if (result.status == OrderResult.Status.COMPLETED) {
+            try {
+                notifyCustomer(order, total);
+            } catch (RuntimeException e) {
+                System.err.println("[OrderProcessor] Confirmation for " + order.id + " not sent: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    // Many orders at once, stages overlap across orders; results come back in input order.
+    // For repeated batches keep one OrderPipeline around instead of paying for its thread pools every call.
+    public List<OrderResult> processAll(Stream<Order> orders) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        try (OrderPipeline pipeline = new OrderPipeline(this, cores, cores * 4, 1024)) {
+            return pipeline.processAll(orders);
+        }
+    }
+
+    // The stages below are what OrderPipeline schedules on its own executors.
+
+    double price(Order order) {
+        track(order.id, OrderState.RECEIVED, 0);
+        try {
+            validator.validate(order); // SRP in action
+            double total = calculator.calculateTotal(order);
+            track(order.id, OrderState.VALIDATED, total);
+            return total;
+        } catch (RuntimeException e) {
+            track(order.id, OrderState.FAILED, 0);
+            throw e;
+        }
     }
 
-    public void process(Order order) {
-        validator.validate(order); // SRP in action
-        double total = calculator.calculateTotal(order);
+    OrderResult payAndDeliver(Order order, double total, PaymentSteps steps) {
+        boolean paid;
+        try {
+            steps.charging(total);
+            paid = paymentMethod.pay(total); // OCP in action
+        } catch (RuntimeException e) {
+            track(order.id, OrderState.FAILED, total);
+            throw e;
+        }
+        if (!paid) {
+            return declined(order, total);
+        }
+        steps.paid(total);
+        return deliver(order, total);
+    }
+
+    // Async providers are not waited on: the executor is only used to deliver once the payment answered,
+    // blocking ones are adapted to run on it. A delivery that fails after the charge is not an exception here
+    // but PAID_NOT_DELIVERED with the charged total, so the batch result shows the customer has paid.
+    CompletableFuture<OrderResult> payAndDeliverAsync(Order order, double total, Executor executor) {
+        return AsyncPaymentMethod.adapt(paymentMethod, executor).payAsync(total)
+                .whenComplete((paid, e) -> {
+                    if (e != null) track(order.id, OrderState.FAILED, total);
+                })
+                .thenApplyAsync(paid -> paid ? deliverPaid(order, total) : declined(order, total), executor);
+    }
+
+    void notifyCustomer(Order order, double total) {
+        emailNotifier.sendEmail(order.customerEmail,
+                "Your order " + order.id + " is confirmed. Total: " + total); // ISP in action
+        track(order.id, OrderState.NOTIFIED, total);
+    }
 
-        if (paymentMethod.pay(total)) { // OCP in action
+    private OrderResult deliver(Order order, double total) {
+        track(order.id, OrderState.PAID, total);
+        try {
             deliveryPartner.deliver(order.id); // LSP in action
-            emailNotifier.sendEmail(order.customerEmail,
-                    "Your order " + order.id + " is confirmed. Total: " + total); // ISP in action
+        } catch (RuntimeException e) {
+            track(order.id, OrderState.FAILED, total);   // paid but not dispatched: needs a refund
+            throw e;
+        }
+        track(order.id, OrderState.DISPATCHED, total);
+        return OrderResult.completed(order.id, total);
+    }
+
+    private OrderResult deliverPaid(Order order, double total) {
+        try {
+            return deliver(order, total);
+        } catch (RuntimeException e) {
+            return OrderResult.paidNotDelivered(order.id, total);
+        }
+    }
+
+    private OrderResult declined(Order order, double total) {
+        track(order.id, OrderState.FAILED, total);
+        return OrderResult.declined(order.id, total);
+    }
+
+    private void track(String orderId, OrderState state, double total) {
+        if (lifecycle != null) {
+            lifecycle.record(orderId, state, Math.round(total * 100));
         }
     }
-}
\ No newline at end of file
+}
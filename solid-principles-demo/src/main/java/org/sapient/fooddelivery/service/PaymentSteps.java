@@ -0,0 +1,16 @@
+package org.sapient.fooddelivery.service;
+
+// Callbacks around the payment inside OrderProcessor.process, for callers that must tell a failure before
+// the customer was charged from one after it (IdempotentOrderProcessor).
+public interface PaymentSteps {
+    PaymentSteps NONE = new PaymentSteps() {
+        @Override public void charging(double total) { }
+        @Override public void paid(double total) { }
+    };
+
+    // about to call the gateway: from here on a failure may have charged the customer
+    void charging(double total);
+
+    // the gateway confirmed the charge
+    void paid(double total);
+}
@@ -1,14 +1,54 @@
 package org.sapient.fooddelivery.service;
 
 import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderBatch;
+import org.sapient.fooddelivery.pricing.PricingContext;
+import org.sapient.fooddelivery.pricing.PricingEngine;
+import org.sapient.fooddelivery.pricing.PricingPlan;
 
 public class PriceCalculator {
     private final double TAX_RATE = 0.05;
+    private final long TAX_BASIS_POINTS = Math.round(TAX_RATE * 10_000);  // same rate for the paise kernel
+    private final PricingEngine engine;
+    private final PricingContext context;
+
+    public PriceCalculator() {
+        this(null, null);
+    }
+
+    // Prices with the engine's current rule set instead of the fixed TAX_RATE.
+    public PriceCalculator(PricingEngine engine, PricingContext context) {
+        this.engine = engine;
+        this.context = context;
+    }
 
     public double calculateTotal(Order order) {
+        if (engine != null) {
+            return engine.priceInPaise(order, context) / 100.0;
+        }
         double subtotal = order.items.stream()
                 .mapToDouble(i -> i.price * i.qty)
                 .sum();
         return subtotal + (subtotal * TAX_RATE);
     }
+
+    // Bulk pricing kernel: writes the total of every order in the batch, in paise, into totalsInPaise.
+    // Plain loops over the primitive columns, no per-order objects; tax is rounded half up to the paisa.
+    // With an engine the whole batch is priced on its current plan, so totals match calculateTotal.
+    public void calculateTotals(OrderBatch batch, long[] totalsInPaise) {
+        if (engine != null) {
+            PricingPlan plan = engine.currentPlan();
+            for (int order = 0, n = batch.size(); order < n; order++) {
+                totalsInPaise[order] = plan.priceInPaise(batch, order, context);
+            }
+            return;
+        }
+        for (int order = 0, n = batch.size(); order < n; order++) {
+            long subtotal = 0;
+            for (int item = batch.firstItem(order), end = batch.endItem(order); item < end; item++) {
+                subtotal += batch.qty(item) * batch.priceInPaise(item);
+            }
+            totalsInPaise[order] = subtotal + (subtotal * TAX_BASIS_POINTS + 5_000) / 10_000;
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package org.sapient.fooddelivery.dispatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.sapient.fooddelivery.delivery.BikeDelivery;
+
+import java.util.concurrent.CompletableFuture;
+
+public class DispatchSchedulerTest {
+
+    private final DispatchScheduler scheduler = new DispatchScheduler(0.01, 20);
+
+    private FleetPartner partner(int id, int capacity, double lat, double lon) {
+        FleetPartner p = new FleetPartner(id, new BikeDelivery("rider" + id), capacity, lat, lon);
+        scheduler.register(p);
+        return p;
+    }
+
+    @Test
+    public void nearestFreePartnerGetsTheOrder() {
+        partner(1, 1, 12.9716, 77.5946);
+        partner(2, 1, 12.9352, 77.6245);   // Koramangala
+        partner(3, 1, 13.0358, 77.5970);
+
+        assertEquals(2, scheduler.assign("FD-1", 12.9340, 77.6200).join().partner.id);
+        assertEquals(1, scheduler.assign("FD-2", 12.9340, 77.6200).join().partner.id);   // 2 is full now
+    }
+
+    @Test
+    public void orderWaitsUntilAPartnerFreesUp() {
+        partner(1, 2, 12.9716, 77.5946);
+        Assignment first = scheduler.assign("FD-1", 12.97, 77.59).join();
+        scheduler.assign("FD-2", 12.97, 77.59).join();
+        CompletableFuture<Assignment> third = scheduler.assign("FD-3", 12.97, 77.59);
+        assertFalse(third.isDone());
+        assertEquals(1, scheduler.waitingOrders());
+
+        scheduler.complete(first);
+        assertTrue(third.isDone());
+        assertEquals("FD-3", third.join().orderId);
+    }
+
+    @Test
+    public void movedPartnerIsFoundAtTheNewPlace() {
+        partner(1, 1, 12.9716, 77.5946);
+        partner(2, 1, 13.0358, 77.5970);
+        scheduler.move(2, 12.9352, 77.6245);
+        assertEquals(2, scheduler.assign("FD-1", 12.9340, 77.6200).join().partner.id);
+    }
+
+    @Test
+    public void closerPartnerInTheNextRingWins() {
+        // 1 is in the order's cell but at its far corner, 2 is just across the border of the next cell
+        partner(1, 1, 10.0000, 10.0000);
+        partner(2, 1, 10.0101, 10.0099);
+        assertEquals(2, scheduler.assign("FD-1", 10.0099, 10.0099).join().partner.id);
+    }
+
+    @Test
+    public void orderNobodyCanReachDoesNotBlockTheOnesBehindIt() {
+        partner(1, 1, 12.9716, 77.5946);
+        Assignment busy = scheduler.assign("FD-1", 12.97, 77.59).join();
+        CompletableFuture<Assignment> farAway = scheduler.assign("FD-2", 28.6139, 77.2090);   // Delhi, out of range
+        CompletableFuture<Assignment> nearby = scheduler.assign("FD-3", 12.97, 77.59);
+
+        scheduler.complete(busy);
+        assertEquals("FD-3", nearby.join().orderId);
+        assertFalse(farAway.isDone());
+        assertEquals(1, scheduler.waitingOrders());
+
+        partner(2, 1, 28.6139, 77.2090);
+        assertEquals(2, farAway.join().partner.id);
+    }
+
+    @Test
+    public void completingTwiceIsRejected() {
+        FleetPartner p = partner(1, 2, 12.9716, 77.5946);
+        Assignment a = scheduler.assign("FD-1", 12.97, 77.59).join();
+        scheduler.complete(a);
+        assertThrows(IllegalStateException.class, () -> scheduler.complete(a));
+        assertEquals(0, p.getLoad());
+    }
+
+    @Test
+    public void movingAnUnknownPartnerIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler.move(42, 12.97, 77.59));
+    }
+}
@@ -0,0 +1,63 @@
+package org.sapient.fooddelivery.dispatch;
+
+import org.sapient.fooddelivery.delivery.DeliveryPartner;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Not a JUnit test: replays one simulated minute of 100k orders against 10k partners spread over a
+// 30km x 30km city (capacity 2 each, deliveries take 4-10 simulated seconds, partners end up
+// where they delivered) and prints wall-clock time and assign() latency percentiles.
+public class DispatchSimulationHarness {
+    private static final int PARTNERS = 10_000;
+    private static final int ORDERS = 100_000;
+    private static final double LAT = 12.8, LON = 77.45, SPAN = 0.27;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            run();
+        }
+    }
+
+    private static void run() {
+        Random random = new Random(3);
+        DispatchScheduler scheduler = new DispatchScheduler(0.005, 60);
+        DeliveryPartner rider = new DeliveryPartner("sim") { @Override public void deliver(String orderId) { } };
+        for (int i = 0; i < PARTNERS; i++) {
+            scheduler.register(new FleetPartner(i, rider, 2, LAT + random.nextDouble() * SPAN, LON + random.nextDouble() * SPAN));
+        }
+        PriorityQueue<long[]> deliveries = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));   // {done at ms, order}
+        Assignment[] assigned = new Assignment[ORDERS];
+        double[] orderLat = new double[ORDERS], orderLon = new double[ORDERS];
+        long[] latencies = new long[ORDERS];
+        int queued = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            long now = i * 60_000L / ORDERS;   // simulated ms
+            while (!deliveries.isEmpty() && deliveries.peek()[0] <= now) {
+                int order = (int) deliveries.poll()[1];
+                Assignment done = assigned[order];
+                scheduler.move(done.partner.id, orderLat[order], orderLon[order]);
+                scheduler.complete(done);
+            }
+            double lat = orderLat[i] = LAT + random.nextDouble() * SPAN;
+            double lon = orderLon[i] = LON + random.nextDouble() * SPAN;
+            long t = System.nanoTime();
+            Assignment a = scheduler.assign("FD-" + i, lat, lon).getNow(null);
+            latencies[i] = System.nanoTime() - t;
+            if (a == null) {
+                queued++;
+                continue;
+            }
+            assigned[i] = a;
+            deliveries.add(new long[] {now + 4_000 + random.nextInt(6_000), i});
+        }
+        long wall = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.printf("%,d orders in %d ms wall, assign p50 %.1fus p99 %.1fus p99.9 %.1fus, %d had to wait%n",
+                ORDERS, wall / 1_000_000, latencies[ORDERS / 2] / 1e3, latencies[ORDERS * 99 / 100] / 1e3,
+                latencies[ORDERS * 999 / 1000] / 1e3, queued);
+    }
+}
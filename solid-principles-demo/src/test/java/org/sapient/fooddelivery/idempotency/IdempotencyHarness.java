@@ -0,0 +1,48 @@
+package org.sapient.fooddelivery.idempotency;
+
+import org.sapient.fooddelivery.model.OrderResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Not a JUnit test: lookups/sec for both stores with 8 threads, ~20% of the order ids being repeats.
+public class IdempotencyHarness {
+    private static final int THREADS = 8;
+    private static final int CALLS = 500_000;
+
+    public static void main(String[] args) throws Exception {
+        run("in-memory", new InMemoryIdempotencyStore(1_000_000, Duration.ofMinutes(10)));
+        Path file = Files.createTempFile("idempotency", ".dat");
+        try (MappedIdempotencyStore mapped = new MappedIdempotencyStore(file, 1 << 22, Duration.ofMinutes(10))) {
+            run("memory-mapped", mapped);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void run(String label, IdempotencyStore store) throws InterruptedException {
+        for (int round = 0; round < 3; round++) {
+            AtomicLong next = new AtomicLong();
+            Thread[] threads = new Thread[THREADS];
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = round * THREADS * CALLS + t * CALLS;
+                threads[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < CALLS; i++) {
+                        int id = random.nextInt(5) == 0 && i > 0 ? offset + random.nextInt(i) : offset + i;
+                        String orderId = "FD-" + id;
+                        store.execute(orderId, () -> { next.incrementAndGet(); return OrderResult.completed(orderId, 100); });
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread t : threads) t.join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-14s %,12.0f calls/sec, %,d first-time orders%n", label, THREADS * CALLS / seconds, next.get());
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package org.sapient.fooddelivery.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sapient.fooddelivery.delivery.DeliveryPartner;
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderItem;
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.service.OrderProcessor;
+import org.sapient.fooddelivery.service.OrderValidator;
+import org.sapient.fooddelivery.service.PaymentSteps;
+import org.sapient.fooddelivery.service.PriceCalculator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdempotencyStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger charges = new AtomicInteger();
+
+    private OrderResult charge(String id) {
+        charges.incrementAndGet();
+        return OrderResult.completed(id, 315.0);
+    }
+
+    @Test
+    public void repeatGetsTheFirstResultInMemory() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10), now::get);
+        store.execute("FD-1", () -> charge("FD-1"));
+        OrderResult again = store.execute("FD-1", () -> charge("FD-1"));
+        assertEquals(1, charges.get());
+        assertEquals(315.0, again.total);
+
+        now.addAndGet(Duration.ofMinutes(11).toMillis());   // outside the window it runs again
+        store.execute("FD-1", () -> charge("FD-1"));
+        assertEquals(2, charges.get());
+    }
+
+    @Test
+    public void concurrentRepeatsRunOnce() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10));
+        CountDownLatch slowGateway = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<OrderResult>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> store.execute("FD-1", () -> {
+                try { slowGateway.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+                return charge("FD-1");
+            })));
+        }
+        Thread.sleep(50);
+        slowGateway.countDown();
+        for (Future<OrderResult> r : results) {
+            assertEquals(OrderResult.Status.COMPLETED, r.get().status);
+        }
+        pool.shutdown();
+        assertEquals(1, charges.get());
+    }
+
+    @Test
+    public void failedAttemptCanBeRetried() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10));
+        assertThrows(IllegalStateException.class, () -> store.execute("FD-1", () -> { throw new IllegalStateException("gateway down"); }));
+        store.execute("FD-1", () -> charge("FD-1"));
+        assertEquals(1, charges.get());
+    }
+
+    @Test
+    public void mappedStoreRemembersAcrossRestarts() throws IOException {
+        Path file = dir.resolve("idempotency.dat");
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            store.execute("FD-1", () -> charge("FD-1"));
+            store.execute("FD-2", () -> OrderResult.declined("FD-2", 99.5));
+        }
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            assertEquals(315.0, store.execute("FD-1", () -> charge("FD-1")).total);
+            OrderResult declined = store.execute("FD-2", () -> charge("FD-2"));
+            assertEquals(OrderResult.Status.PAYMENT_DECLINED, declined.status);
+            assertEquals("Payment declined", declined.reason);
+        }
+        assertEquals(1, charges.get());
+    }
+
+    @Test
+    public void unfinishedAttemptIsNotChargedAgainAfterRestart() throws IOException {
+        Path file = dir.resolve("idempotency.dat");
+        MappedIdempotencyStore crashed = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get);
+        assertThrows(Error.class, () -> crashed.execute("FD-1", () -> { throw new Error("process died mid payment"); }));
+        crashed.close();
+
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            OrderResult result = store.execute("FD-1", () -> charge("FD-1"));
+            assertEquals(OrderResult.Status.FAILED, result.status);
+            assertEquals(0, charges.get());
+        }
+    }
+
+    @Test
+    public void fullBlockReusesItsOldestSlot() throws IOException {
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(dir.resolve("small.dat"), 64, Duration.ofMinutes(10), now::get)) {
+            for (int i = 0; i < 100; i++) {
+                now.incrementAndGet();
+                int id = i;
+                store.execute("FD-" + id, () -> charge("FD-" + id));
+            }
+            store.execute("FD-99", () -> charge("FD-99"));
+            assertEquals(100, charges.get());
+            store.execute("FD-0", () -> charge("FD-0"));   // evicted to make room
+            assertEquals(101, charges.get());
+        }
+    }
+
+    // ---- failures after the charge are kept, before it they are not ----
+
+    private OrderResult chargeThenFail(String id, PaymentSteps steps, boolean paid) {
+        steps.charging(315.0);
+        charges.incrementAndGet();
+        if (paid) {
+            steps.paid(315.0);
+        }
+        throw new IllegalStateException(paid ? "delivery partner unreachable" : "gateway timed out");
+    }
+
+    private void failureAfterChargeIsKept(IdempotencyStore store) {
+        assertThrows(IllegalStateException.class, () -> store.execute("FD-1", steps -> chargeThenFail("FD-1", steps, true)));
+        OrderResult paid = store.execute("FD-1", steps -> charge("FD-1"));
+        assertEquals(OrderResult.Status.PAID_NOT_DELIVERED, paid.status);
+        assertEquals(315.0, paid.total);
+
+        assertThrows(IllegalStateException.class, () -> store.execute("FD-2", steps -> chargeThenFail("FD-2", steps, false)));
+        OrderResult unknown = store.execute("FD-2", steps -> charge("FD-2"));
+        assertEquals(OrderResult.Status.FAILED, unknown.status);
+        assertEquals(2, charges.get());
+
+        Function<PaymentSteps, OrderResult> invalid = steps -> { throw new IllegalArgumentException("Order is empty"); };
+        assertThrows(IllegalArgumentException.class, () -> store.execute("FD-3", invalid));
+        store.execute("FD-3", steps -> charge("FD-3"));   // failed before the charge: runs again
+        assertEquals(3, charges.get());
+    }
+
+    @Test
+    public void failureAfterChargeIsKeptInMemory() {
+        failureAfterChargeIsKept(new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10), now::get));
+    }
+
+    @Test
+    public void failureAfterChargeIsKeptInTheMappedStore() throws IOException {
+        Path file = dir.resolve("idempotency.dat");
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            failureAfterChargeIsKept(store);
+        }
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            assertEquals(OrderResult.Status.PAID_NOT_DELIVERED, store.execute("FD-1", () -> charge("FD-1")).status);
+        }
+        assertEquals(3, charges.get());
+    }
+
+    @Test
+    public void crashAfterPaymentIsPaidNotDeliveredAfterRestart() throws IOException {
+        Path file = dir.resolve("idempotency.dat");
+        MappedIdempotencyStore crashed = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get);
+        assertThrows(Error.class, () -> crashed.execute("FD-1", steps -> {
+            steps.charging(315.0);
+            steps.paid(315.0);
+            throw new Error("process died before dispatch");
+        }));
+        crashed.close();
+
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            OrderResult result = store.execute("FD-1", () -> charge("FD-1"));
+            assertEquals(OrderResult.Status.PAID_NOT_DELIVERED, result.status);
+            assertEquals(315.0, result.total);
+            assertEquals(0, charges.get());
+        }
+    }
+
+    @Test
+    public void idempotentProcessorDoesNotChargeAgainWhenDeliveryFailed() {
+        AtomicInteger payments = new AtomicInteger();
+        OrderProcessor processor = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+                amount -> payments.incrementAndGet() > 0,
+                new DeliveryPartner("down") { @Override public void deliver(String orderId) { throw new IllegalStateException("no riders"); } },
+                (to, message) -> { });
+        IdempotentOrderProcessor idempotent = new IdempotentOrderProcessor(processor,
+                new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10)));
+        Order order = new Order("FD-1", "a@example.com", List.of(new OrderItem("Burger", 1, 100)));
+
+        assertThrows(IllegalStateException.class, () -> idempotent.process(order));
+        assertEquals(OrderResult.Status.PAID_NOT_DELIVERED, idempotent.process(order).status);
+        assertEquals(1, payments.get());
+    }
+
+    @Test
+    public void failedConfirmationDoesNotTurnADeliveredOrderIntoPaidNotDelivered() {
+        AtomicInteger payments = new AtomicInteger();
+        AtomicInteger deliveries = new AtomicInteger();
+        OrderProcessor processor = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+                amount -> payments.incrementAndGet() > 0,
+                new DeliveryPartner("test") { @Override public void deliver(String orderId) { deliveries.incrementAndGet(); } },
+                (to, message) -> { throw new IllegalStateException("mail server down"); });
+        IdempotentOrderProcessor idempotent = new IdempotentOrderProcessor(processor,
+                new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10)));
+        Order order = new Order("FD-1", "a@example.com", List.of(new OrderItem("Burger", 1, 100)));
+
+        assertEquals(OrderResult.Status.COMPLETED, idempotent.process(order).status);
+        assertEquals(OrderResult.Status.COMPLETED, idempotent.process(order).status);
+        assertEquals(1, payments.get());
+        assertEquals(1, deliveries.get());
+    }
+
+    @Test
+    public void blockFullOfRunningOrdersAnswersStoreFull() throws IOException {
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(dir.resolve("small.dat"), 64, Duration.ofMinutes(10), now::get)) {
+            OrderResult[] overflow = new OrderResult[1];
+            nest(store, 0, overflow);   // 64 orders running at once, each started from inside the previous one
+
+            assertEquals(OrderResult.Status.FAILED, overflow[0].status);
+            assertEquals("Idempotency store full, retry later", overflow[0].reason);
+            assertEquals(64, charges.get());
+            for (int i = 0; i < 64; i++) {
+                int id = i;
+                assertEquals(OrderResult.Status.COMPLETED, store.execute("FD-" + id, () -> charge("FD-" + id)).status);
+            }
+            assertEquals(64, charges.get());   // none of the running ones was overwritten
+            store.execute("FD-64", () -> charge("FD-64"));   // was never run, so it goes through now
+            assertEquals(65, charges.get());
+        }
+    }
+
+    private OrderResult nest(IdempotencyStore store, int depth, OrderResult[] overflow) {
+        String id = "FD-" + depth;
+        return store.execute(id, () -> {
+            if (depth < 64) {
+                OrderResult inner = nest(store, depth + 1, overflow);
+                if (depth == 63) {
+                    overflow[0] = inner;
+                }
+            }
+            return charge(id);
+        });
+    }
+
+    @Test
+    public void longReasonIsCutBetweenCharacters() throws IOException {
+        String reason = "Zahlung abgelehnt \u2013 Limit \u00fcberschr. \u2713\u2713\u2713\u2713";   // byte 40 is inside a \u2713
+        Path file = dir.resolve("idempotency.dat");
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            store.execute("FD-1", () -> new OrderResult("FD-1", OrderResult.Status.PAYMENT_DECLINED, 99.5, reason));
+        }
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(file, 1024, Duration.ofMinutes(10), now::get)) {
+            String stored = store.execute("FD-1", () -> charge("FD-1")).reason;
+            assertTrue(reason.startsWith(stored), stored);
+            assertFalse(stored.contains("\ufffd"));
+            assertEquals(36, stored.length());
+        }
+    }
+
+    @Test
+    public void runningOrderIsNeverEvictedInMemory() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(64, Duration.ofMinutes(10), now::get);   // one entry per stripe
+        String neighbour = sameStripeAs("FD-1");
+        OrderResult[] crowded = new OrderResult[2];
+        store.execute("FD-1", () -> {
+            crowded[0] = store.execute(neighbour, () -> charge(neighbour));
+            return charge("FD-1");
+        });
+        assertEquals(OrderResult.Status.FAILED, crowded[0].status);
+        assertEquals("Idempotency store full, retry later", crowded[0].reason);
+        assertEquals(OrderResult.Status.COMPLETED, store.execute("FD-1", () -> charge("FD-1")).status);
+        assertEquals(1, charges.get());   // the retry found FD-1, it was not charged again
+
+        store.execute(neighbour, () -> charge(neighbour));   // FD-1 has finished, so now it makes room
+        assertEquals(2, charges.get());
+
+        store.execute("FD-2", () -> {
+            now.addAndGet(Duration.ofMinutes(11).toMillis());   // past the window while still running
+            crowded[1] = store.execute(sameStripeAs("FD-2"), () -> charge("other"));
+            return charge("FD-2");
+        });
+        assertEquals("Idempotency store full, retry later", crowded[1].reason);
+        assertEquals(3, charges.get());
+    }
+
+    private static String sameStripeAs(String orderId) {
+        for (int i = 1000; ; i++) {
+            String id = "FD-" + i;
+            if ((id.hashCode() & 0x7fffffff) % 64 == (orderId.hashCode() & 0x7fffffff) % 64) {
+                return id;
+            }
+        }
+    }
+
+    private void errorReachesWaitingRepeats(IdempotencyStore store) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch die = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<OrderResult> first = pool.submit(() -> store.execute("FD-1", () -> {
+                started.countDown();
+                try { die.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+                throw new OutOfMemoryError("simulated");
+            }));
+            started.await();
+            Future<OrderResult> repeat = pool.submit(() -> store.execute("FD-1", () -> charge("FD-1")));
+            Thread.sleep(50);   // let the repeat find the running entry
+            die.countDown();
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(Error.class, failed.getCause());
+            try {
+                repeat.get(5, TimeUnit.SECONDS);   // joined the first call: fails with it, or ran after it
+            } catch (ExecutionException e) {
+                assertInstanceOf(Error.class, e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void errorReachesWaitingRepeatsInMemory() throws Exception {
+        errorReachesWaitingRepeats(new InMemoryIdempotencyStore(1000, Duration.ofMinutes(10), now::get));
+    }
+
+    @Test
+    public void errorReachesWaitingRepeatsInTheMappedStore() throws Exception {
+        try (MappedIdempotencyStore store = new MappedIdempotencyStore(dir.resolve("idempotency.dat"), 1024, Duration.ofMinutes(10), now::get)) {
+            errorReachesWaitingRepeats(store);
+        }
+    }
+}
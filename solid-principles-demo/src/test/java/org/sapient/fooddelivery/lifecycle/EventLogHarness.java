@@ -0,0 +1,49 @@
+package org.sapient.fooddelivery.lifecycle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Not a JUnit test: raw append rate of SegmentedEventLog, the rate through OrderLifecycle (5 events per
+// order, snapshot every 100k events), and how long a restart takes afterwards.
+public class EventLogHarness {
+    private static final int EVENTS = 2_000_000;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("order-events");
+        try {
+            try (SegmentedEventLog log = new SegmentedEventLog(dir.resolve("raw"), 64 << 20)) {
+                for (int round = 0; round < 3; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < EVENTS; i++) {
+                        log.append("FD-" + i, OrderState.PAID, 31_500, i);
+                    }
+                    System.out.printf("raw append      %,12.0f events/sec%n", EVENTS / ((System.nanoTime() - start) / 1e9));
+                }
+            }
+            OrderState[] flow = {OrderState.RECEIVED, OrderState.VALIDATED, OrderState.PAID, OrderState.DISPATCHED, OrderState.NOTIFIED};
+            try (OrderLifecycle lifecycle = new OrderLifecycle(dir.resolve("lifecycle"), 64 << 20, 100_000)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < EVENTS / flow.length; i++) {
+                    for (OrderState state : flow) {
+                        lifecycle.record("FD-" + i, state, 31_500);
+                    }
+                }
+                System.out.printf("lifecycle       %,12.0f events/sec%n", EVENTS / ((System.nanoTime() - start) / 1e9));
+                for (int i = 0; i < 50_000; i++) {
+                    lifecycle.record("open-" + i, OrderState.RECEIVED, 0);   // in flight at "crash" time
+                }
+            }
+            long start = System.nanoTime();
+            try (OrderLifecycle recovered = new OrderLifecycle(dir.resolve("lifecycle"), 64 << 20, 100_000)) {
+                System.out.printf("recovery        %,12d ms for %,d live orders%n", (System.nanoTime() - start) / 1_000_000, recovered.trackedOrders());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+}
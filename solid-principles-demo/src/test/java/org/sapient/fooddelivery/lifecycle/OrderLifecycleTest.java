@@ -0,0 +1,161 @@
+package org.sapient.fooddelivery.lifecycle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sapient.fooddelivery.delivery.DeliveryPartner;
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderItem;
+import org.sapient.fooddelivery.service.OrderProcessor;
+import org.sapient.fooddelivery.service.OrderValidator;
+import org.sapient.fooddelivery.service.PriceCalculator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OrderLifecycleTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void stateIsRebuiltFromSnapshotAndLogTail() throws IOException {
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 100)) {
+            for (int i = 0; i < 250; i++) {
+                lifecycle.record("FD-" + i, OrderState.RECEIVED, 0);
+                lifecycle.record("FD-" + i, OrderState.VALIDATED, 31_500);
+            }
+            lifecycle.record("FD-7", OrderState.PAID, 31_500);
+        }
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 100)) {
+            assertEquals(250, lifecycle.trackedOrders());
+            assertEquals(OrderState.PAID, lifecycle.state("FD-7"));
+            assertEquals(31_500, lifecycle.amountPaise("FD-7"));
+            assertEquals(List.of("FD-7"), lifecycle.ordersIn(OrderState.PAID));
+            assertEquals(OrderState.VALIDATED, lifecycle.state("FD-249"));
+        }
+    }
+
+    @Test
+    public void snapshotsDropCoveredSegmentsAndFinishedOrders() throws IOException {
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 1024, 50)) {
+            for (int i = 0; i < 200; i++) {
+                for (OrderState s : List.of(OrderState.RECEIVED, OrderState.VALIDATED, OrderState.PAID,
+                        OrderState.DISPATCHED, OrderState.NOTIFIED)) {
+                    lifecycle.record("FD-" + i, s, 10_000);
+                }
+            }
+            lifecycle.record("FD-open", OrderState.RECEIVED, 0);
+            lifecycle.snapshot();
+            assertEquals(1, lifecycle.trackedOrders());
+        }
+        try (SegmentedEventLog log = new SegmentedEventLog(dir.resolve("log"), 1024)) {
+            assertTrue(log.segmentCount() <= 2, "segments left: " + log.segmentCount());
+        }
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 1024, 50)) {
+            assertEquals(OrderState.RECEIVED, lifecycle.state("FD-open"));
+            assertNull(lifecycle.state("FD-3"));
+        }
+    }
+
+    @Test
+    public void invalidTransitionsAreRefused() throws IOException {
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 100)) {
+            assertThrows(IllegalStateException.class, () -> lifecycle.record("FD-1", OrderState.PAID, 0));
+            lifecycle.record("FD-1", OrderState.RECEIVED, 0);
+            assertThrows(IllegalStateException.class, () -> lifecycle.record("FD-1", OrderState.DISPATCHED, 0));
+            lifecycle.record("FD-1", OrderState.FAILED, 0);
+            assertThrows(IllegalStateException.class, () -> lifecycle.record("FD-1", OrderState.VALIDATED, 0));
+        }
+    }
+
+    @Test
+    public void processorRecordsEveryStep() throws IOException {
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 100)) {
+            OrderProcessor processor = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+                    amount -> amount < 1000,
+                    new DeliveryPartner("test") { @Override public void deliver(String orderId) { } },
+                    (to, message) -> { }, lifecycle);
+            processor.process(new Order("ok", "a@example.com", List.of(new OrderItem("Burger", 2, 150.0))));
+            processor.process(new Order("big", "a@example.com", List.of(new OrderItem("Party pack", 10, 500.0))));
+            assertThrows(IllegalArgumentException.class,
+                    () -> processor.process(new Order("empty", "a@example.com", List.of())));
+
+            assertEquals(OrderState.NOTIFIED, lifecycle.state("ok"));
+            assertEquals(31_500, lifecycle.amountPaise("ok"));
+            assertEquals(OrderState.FAILED, lifecycle.state("big"));
+            assertEquals(OrderState.FAILED, lifecycle.state("empty"));
+        }
+    }
+
+    @Test
+    public void receivedAfterFailedStartsANewAttempt() throws IOException {
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 100)) {
+            lifecycle.record("FD-1", OrderState.RECEIVED, 0);
+            assertEquals(1, lifecycle.attempt("FD-1"));
+            lifecycle.record("FD-1", OrderState.FAILED, 0);
+            lifecycle.record("FD-1", OrderState.RECEIVED, 0);
+            lifecycle.record("FD-1", OrderState.VALIDATED, 31_500);
+            assertEquals(2, lifecycle.attempt("FD-1"));
+            assertThrows(IllegalStateException.class, () -> lifecycle.record("FD-1", OrderState.RECEIVED, 0));   // still running
+        }
+        try (OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 100)) {
+            assertEquals(2, lifecycle.attempt("FD-1"));   // replayed from the log
+            assertEquals(OrderState.VALIDATED, lifecycle.state("FD-1"));
+        }
+    }
+
+    // the same sequence of records, once straight through and once with a snapshot and restart in between
+    @Test
+    public void retriesBehaveTheSameWithOrWithoutASnapshot() throws IOException {
+        List<Object> plain = retryScenario(dir.resolve("plain"), false);
+        assertEquals(List.of(false, 2, 1, 1), plain);   // NOTIFIED cannot move on; only the recent failure is a retry
+        assertEquals(plain, retryScenario(dir.resolve("snapshotted"), true));
+    }
+
+    private List<Object> retryScenario(Path dir, boolean snapshot) throws IOException {
+        AtomicLong now = new AtomicLong(1_000_000);
+        Duration window = Duration.ofHours(1);
+        OrderLifecycle lifecycle = new OrderLifecycle(dir, 4096, 1_000, window, now::get);
+        for (String id : List.of("failed", "old-failure", "done")) {
+            lifecycle.record(id, OrderState.RECEIVED, 0);
+        }
+        lifecycle.record("old-failure", OrderState.FAILED, 0);
+        for (OrderState s : List.of(OrderState.VALIDATED, OrderState.PAID, OrderState.DISPATCHED, OrderState.NOTIFIED)) {
+            lifecycle.record("done", s, 10_000);
+        }
+        now.addAndGet(Duration.ofMinutes(30).toMillis());
+        lifecycle.record("failed", OrderState.FAILED, 0);
+        now.addAndGet(Duration.ofMinutes(40).toMillis());   // old-failure is now outside the window, failed is not
+        if (snapshot) {
+            lifecycle.snapshot();
+            lifecycle.close();
+            lifecycle = new OrderLifecycle(dir, 4096, 1_000, window, now::get);
+        }
+        OrderLifecycle l = lifecycle;
+        boolean doneCanValidate = attempt(() -> l.record("done", OrderState.VALIDATED, 0));
+        for (String id : List.of("failed", "old-failure", "done")) {
+            l.record(id, OrderState.RECEIVED, 0);
+        }
+        List<Object> outcome = List.of(doneCanValidate,
+                l.attempt("failed"), l.attempt("old-failure"), l.attempt("done"));
+        l.close();
+        return outcome;
+    }
+
+    private static boolean attempt(Runnable record) {
+        try {
+            record.run();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
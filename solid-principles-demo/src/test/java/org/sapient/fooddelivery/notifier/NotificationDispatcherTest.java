@@ -0,0 +1,148 @@
+package org.sapient.fooddelivery.notifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NotificationDispatcherTest {
+
+    private final List<List<Notification>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void messagesAreSentInBatchesPerChannel() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> {
+            await(release);   // hold the first batch so the rest piles up in the buffer
+            batches.add(List.copyOf(batch));
+        }, 1024, 100, 1000, 3, 10);
+        for (int i = 0; i < 250; i++) {
+            dispatcher.sendEmail("u" + i + "@example.com", "Your order is confirmed");
+        }
+        dispatcher.sendSms("+911234567890", "Out for delivery");
+        release.countDown();
+        dispatcher.close();
+
+        assertEquals(251, dispatcher.getSent());
+        assertTrue(batches.size() < 10, "expected a few batches, got " + batches.size());
+        batches.forEach(b -> assertEquals(1, b.stream().map(n -> n.channel).distinct().count()));
+    }
+
+    @Test
+    public void duplicateMessageToSameRecipientIsCoalesced() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> batches.add(List.copyOf(batch)),
+                1024, 100, 60_000, 3, 10);
+        dispatcher.sendEmail("a@example.com", "Your order FD-1 is confirmed");
+        dispatcher.sendEmail("a@example.com", "Your order FD-1 is confirmed");
+        dispatcher.sendEmail("a@example.com", "Your order FD-2 is confirmed");
+        dispatcher.sendSms("a@example.com", "Your order FD-1 is confirmed");   // other channel
+        dispatcher.close();
+
+        assertEquals(3, dispatcher.getSent());
+        assertEquals(1, dispatcher.getCoalesced());
+    }
+
+    @Test
+    public void failingBatchesAreRetriedThenDeadLettered() {
+        AtomicInteger calls = new AtomicInteger();
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> {
+            if (calls.incrementAndGet() < 3 || batch.get(0).to.startsWith("broken")) {
+                throw new IllegalStateException("provider down");
+            }
+        }, 1024, 1, 0, 3, 1);   // one message per batch, so only the broken address keeps failing
+        dispatcher.sendEmail("ok@example.com", "hello");
+        dispatcher.sendEmail("broken@example.com", "hello");
+        waitUntil(() -> dispatcher.getDeadLetters().size() == 1 && dispatcher.getSent() == 1);
+        dispatcher.close();
+
+        assertEquals("broken@example.com", dispatcher.getDeadLetters().peek().to);
+        assertEquals(3, dispatcher.getDeadLetters().peek().getAttempts());
+    }
+
+    @Test
+    public void fullBufferGoesToDeadLetters() {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> await(release),
+                4, 1, 0, 3, 1);
+        for (int i = 0; i < 20; i++) {
+            dispatcher.sendSms("+91" + i, "hi");   // never blocks the caller
+        }
+        release.countDown();
+        dispatcher.close();
+        assertEquals(20, dispatcher.getSent() + dispatcher.getDeadLetters().size() + dispatcher.getDropped());
+        assertTrue(dispatcher.getSent() <= 4 + 1);
+    }
+
+    @Test
+    public void messageTurnedAwayByFullBufferIsNotCoalesced() {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> {
+            await(release);
+            batches.add(List.copyOf(batch));
+        }, 2, 1, 60_000, 3, 1);
+        for (int i = 0; i < 8; i++) {
+            dispatcher.sendSms("+91" + i, "hi");   // fills the buffer
+        }
+        dispatcher.sendSms("+91999", "hi");       // turned away
+        release.countDown();
+        waitUntil(() -> dispatcher.getSent() + dispatcher.getDeadLetters().size() + dispatcher.getDropped() == 9);
+        dispatcher.sendSms("+91999", "hi");       // the same message again, now with room
+        dispatcher.close();
+
+        assertEquals(0, dispatcher.getCoalesced());
+        assertTrue(batches.stream().anyMatch(b -> b.get(0).to.equals("+91999")));
+    }
+
+    @Test
+    public void concurrentDuplicatesAreSentOnce() throws InterruptedException {
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> { }, 1024, 100, 60_000, 3, 1);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                await(start);
+                dispatcher.sendEmail("a@example.com", "Your order FD-1 is confirmed");
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        dispatcher.close();
+
+        assertEquals(1, dispatcher.getSent());
+        assertEquals(7, dispatcher.getCoalesced());
+    }
+
+    @Test
+    public void sendAfterCloseIsDeadLettered() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher((channel, batch) -> batches.add(List.copyOf(batch)),
+                1024, 100, 0, 3, 1);
+        dispatcher.close();
+        dispatcher.sendEmail("late@example.com", "hello");
+
+        assertEquals(0, dispatcher.getSent());
+        assertEquals("late@example.com", dispatcher.getDeadLetters().peek().to);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
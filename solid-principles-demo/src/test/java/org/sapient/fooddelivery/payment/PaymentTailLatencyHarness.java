@@ -0,0 +1,51 @@
+package org.sapient.fooddelivery.payment;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+// Not a JUnit test: a simulated gateway answers in 2ms, but 5% of calls take 300ms and 1% are turned away.
+// Prints p50/p99/p99.9 and errors for the raw gateway, with a timeout, with timeout plus hedging, and with retries on top.
+// The bulkhead holds a slot until the gateway answers, and the slow calls alone keep ~1500 busy, so it is sized well above that.
+public class PaymentTailLatencyHarness {
+    private static final int CALLS = 20_000;
+    private static final int CONCURRENCY = 200;
+
+    public static void main(String[] args) throws InterruptedException {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(2_000);
+        gateway.degrade(0.05, 300_000, 0.01);
+
+        run("raw gateway", gateway);
+        run("timeout 100ms", new ResilientPaymentMethod("gw", gateway,
+                new PaymentPolicy(Duration.ofMillis(100), 5_000, null, 1_000, Duration.ofSeconds(1))));
+        run("timeout + hedge 10ms", new ResilientPaymentMethod("gw", gateway,
+                new PaymentPolicy(Duration.ofMillis(100), 5_000, Duration.ofMillis(10), 1_000, Duration.ofSeconds(1))));
+        run("+ 2 retries", new ResilientPaymentMethod("gw", gateway,
+                new PaymentPolicy(Duration.ofMillis(100), 5_000, 0, Duration.ofMillis(10), 2, 1_000, Duration.ofSeconds(1))));
+    }
+
+    private static void run(String label, AsyncPaymentMethod payment) throws InterruptedException {
+        long[] latencies = new long[CALLS];
+        int[] errors = {0, 0};  // failed, rejected by the bulkhead
+        Semaphore concurrency = new Semaphore(CONCURRENCY);
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            concurrency.acquire();
+            int index = i;
+            long start = System.nanoTime();
+            calls[i] = payment.payAsync(100).whenComplete((paid, e) -> {
+                latencies[index] = System.nanoTime() - start;
+                if (e != null) {
+                    boolean rejected = e.getCause() instanceof PaymentRejectedException;
+                    synchronized (errors) { errors[rejected ? 1 : 0]++; }
+                }
+                concurrency.release();
+            });
+        }
+        CompletableFuture.allOf(calls).exceptionally(e -> null).join();
+        Arrays.sort(latencies);
+        System.out.printf("%-22s p50 %6.1fms  p99 %6.1fms  p99.9 %6.1fms  errors %d  rejected %d%n", label,
+                latencies[CALLS / 2] / 1e6, latencies[CALLS * 99 / 100] / 1e6, latencies[CALLS * 999 / 1000] / 1e6, errors[0], errors[1]);
+    }
+}
@@ -0,0 +1,163 @@
+package org.sapient.fooddelivery.payment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResilientPaymentMethodTest {
+
+    @Test
+    public void slowProviderTimesOut() {
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("never", amount -> new CompletableFuture<>(),
+                new PaymentPolicy(Duration.ofMillis(20), 4, null, 5, Duration.ofSeconds(1)));
+        CompletionException e = assertThrows(CompletionException.class, () -> payment.payAsync(10).join());
+        assertInstanceOf(TimeoutException.class, e.getCause());
+    }
+
+    @Test
+    public void bulkheadRejectsInsteadOfQueueing() {
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("hanging", amount -> new CompletableFuture<>(),
+                new PaymentPolicy(Duration.ofSeconds(5), 1, null, 5, Duration.ofSeconds(1)));
+        payment.payAsync(10);
+        assertThrows(PaymentRejectedException.class, () -> payment.pay(10));
+    }
+
+    @Test
+    public void queuedCallWaitsForAFreeSlot() {
+        CompletableFuture<Boolean> first = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("busy",
+                amount -> calls.incrementAndGet() == 1 ? first : CompletableFuture.completedFuture(true),
+                new PaymentPolicy(Duration.ofSeconds(5), 1, 1, null, 0, 5, Duration.ofSeconds(1)));
+        payment.payAsync(10);
+        CompletableFuture<Boolean> queued = payment.payAsync(10);
+        assertThrows(PaymentRejectedException.class, () -> payment.pay(10));  // queue is full
+        assertFalse(queued.isDone());
+
+        first.complete(true);
+        assertTrue(queued.join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void slotIsHeldUntilTheProviderAnswersNotUntilTheTimeout() {
+        CompletableFuture<Boolean> hanging = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("slow",
+                amount -> calls.incrementAndGet() == 1 ? hanging : CompletableFuture.completedFuture(true),
+                new PaymentPolicy(Duration.ofMillis(20), 1, null, 100, Duration.ofSeconds(1)));
+        CompletionException e = assertThrows(CompletionException.class, () -> payment.payAsync(10).join());
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertThrows(PaymentRejectedException.class, () -> payment.pay(10));  // the provider still has it
+
+        hanging.complete(true);
+        assertTrue(payment.pay(10));
+    }
+
+    @Test
+    public void retryableErrorsAreRetriedUpToTheLimit() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("busy", amount -> calls.incrementAndGet() <= 2
+                        ? CompletableFuture.failedFuture(new RetryablePaymentException("overloaded"))
+                        : CompletableFuture.completedFuture(true),
+                new PaymentPolicy(Duration.ofSeconds(1), 4, 0, null, 2, 5, Duration.ofSeconds(1)));
+        assertTrue(payment.pay(10));
+        assertEquals(3, calls.get());
+
+        calls.set(-10);  // more failures than retries
+        assertThrows(RetryablePaymentException.class, () -> payment.pay(10));
+        assertEquals(-7, calls.get());
+    }
+
+    @Test
+    public void otherErrorsAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("broken", amount -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("card declined by bank"));
+        }, new PaymentPolicy(Duration.ofSeconds(1), 4, 0, null, 2, 5, Duration.ofSeconds(1)));
+        assertThrows(IllegalStateException.class, () -> payment.pay(10));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void lateAnswersFromAnOlderCircuitAreIgnored() throws InterruptedException {
+        CompletableFuture<Boolean> lateFailure = new CompletableFuture<>();
+        CompletableFuture<Boolean> lateSuccess = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("flaky", amount -> {
+            switch (calls.incrementAndGet()) {
+                case 1: return lateFailure;
+                case 2: return lateSuccess;
+                case 3: return CompletableFuture.failedFuture(new IllegalStateException("down"));
+                default: return CompletableFuture.completedFuture(true);
+            }
+        }, new PaymentPolicy(Duration.ofSeconds(5), 4, null, 1, Duration.ofMillis(50)));
+        CompletableFuture<Boolean> first = payment.payAsync(10);
+        CompletableFuture<Boolean> second = payment.payAsync(10);
+        assertThrows(IllegalStateException.class, () -> payment.pay(10));
+        assertTrue(payment.isOpen());
+
+        lateSuccess.complete(true);         // answered for the closed circuit, must not close the open one
+        second.join();
+        assertTrue(payment.isOpen());
+
+        Thread.sleep(60);
+        assertTrue(payment.pay(10));        // the trial closes it
+        assertFalse(payment.isOpen());
+
+        lateFailure.completeExceptionally(new IllegalStateException("down"));
+        assertThrows(CompletionException.class, first::join);
+        assertFalse(payment.isOpen());      // threshold is 1, but this failure belongs to an older circuit
+    }
+
+    @Test
+    public void circuitOpensAfterFailuresAndClosesAfterTrial() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        boolean[] healthy = {false};
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("flaky", amount -> {
+            calls.incrementAndGet();
+            return healthy[0] ? CompletableFuture.completedFuture(true)
+                    : CompletableFuture.failedFuture(new IllegalStateException("down"));
+        }, new PaymentPolicy(Duration.ofSeconds(1), 4, null, 3, Duration.ofMillis(50)));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> payment.pay(10));
+        }
+        assertTrue(payment.isOpen());
+        assertThrows(PaymentRejectedException.class, () -> payment.pay(10));
+        assertTrue(calls.get() == 3);  // rejected without calling the provider
+
+        Thread.sleep(60);
+        healthy[0] = true;
+        assertTrue(payment.pay(10));
+        assertFalse(payment.isOpen());
+    }
+
+    @Test
+    public void hedgeAnswersWhenFirstAttemptIsSlow() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientPaymentMethod payment = new ResilientPaymentMethod("hedged", amount -> calls.incrementAndGet() == 1
+                        ? new CompletableFuture<>()                   // first attempt hangs
+                        : CompletableFuture.completedFuture(true),
+                new PaymentPolicy(Duration.ofSeconds(5), 4, Duration.ofMillis(10), 5, Duration.ofSeconds(1)));
+        assertTrue(payment.pay(10));
+    }
+
+    @Test
+    public void blockingMethodsAreAdapted() {
+        AsyncPaymentMethod async = AsyncPaymentMethod.adapt(amount -> amount < 100, Runnable::run);
+        assertTrue(async.payAsync(50).join());
+        assertFalse(async.payAsync(500).join());
+    }
+}
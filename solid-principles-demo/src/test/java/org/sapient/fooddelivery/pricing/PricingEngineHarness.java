@@ -0,0 +1,66 @@
+package org.sapient.fooddelivery.pricing;
+
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Not a JUnit test: orders/sec priced by one thread through PricingEngine with a realistic rule set,
+// while another thread publishes a new rule set version every millisecond.
+public class PricingEngineHarness {
+    private static final int ORDERS = 100_000;
+    private static final int ROUNDS = 10;
+    private static final String[] STATES = {"KA", "TN", "MH", "DL", "WB"};
+    private static final String[] ITEMS = {"Burger", "Fries", "Cola", "Pizza", "Biryani", "Dosa", "Salad", "Wrap"};
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        List<Order> orders = new ArrayList<>(ORDERS);
+        List<PricingContext> contexts = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0, n = 1 + random.nextInt(5); j < n; j++) {
+                items.add(new OrderItem(ITEMS[random.nextInt(ITEMS.length)], 1 + random.nextInt(3), 50 + random.nextInt(400)));
+            }
+            orders.add(new Order("FD-" + i, "a@example.com", items));
+            contexts.add(new PricingContext(STATES[random.nextInt(STATES.length)],
+                    random.nextInt(4) == 0 ? "TENOFF" : null, random.nextInt(24)));
+        }
+        PricingEngine engine = new PricingEngine(rules(1));
+
+        Thread publisher = new Thread(() -> {
+            for (long v = 2; !Thread.currentThread().isInterrupted(); v++) {
+                engine.publish(rules(v));
+                try { Thread.sleep(1); } catch (InterruptedException e) { return; }
+            }
+        });
+        publisher.setDaemon(true);
+        publisher.start();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                sink += engine.priceInPaise(orders.get(i), contexts.get(i));
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("round %d: %,.0f orders/sec (checksum %d)%n", round, ORDERS / (nanos / 1e9), sink % 1000);
+        }
+        publisher.interrupt();
+    }
+
+    private static RuleSet rules(long version) {
+        List<PricingRule> rules = new ArrayList<>();
+        for (String state : STATES) {
+            rules.add(PricingRule.tax(state, 250));
+            rules.add(PricingRule.tax(state, 250));
+        }
+        rules.add(PricingRule.itemDiscount("Fries", 1000));
+        rules.add(PricingRule.itemDiscount("Salad", 500));
+        rules.add(PricingRule.surge(19, 22, 1000 + (int) (version % 5) * 100));
+        rules.add(PricingRule.coupon("TENOFF", 1000, 0, 0, 10_000));
+        return new RuleSet(version, rules);
+    }
+}
@@ -0,0 +1,100 @@
+package org.sapient.fooddelivery.pricing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderItem;
+
+import java.util.List;
+
+public class PricingEngineTest {
+
+    private final Order order = new Order("FD-1", "a@example.com", List.of(
+            new OrderItem("Burger", 2, 150.0),
+            new OrderItem("Fries", 1, 100.0)));
+
+    private final RuleSet rules = new RuleSet(1, List.of(
+            PricingRule.tax("KA", 250), PricingRule.tax("KA", 250),     // CGST + SGST
+            PricingRule.itemDiscount("Fries", 1000),
+            PricingRule.surge(22, 2, 1500),
+            PricingRule.coupon("FLAT50", 0, 5_000, 20_000, 0),
+            PricingRule.coupon("TENOFF", 1000, 0, 0, 2_000)));
+
+    private final PricingEngine engine = new PricingEngine(rules);
+
+    @Test
+    public void taxesAndItemDiscountsApply() {
+        // 300 + 90 = 390, 5% tax -> 409.50
+        assertEquals(40_950, engine.priceInPaise(order, new PricingContext("KA", null, 13)));
+        assertEquals(39_000, engine.priceInPaise(order, new PricingContext("TN", null, 13)));   // no rules for TN
+    }
+
+    @Test
+    public void surgeWrapsPastMidnight() {
+        // 390 + 15% = 448.50, 5% tax -> 470.925 -> 470.93
+        assertEquals(47_093, engine.priceInPaise(order, new PricingContext("KA", null, 1)));
+        assertEquals(40_950, engine.priceInPaise(order, new PricingContext("KA", null, 2)));
+    }
+
+    @Test
+    public void couponsRespectMinimumAndCap() {
+        assertEquals(35_700, engine.priceInPaise(order, new PricingContext("KA", "FLAT50", 13)));   // (390 - 50) * 1.05
+        assertEquals(38_850, engine.priceInPaise(order, new PricingContext("KA", "TENOFF", 13)));   // 39 off capped at 20
+        Order small = new Order("FD-2", "a@example.com", List.of(new OrderItem("Cola", 1, 40.0)));
+        assertEquals(4_200, engine.priceInPaise(small, new PricingContext("KA", "FLAT50", 13)));   // below minimum
+    }
+
+    @Test
+    public void publishSwapsAndOldVersionsStayCompiled() {
+        PricingPlan first = engine.currentPlan();
+        engine.publish(new RuleSet(2, List.of(PricingRule.tax("KA", 1800))));
+        assertEquals(47_200, engine.priceInPaise(order, new PricingContext("KA", null, 13)));
+
+        engine.activate(1);
+        assertSame(first, engine.currentPlan());
+    }
+
+    @Test
+    public void surgeUntilMidnightAndAllDay() {
+        Order plain = new Order("FD-3", "a@example.com", List.of(new OrderItem("Cola", 1, 100.0)));
+        PricingEngine lateNight = new PricingEngine(new RuleSet(1, List.of(PricingRule.surge(20, 24, 1000))));
+        assertEquals(11_000, lateNight.priceInPaise(plain, new PricingContext("KA", null, 23)));
+        assertEquals(10_000, lateNight.priceInPaise(plain, new PricingContext("KA", null, 0)));
+
+        PricingEngine allDay = new PricingEngine(new RuleSet(1, List.of(PricingRule.surge(0, 24, 1000))));
+        for (int hour = 0; hour < 24; hour++) {
+            assertEquals(11_000, allDay.priceInPaise(plain, new PricingContext("KA", null, hour)));
+        }
+    }
+
+    @Test
+    public void hoursOutOfRangeAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.surge(24, 2, 100));
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.surge(22, 25, 100));
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.surge(-1, 2, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PricingContext("KA", null, 24));
+        assertThrows(IllegalArgumentException.class, () -> new PricingContext("KA", null, -1));
+    }
+
+    @Test
+    public void republishingTheSameVersionWithTheSameRulesReusesThePlan() {
+        PricingPlan first = engine.currentPlan();
+        engine.publish(new RuleSet(2, List.of(PricingRule.tax("KA", 1800))));
+        assertSame(first, engine.publish(new RuleSet(1, List.of(
+                PricingRule.tax("KA", 250), PricingRule.tax("KA", 250),
+                PricingRule.itemDiscount("Fries", 1000),
+                PricingRule.surge(22, 2, 1500),
+                PricingRule.coupon("FLAT50", 0, 5_000, 20_000, 0),
+                PricingRule.coupon("TENOFF", 1000, 0, 0, 2_000)))));
+    }
+
+    @Test
+    public void republishingTheSameVersionWithOtherRulesIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.publish(new RuleSet(1, List.of(PricingRule.tax("KA", 1800)))));
+        assertEquals(40_950, engine.priceInPaise(order, new PricingContext("KA", null, 13)));   // still the old plan
+    }
+}
@@ -0,0 +1,58 @@
+package org.sapient.fooddelivery.service;
+
+import org.sapient.fooddelivery.delivery.DeliveryPartner;
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderItem;
+import org.sapient.fooddelivery.model.OrderResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Not a JUnit test: prints orders/sec for OrderProcessor.process one by one and for OrderPipeline at
+// 1, 4, 16 and 64 threads. The payment gateway is simulated with a 2ms wait, pricing is real.
+public class OrderPipelineHarness {
+    private static final int ORDERS = 20_000;
+    private static final long GATEWAY_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    public static void main(String[] args) {
+        OrderProcessor processor = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+                amount -> { LockSupport.parkNanos(GATEWAY_NANOS); return true; },
+                new DeliveryPartner("bench") { @Override public void deliver(String orderId) { } },
+                (to, message) -> { });
+        List<Order> orders = orders(ORDERS);
+
+        int sequential = ORDERS / 20;  // 2ms each, keep it short
+        long start = System.nanoTime();
+        for (int i = 0; i < sequential; i++) {
+            processor.process(orders.get(i));
+        }
+        print("sequential", sequential, System.nanoTime() - start);
+
+        for (int threads : new int[] {1, 4, 16, 64}) {
+            try (OrderPipeline pipeline = new OrderPipeline(processor, Math.min(threads, Runtime.getRuntime().availableProcessors()), threads, threads * 4)) {
+                pipeline.processAll(orders.stream().limit(threads * 50L));  // warm up
+                int count = Math.min(ORDERS, threads * 1000);
+                start = System.nanoTime();
+                List<OrderResult> results = pipeline.processAll(orders.stream().limit(count));
+                print("pipeline " + threads + " threads", results.size(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(new Order("FD-" + i, "user" + i + "@example.com", List.of(
+                    new OrderItem("Burger", 1 + i % 3, 150.0),
+                    new OrderItem("Fries", 1, 80.0),
+                    new OrderItem("Cola", 2, 45.5))));
+        }
+        return orders;
+    }
+
+    private static void print(String label, int orders, long nanos) {
+        System.out.printf("%-22s %8.0f orders/sec%n", label, orders / (nanos / 1e9));
+    }
+}
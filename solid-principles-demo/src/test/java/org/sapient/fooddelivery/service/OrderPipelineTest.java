@@ -0,0 +1,87 @@
+package org.sapient.fooddelivery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.sapient.fooddelivery.delivery.DeliveryPartner;
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderItem;
+import org.sapient.fooddelivery.model.OrderResult;
+import org.sapient.fooddelivery.payment.PaymentPolicy;
+import org.sapient.fooddelivery.payment.ResilientPaymentMethod;
+import org.sapient.fooddelivery.payment.SimulatedPaymentGateway;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class OrderPipelineTest {
+
+    private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+    private final Set<String> emailed = ConcurrentHashMap.newKeySet();
+
+    private final OrderProcessor processor = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+            amount -> amount < 1000,   // the gateway declines big orders
+            new DeliveryPartner("test") { @Override public void deliver(String orderId) { delivered.add(orderId); } },
+            (to, message) -> emailed.add(to));
+
+    @Test
+    public void resultsComeBackInInputOrder() {
+        List<Order> orders = IntStream.range(0, 500)
+                .mapToObj(i -> new Order("FD-" + i, "u" + i + "@example.com", List.of(new OrderItem("Burger", 1, 100))))
+                .toList();
+        List<OrderResult> results;
+        try (OrderPipeline pipeline = new OrderPipeline(processor, 4, 8, 16)) {
+            results = pipeline.processAll(orders.stream());
+        }
+        assertEquals(500, results.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("FD-" + i, results.get(i).orderId);
+            assertEquals(OrderResult.Status.COMPLETED, results.get(i).status);
+        }
+        assertEquals(500, delivered.size());
+        assertEquals(500, emailed.size());  // close() waited for the notifications
+    }
+
+    @Test
+    public void failuresOfOneOrderDoNotStopTheBatch() {
+        List<OrderResult> results = processor.processAll(List.of(
+                new Order("ok", "a@example.com", List.of(new OrderItem("Burger", 1, 100))),
+                new Order("empty", "b@example.com", List.of()),
+                new Order("big", "c@example.com", List.of(new OrderItem("Party pack", 10, 500)))).stream());
+
+        assertEquals(OrderResult.Status.COMPLETED, results.get(0).status);
+        assertEquals(OrderResult.Status.REJECTED, results.get(1).status);
+        assertEquals("Order is empty", results.get(1).reason);
+        assertEquals(OrderResult.Status.PAYMENT_DECLINED, results.get(2).status);
+        assertEquals(Set.of("ok"), delivered);
+    }
+
+    @Test
+    public void deliveryFailureAfterPaymentIsPaidNotDelivered() {
+        OrderProcessor noRiders = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+                amount -> true,
+                new DeliveryPartner("down") { @Override public void deliver(String orderId) { throw new IllegalStateException("no riders"); } },
+                (to, message) -> emailed.add(to));
+        List<OrderResult> results = noRiders.processAll(Stream.of(
+                new Order("FD-1", "a@example.com", List.of(new OrderItem("Burger", 2, 100)))));
+
+        assertEquals(OrderResult.Status.PAID_NOT_DELIVERED, results.get(0).status);
+        assertEquals(210.0, results.get(0).total);   // what the customer was charged
+        assertEquals(Set.of(), emailed);
+    }
+
+    @Test
+    public void defaultBulkheadKeepsUpWithTheDefaultPipeline() {
+        OrderProcessor async = new OrderProcessor(new OrderValidator(), new PriceCalculator(),
+                new ResilientPaymentMethod("gw", new SimulatedPaymentGateway(2_000), PaymentPolicy.defaults()),
+                new DeliveryPartner("test") { @Override public void deliver(String orderId) { delivered.add(orderId); } },
+                (to, message) -> { });
+        List<OrderResult> results = async.processAll(IntStream.range(0, 2000)
+                .mapToObj(i -> new Order("FD-" + i, "u" + i + "@example.com", List.of(new OrderItem("Burger", 1, 100)))));
+
+        assertEquals(2000, results.stream().filter(r -> r.status == OrderResult.Status.COMPLETED).count());
+    }
+}
@@ -0,0 +1,82 @@
+package org.sapient.fooddelivery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderBatch;
+import org.sapient.fooddelivery.model.OrderItem;
+import org.sapient.fooddelivery.pricing.PricingContext;
+import org.sapient.fooddelivery.pricing.PricingEngine;
+import org.sapient.fooddelivery.pricing.PricingRule;
+import org.sapient.fooddelivery.pricing.RuleSet;
+
+import java.util.List;
+import java.util.Random;
+
+public class PriceCalculatorTest {
+
+    private final PriceCalculator calculator = new PriceCalculator();
+
+    @Test
+    public void batchTotalsMatchPerOrderTotals() {
+        Random random = new Random(42);
+        OrderBatch batch = new OrderBatch(4, 4);   // grows as needed
+        Order[] orders = new Order[1000];
+        for (int i = 0; i < orders.length; i++) {
+            OrderItem[] items = new OrderItem[1 + random.nextInt(6)];
+            for (int j = 0; j < items.length; j++) {
+                items[j] = new OrderItem("item" + j, 1 + random.nextInt(5), random.nextInt(100_000) / 100.0);
+            }
+            orders[i] = new Order("FD-" + i, "a@example.com", List.of(items));
+            batch.add(orders[i]);
+        }
+        long[] totals = new long[batch.size()];
+        calculator.calculateTotals(batch, totals);
+
+        for (int i = 0; i < orders.length; i++) {
+            assertEquals(calculator.calculateTotal(orders[i]), totals[i] / 100.0, 0.006, orders[i].id);
+        }
+    }
+
+    @Test
+    public void taxIsRoundedHalfUpToThePaisa() {
+        OrderBatch batch = new OrderBatch(2, 2);
+        batch.startOrder();
+        batch.addItem(1, 10);     // 0.10 + 0.005 tax -> 0.11
+        batch.startOrder();
+        batch.addItem(3, 3333);   // 99.99 + 4.9995 tax -> 104.99
+        long[] totals = new long[2];
+        calculator.calculateTotals(batch, totals);
+        assertEquals(11, totals[0]);
+        assertEquals(10_499, totals[1]);
+    }
+
+    @Test
+    public void batchTotalsMatchPerOrderTotalsWithAnEngine() {
+        PricingEngine engine = new PricingEngine(new RuleSet(1, List.of(
+                PricingRule.tax("KA", 1800),
+                PricingRule.itemDiscount("item1", 1000),
+                PricingRule.surge(12, 14, 500),
+                PricingRule.coupon("TENOFF", 1000, 0, 0, 2_000))));
+        PriceCalculator priced = new PriceCalculator(engine, new PricingContext("KA", "TENOFF", 13));
+        Random random = new Random(7);
+        OrderBatch batch = new OrderBatch(4, 4);
+        Order[] orders = new Order[1000];
+        for (int i = 0; i < orders.length; i++) {
+            OrderItem[] items = new OrderItem[1 + random.nextInt(6)];
+            for (int j = 0; j < items.length; j++) {
+                items[j] = new OrderItem("item" + j, 1 + random.nextInt(5), random.nextInt(100_000) / 100.0);
+            }
+            orders[i] = new Order("FD-" + i, "a@example.com", List.of(items));
+            batch.add(orders[i]);
+        }
+        long[] totals = new long[batch.size()];
+        priced.calculateTotals(batch, totals);
+
+        for (int i = 0; i < orders.length; i++) {
+            assertEquals(engine.priceInPaise(orders[i], new PricingContext("KA", "TENOFF", 13)), totals[i], orders[i].id);
+            assertEquals(priced.calculateTotal(orders[i]), totals[i] / 100.0, 1e-9, orders[i].id);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.sapient.fooddelivery.service;
+
+import org.sapient.fooddelivery.model.Order;
+import org.sapient.fooddelivery.model.OrderBatch;
+import org.sapient.fooddelivery.model.OrderItem;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Not a JUnit test: orders/sec and bytes allocated per order for calculateTotal(Order) (stream over
+// boxed items) and for the calculateTotals(OrderBatch) kernel, 10k orders per call, same data.
+public class PricingHarness {
+    private static final int ORDERS = 10_000;
+    private static final int ROUNDS = 5;
+    private static final int CALLS = 500;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        List<Order> orders = new ArrayList<>(ORDERS);
+        OrderBatch batch = new OrderBatch(ORDERS, ORDERS * 4);
+        for (int i = 0; i < ORDERS; i++) {
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0, n = 1 + random.nextInt(6); j < n; j++) {
+                items.add(new OrderItem("item", 1 + random.nextInt(5), random.nextInt(50_000) / 100.0));
+            }
+            orders.add(new Order("FD-" + i, "a@example.com", items));
+            batch.add(orders.get(i));
+        }
+        PriceCalculator calculator = new PriceCalculator();
+        long[] totals = new long[ORDERS];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            double sink = 0;
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int call = 0; call < CALLS; call++) {
+                for (Order order : orders) sink += calculator.calculateTotal(order);
+            }
+            report("stream per order", System.nanoTime() - start, allocatedBytes() - bytes);
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            for (int call = 0; call < CALLS; call++) {
+                calculator.calculateTotals(batch, totals);
+                sink += totals[call % ORDERS];
+            }
+            report("columnar kernel", System.nanoTime() - start, allocatedBytes() - bytes);
+            if (sink == 42) System.out.println();
+        }
+    }
+
+    private static void report(String label, long nanos, long bytes) {
+        long priced = (long) ORDERS * CALLS;
+        System.out.printf("%-18s %12.0f orders/sec %8.1f bytes/order%n", label, priced / (nanos / 1e9), (double) bytes / priced);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
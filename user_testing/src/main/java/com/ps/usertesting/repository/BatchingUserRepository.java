@@ -0,0 +1,194 @@
+package com.ps.usertesting.repository;
+
+import com.ps.usertesting.model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// DataLoader style decorator: findById calls made within a short window are collected and sent to the
+// delegate as one findAllByIds, the same id asked for twice in a window is fetched once.
+// A caller that needs many users (e.g. a page of names) can call load() for each id and join afterwards,
+// then all of them go out in the same batch.
+// findById only waits for the window when there is company: with nothing queued and nothing in flight it
+// goes straight to the delegate, so a lone caller pays no extra latency.
+// The timer thread only cuts batches; the round-trips run on a separate pool, so a slow delegate does not
+// hold up the next window's timer.
+public class BatchingUserRepository implements UserRepository, AutoCloseable {
+
+    private final UserRepository delegate;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService dispatcher;
+
+    // ids waiting for the next batch, and calls to the delegate under way or about to start; guarded by this
+    private Map<Integer, CompletableFuture<User>> pending = new HashMap<>();
+    private int inFlight;
+    private boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    public BatchingUserRepository(UserRepository delegate, long windowMicros, int maxBatchSize) {
+        if (windowMicros < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("window must be >= 0 and maxBatchSize >= 1");
+        }
+        this.delegate = delegate;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "user-batch-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "user-batch-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public User findById(int id) {
+        boolean alone;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("BatchingUserRepository is closed");
+            }
+            alone = pending.isEmpty() && inFlight == 0;
+            if (alone) {
+                inFlight++;
+            }
+        }
+        if (alone) {
+            requests.incrementAndGet();
+            try {
+                batches.incrementAndGet();
+                return delegate.findAllByIds(List.of(id)).get(id);
+            } finally {
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+        try {
+            return load(id).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // already a batch, nothing to coalesce
+    @Override
+    public Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+        batches.incrementAndGet();
+        return delegate.findAllByIds(ids);
+    }
+
+    // completes with the user, or null when there is no user with that id
+    public CompletableFuture<User> load(int id) {
+        requests.incrementAndGet();
+        Map<Integer, CompletableFuture<User>> full = null;
+        CompletableFuture<User> future;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("BatchingUserRepository is closed"));
+            }
+            future = pending.get(id);
+            if (future != null) {
+                return future;   // same id already in this batch
+            }
+            future = new CompletableFuture<>();
+            pending.put(id, future);
+            if (pending.size() == 1) {
+                Map<Integer, CompletableFuture<User>> batch = pending;
+                scheduler.schedule(() -> dispatchIfPending(batch), windowMicros, TimeUnit.MICROSECONDS);
+            }
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    // sends what is still pending; batches already handed to the dispatch pool finish on their own
+    @Override
+    public void close() {
+        Map<Integer, CompletableFuture<User>> rest;
+        synchronized (this) {
+            closed = true;
+            rest = takePending();
+        }
+        scheduler.shutdown();
+        dispatcher.shutdown();
+        dispatch(rest);
+    }
+
+    // counts the batch as in flight from here, so a findById cannot go out alone past a batch about to be sent
+    private Map<Integer, CompletableFuture<User>> takePending() {
+        Map<Integer, CompletableFuture<User>> batch = pending;
+        pending = new HashMap<>();
+        if (!batch.isEmpty()) {
+            inFlight++;
+        }
+        return batch;
+    }
+
+    // the scheduled task holds on to the map it was scheduled for, if that batch was already taken
+    // because it filled up, it is no longer pending and the task does nothing
+    private void dispatchIfPending(Map<Integer, CompletableFuture<User>> batch) {
+        synchronized (this) {
+            if (batch != pending) {
+                return;
+            }
+            takePending();
+        }
+        dispatcher.execute(() -> dispatch(batch));
+    }
+
+    private void dispatch(Map<Integer, CompletableFuture<User>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(batch.keySet());
+        try {
+            batches.incrementAndGet();
+            Map<Integer, User> users = delegate.findAllByIds(ids);
+            for (Integer id : ids) {
+                batch.get(id).complete(users.get(id));
+            }
+        } catch (RuntimeException e) {
+            for (CompletableFuture<User> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            synchronized (this) {
+                inFlight--;
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.ps.usertesting.repository;
+
+import com.ps.usertesting.model.User;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Caching decorator: found users are kept for hitTtl, ids that were not found for missTtl (usually much
+// shorter, so a newly created user shows up soon). Concurrent lookups of the same uncached id share one
+// call to the delegate.
+// With a Bloom filter of all existing ids, ids that were never added are answered with null right away,
+// without touching the cache or the delegate. Whoever creates users must then call addKnownId, and
+// removeKnownId when deleting one.
+// A load only caches its result when no write (invalidate, addKnownId, removeKnownId) to its id happened
+// since it started, otherwise a lookup racing with an update could put the old value back for a whole TTL.
+// Writes are counted per stripe of ids, so writes to other users do not keep loads from being cached.
+public class CachingUserRepository implements UserRepository {
+    private static final int STAMP_STRIPES = 1024;
+
+    private final UserRepository delegate;
+    private final IdBloomFilter knownIds;   // null: no pre-check
+    private final long hitTtlNanos;
+    private final long missTtlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Integer, Entry> cache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, CompletableFuture<User>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STAMP_STRIPES);
+    // deleted ids still pass the Bloom filter (it cannot forget), so their misses are not false positives.
+    // Only the last maxEntries deletions are remembered; misses on older ones count as false positives again.
+    private final Map<Integer, Boolean> deletedIds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bloomRejects = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public CachingUserRepository(UserRepository delegate, IdBloomFilter knownIds,
+                                 long hitTtl, long missTtl, TimeUnit unit, int maxEntries) {
+        this(delegate, knownIds, hitTtl, missTtl, unit, maxEntries, System::nanoTime);
+    }
+
+    CachingUserRepository(UserRepository delegate, IdBloomFilter knownIds,
+                          long hitTtl, long missTtl, TimeUnit unit, int maxEntries, LongSupplier clock) {
+        if (hitTtl < 0 || missTtl < 0 || maxEntries < 1) {
+            throw new IllegalArgumentException("TTLs must be >= 0 and maxEntries >= 1");
+        }
+        this.delegate = delegate;
+        this.knownIds = knownIds;
+        this.hitTtlNanos = unit.toNanos(hitTtl);
+        this.missTtlNanos = unit.toNanos(missTtl);
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.deletedIds = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    @Override
+    public User findById(int id) {
+        if (knownIds != null && !knownIds.mightContain(id)) {
+            bloomRejects.incrementAndGet();
+            return null;
+        }
+        Entry entry = cache.get(id);
+        if (entry != null && entry.expiresAt - clock.getAsLong() > 0) {
+            (entry.user != null ? hits : negativeHits).incrementAndGet();
+            return entry.user;
+        }
+        CompletableFuture<User> mine = new CompletableFuture<>();
+        CompletableFuture<User> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return join(running);   // someone else is already loading this id
+        }
+        try {
+            misses.incrementAndGet();
+            long stamp = stamp(id);
+            User user = delegate.findById(id);
+            store(id, user, stamp);
+            mine.complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    // cached and Bloom-rejected ids are answered locally, the rest go to the delegate in one batch
+    @Override
+    public Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        Set<Integer> toLoad = new LinkedHashSet<>();
+        long now = clock.getAsLong();
+        for (Integer id : ids) {
+            if (knownIds != null && !knownIds.mightContain(id)) {
+                bloomRejects.incrementAndGet();
+                continue;
+            }
+            Entry entry = cache.get(id);
+            if (entry != null && entry.expiresAt - now > 0) {
+                (entry.user != null ? hits : negativeHits).incrementAndGet();
+                if (entry.user != null) {
+                    users.put(id, entry.user);
+                }
+            } else {
+                toLoad.add(id);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            misses.addAndGet(toLoad.size());
+            long[] stamps = new long[toLoad.size()];
+            int i = 0;
+            for (Integer id : toLoad) {
+                stamps[i++] = stamp(id);
+            }
+            Map<Integer, User> loaded = delegate.findAllByIds(toLoad);
+            i = 0;
+            for (Integer id : toLoad) {
+                User user = loaded.get(id);
+                store(id, user, stamps[i++]);
+                if (user != null) {
+                    users.put(id, user);
+                }
+            }
+        }
+        return users;
+    }
+
+    // call when a user is created: the id passes the Bloom check from now on and a cached miss is dropped
+    public void addKnownId(int id) {
+        if (knownIds != null) {
+            knownIds.add(id);
+        }
+        deletedIds.remove(id);
+        invalidate(id);
+    }
+
+    // call when a user is deleted
+    public void removeKnownId(int id) {
+        if (knownIds != null) {
+            deletedIds.put(id, Boolean.TRUE);
+        }
+        invalidate(id);
+    }
+
+    // call when a user is changed; loads of this id already under way will not cache what they read
+    public void invalidate(int id) {
+        writeStamps.incrementAndGet(stripe(id));
+        inFlight.remove(id);   // later lookups start a fresh load instead of joining the old one
+        cache.remove(id);
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getNegativeHitCount() { return negativeHits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getBloomRejectCount() { return bloomRejects.get(); }
+    // ids that passed the Bloom check but were never added (ids deleted through removeKnownId do not count)
+    public long getFalsePositiveCount() { return falsePositives.get(); }
+
+    // stamp: the id's write stamp before the delegate was asked. The entry goes in first and is taken out again if a
+    // write came in meanwhile, so a write between the check and the put cannot be missed either.
+    private void store(int id, User user, long stamp) {
+        if (user == null && knownIds != null && !deletedIds.containsKey(id)) {
+            falsePositives.incrementAndGet();
+        }
+        long ttl = user != null ? hitTtlNanos : missTtlNanos;
+        if (ttl == 0) {
+            return;
+        }
+        if (cache.size() >= maxEntries) {
+            evict();
+        }
+        Entry entry = new Entry(user, clock.getAsLong() + ttl);
+        cache.put(id, entry);
+        if (stamp(id) != stamp) {
+            cache.remove(id, entry);
+        }
+    }
+
+    private long stamp(int id) {
+        return writeStamps.get(stripe(id));
+    }
+
+    private static int stripe(int id) {
+        return (id * 0x9E3779B9 >>> 16) & (STAMP_STRIPES - 1);
+    }
+
+    // drop expired entries, and if that was not enough some arbitrary ones, down to 90% so the
+    // next few stores do not have to scan again
+    private void evict() {
+        long now = clock.getAsLong();
+        cache.values().removeIf(e -> e.expiresAt - now <= 0);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<Integer> it = cache.keySet().iterator();
+        while (cache.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static User join(CompletableFuture<User> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        final User user;   // null: cached miss
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
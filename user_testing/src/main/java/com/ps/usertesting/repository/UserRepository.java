@@ -2,6 +2,24 @@ package com.ps.usertesting.repository;
 
 import com.ps.usertesting.model.User;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public interface UserRepository {
     User findById(int id);
+
+    // Batch lookup: ids that are not found are simply missing from the map.
+    // Repositories with a real backend should override this with a single round-trip (e.g. WHERE id IN (...)),
+    // the default falls back to one findById per id
+    default Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        for (Integer id : ids) {
+            User user = findById(id);
+            if (user != null) {
+                users.put(id, user);
+            }
+        }
+        return users;
+    }
 }
@@ -3,6 +3,10 @@ package com.ps.usertesting.service;
 import com.ps.usertesting.model.User;
 import com.ps.usertesting.repository.UserRepository;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class UserService {
 
     private UserRepository userRepository;
@@ -21,4 +25,15 @@ public class UserService {
         User user = userRepository.findById(id);
         return (user != null) ? user.getName() : "Unknown User";
     }
+
+    // Same as getUserNameById for many ids, with a single findAllByIds instead of one lookup per id
+    public Map<Integer, String> getUserNamesByIds(Collection<Integer> ids) {
+        Map<Integer, User> users = userRepository.findAllByIds(ids);
+        Map<Integer, String> names = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            User user = users.get(id);
+            names.put(id, (user != null) ? user.getName() : "Unknown User");
+        }
+        return names;
+    }
 }
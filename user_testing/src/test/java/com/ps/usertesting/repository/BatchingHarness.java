@@ -0,0 +1,43 @@
+package com.ps.usertesting.repository;
+
+import com.ps.usertesting.model.User;
+import com.ps.usertesting.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Not a JUnit test: renders a page of 500 user names against a backend with 1ms round-trips,
+// once with one findById per name and once through BatchingUserRepository, and prints round-trips and time
+public class BatchingHarness {
+
+    private static final int PAGE = 500;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {   // the first round is warm-up
+            SlowUserRepository plain = new SlowUserRepository(10_000, 1000);
+            UserService service = new UserService(plain);
+            long start = System.nanoTime();
+            for (int id = 0; id < PAGE; id++) {
+                service.getUserNameById(id);
+            }
+            report("one by one", plain, start);
+
+            SlowUserRepository backend = new SlowUserRepository(10_000, 1000);
+            try (BatchingUserRepository batching = new BatchingUserRepository(backend, 500, 1000)) {
+                start = System.nanoTime();
+                List<CompletableFuture<User>> page = new ArrayList<>();
+                for (int id = 0; id < PAGE; id++) {
+                    page.add(batching.load(id));
+                }
+                page.forEach(CompletableFuture::join);
+                report("batched", backend, start);
+            }
+        }
+    }
+
+    private static void report(String label, SlowUserRepository backend, long start) {
+        System.out.printf("%-10s %4d round-trips, %7.2f ms%n", label, backend.roundTrips.get(),
+                (System.nanoTime() - start) / 1e6);
+    }
+}
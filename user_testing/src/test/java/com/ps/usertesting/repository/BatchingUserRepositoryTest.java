@@ -0,0 +1,153 @@
+package com.ps.usertesting.repository;
+
+import com.ps.usertesting.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BatchingUserRepositoryTest {
+
+    @Test
+    void loadsOfOnePageGoOutAsOneBatch() {
+        SlowUserRepository backend = new SlowUserRepository(1000, 1000);
+        // a window of 100ms, so a slow start on a busy machine cannot cut the page in two
+        try (BatchingUserRepository repo = new BatchingUserRepository(backend, 100_000, 1000)) {
+            List<CompletableFuture<User>> page = new ArrayList<>();
+            for (int id = 0; id < 500; id++) {
+                page.add(repo.load(id % 250));   // every id twice
+            }
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals("user-" + (i % 250), page.get(i).join().getName());
+            }
+            assertEquals(1, backend.roundTrips.get());
+            assertEquals(250, backend.idsFetched.get());   // duplicates fetched once
+        }
+    }
+
+    @Test
+    void concurrentFindByIdCallsAreCoalesced() throws Exception {
+        int threads = 50;
+        AtomicReference<BatchingUserRepository> repoRef = new AtomicReference<>();
+        // every round-trip lasts until all callers are inside the repository (the first one went out alone),
+        // so on a busy machine a late thread cannot find it idle and skip the batching too
+        SlowUserRepository backend = new SlowUserRepository(100, 1000) {
+            @Override
+            public Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (repoRef.get().getRequestCount() < threads && System.currentTimeMillis() < deadline) {
+                    LockSupport.parkNanos(100_000);   // not spinning: the late callers need the CPU
+                }
+                return super.findAllByIds(ids);
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (BatchingUserRepository repo = new BatchingUserRepository(backend, 5000, 1000)) {
+            repoRef.set(repo);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<User>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int id = i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return repo.findById(id);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < threads; i++) {
+                assertEquals(i, results.get(i).get().getId());
+            }
+            assertTrue(backend.roundTrips.get() < threads / 5, "round-trips: " + backend.roundTrips.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void missingUsersAreNullAndFullBatchesGoOutImmediately() {
+        SlowUserRepository backend = new SlowUserRepository(10, 0);
+        // a window of a minute: only filling the batch can send it
+        try (BatchingUserRepository repo = new BatchingUserRepository(backend, 60_000_000, 2)) {
+            CompletableFuture<User> known = repo.load(3);
+            CompletableFuture<User> unknown = repo.load(99);
+            assertEquals(3, known.join().getId());
+            assertNull(unknown.join());
+            assertEquals(1, backend.roundTrips.get());
+        }
+    }
+
+    @Test
+    void loneFindByIdDoesNotWaitForTheWindow() {
+        SlowUserRepository backend = new SlowUserRepository(10, 0);
+        // a window of a minute: waiting for it would be obvious
+        try (BatchingUserRepository repo = new BatchingUserRepository(backend, 60_000_000, 100)) {
+            long start = System.nanoTime();
+            for (int id = 0; id < 10; id++) {
+                assertEquals(id, repo.findById(id).getId());
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            assertTrue(micros < 1_000_000, "10 calls took " + micros + "us");
+            assertEquals(10, backend.roundTrips.get());
+        }
+    }
+
+    @Test
+    void backendFailureFailsTheWholeBatch() {
+        UserRepository backend = mock(UserRepository.class);
+        when(backend.findAllByIds(any())).thenThrow(new IllegalStateException("store down"));
+        try (BatchingUserRepository repo = new BatchingUserRepository(backend, 1000, 100)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> repo.findById(1));
+            assertEquals("store down", e.getMessage());
+        }
+    }
+
+    @Test
+    void slowBatchDoesNotHoldUpTheNextWindow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SlowUserRepository backend = new SlowUserRepository(10, 0) {
+            @Override
+            public Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+                if (ids.contains(1)) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.findAllByIds(ids);
+            }
+        };
+        try (BatchingUserRepository repo = new BatchingUserRepository(backend, 1000, 100)) {
+            CompletableFuture<User> stuck = repo.load(1);
+            Thread.sleep(50);   // its window has passed, the round-trip hangs
+            assertEquals(2, repo.load(2).get(5, TimeUnit.SECONDS).getId());
+            assertFalse(stuck.isDone());
+            release.countDown();
+            assertEquals(1, stuck.get(5, TimeUnit.SECONDS).getId());
+        }
+    }
+
+    @Test
+    void callsAfterCloseFail() {
+        BatchingUserRepository repo = new BatchingUserRepository(new SlowUserRepository(10, 0), 1000, 100);
+        repo.close();
+        CompletionException e = assertThrows(CompletionException.class, () -> repo.load(1).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(IllegalStateException.class, () -> repo.findById(1));
+    }
+}
@@ -0,0 +1,263 @@
+package com.ps.usertesting.repository;
+
+import com.ps.usertesting.model.User;
+import com.ps.usertesting.service.UserService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CachingUserRepositoryTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CachingUserRepository cache(UserRepository backend, IdBloomFilter knownIds, int maxEntries) {
+        return new CachingUserRepository(backend, knownIds, 60, 5, TimeUnit.SECONDS, maxEntries, now::get);
+    }
+
+    @Test
+    void hitsAndMissesHaveSeparateTtls() {
+        UserRepository backend = mock(UserRepository.class);
+        when(backend.findById(1)).thenReturn(new User(1, "Alice"));
+        CachingUserRepository repo = cache(backend, null, 100);
+        UserService service = new UserService(repo);
+
+        assertEquals("Alice", service.getUserNameById(1));
+        assertEquals("Unknown User", service.getUserNameById(2));
+        assertEquals("Alice", service.getUserNameById(1));
+        assertEquals("Unknown User", service.getUserNameById(2));
+        verify(backend, times(1)).findById(1);
+        verify(backend, times(1)).findById(2);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));   // the miss expired, the hit did not
+        service.getUserNameById(1);
+        service.getUserNameById(2);
+        verify(backend, times(1)).findById(1);
+        verify(backend, times(2)).findById(2);
+
+        assertEquals(2, repo.getHitCount());
+        assertEquals(1, repo.getNegativeHitCount());
+        assertEquals(3, repo.getMissCount());
+    }
+
+    @Test
+    void bloomFilterRejectsUnknownIdsWithoutLookup() {
+        UserRepository backend = mock(UserRepository.class);
+        when(backend.findById(anyInt())).thenAnswer(inv -> {
+            int id = inv.getArgument(0);
+            return id < 1000 ? new User(id, "user-" + id) : null;
+        });
+        IdBloomFilter knownIds = new IdBloomFilter(1000, 0.01);
+        for (int id = 0; id < 1000; id++) {
+            knownIds.add(id);
+        }
+        CachingUserRepository repo = cache(backend, knownIds, 100_000);
+
+        for (int id = 0; id < 1000; id++) {
+            assertEquals("user-" + id, repo.findById(id).getName());   // no false negatives
+        }
+        int probes = 100_000;
+        for (int id = 1000; id < 1000 + probes; id++) {
+            assertNull(repo.findById(id));
+        }
+        long lookups = repo.getMissCount() - 1000;
+        assertEquals(lookups, repo.getFalsePositiveCount());
+        assertEquals(probes, repo.getBloomRejectCount() + lookups);
+        assertTrue(lookups < probes * 0.02, "false positives: " + lookups);
+    }
+
+    @Test
+    void addKnownIdMakesANewUserVisible() {
+        UserRepository backend = mock(UserRepository.class);
+        CachingUserRepository repo = cache(backend, new IdBloomFilter(100, 0.01), 100);
+        assertNull(repo.findById(7));
+        verify(backend, never()).findById(anyInt());
+
+        when(backend.findById(7)).thenReturn(new User(7, "Bob"));
+        repo.addKnownId(7);
+        assertEquals("Bob", repo.findById(7).getName());
+    }
+
+    @Test
+    void concurrentLookupsOfOneIdShareOneLoad() throws Exception {
+        SlowUserRepository backend = new SlowUserRepository(10, 50_000);
+        CachingUserRepository repo = cache(backend, null, 100);
+        int threads = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<User>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return repo.findById(3);
+                }));
+            }
+            start.countDown();
+            for (Future<User> result : results) {
+                assertEquals(3, result.get().getId());
+            }
+            assertEquals(1, backend.roundTrips.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void batchLookupOnlyLoadsWhatIsNotCached() {
+        SlowUserRepository backend = new SlowUserRepository(10, 0);
+        CachingUserRepository repo = cache(backend, null, 100);
+        repo.findById(1);
+        Map<Integer, User> users = repo.findAllByIds(List.of(1, 2, 2, 50));
+        assertEquals(2, users.size());
+        assertEquals(2, backend.roundTrips.get());
+        assertEquals(3, backend.idsFetched.get());   // 1, then 2 and 50
+    }
+
+    @Test
+    void cacheStaysBounded() {
+        SlowUserRepository backend = new SlowUserRepository(10_000, 0);
+        CachingUserRepository repo = cache(backend, null, 100);
+        for (int id = 0; id < 10_000; id++) {
+            repo.findById(id);
+        }
+        repo.findById(9_999);
+        assertEquals(1, repo.getHitCount());   // the latest entry survived eviction
+        assertEquals(10_000, backend.roundTrips.get());
+    }
+
+    // backend that holds every lookup until released, answering with whatever `current` holds when it was asked
+    private static class PausedBackend implements UserRepository {
+        final AtomicReference<User> current = new AtomicReference<>();
+        final CountDownLatch asked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLong calls = new AtomicLong();
+
+        @Override
+        public User findById(int id) {
+            User answer = current.get();
+            if (calls.incrementAndGet() == 1) {
+                asked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return answer;
+        }
+
+        @Override
+        public Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    void invalidateDuringALoadIsNotUndoneByIt() throws Exception {
+        PausedBackend backend = new PausedBackend();
+        backend.current.set(new User(1, "Alice"));
+        CachingUserRepository repo = cache(backend, null, 100);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<User> slow = pool.submit(() -> repo.findById(1));
+            backend.asked.await();
+            backend.current.set(new User(1, "Alicia"));   // renamed while the old name is on its way
+            repo.invalidate(1);
+            backend.release.countDown();
+            assertEquals("Alice", slow.get().getName());
+
+            assertEquals("Alicia", repo.findById(1).getName());
+            assertEquals(2, backend.calls.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void addKnownIdDuringALoadIsNotUndoneByIt() throws Exception {
+        PausedBackend backend = new PausedBackend();
+        IdBloomFilter knownIds = new IdBloomFilter(100, 0.01);
+        knownIds.add(7);
+        CachingUserRepository repo = cache(backend, knownIds, 100);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<User> slow = pool.submit(() -> repo.findById(7));
+            backend.asked.await();
+            backend.current.set(new User(7, "Bob"));   // created while the miss is on its way
+            repo.addKnownId(7);
+            backend.release.countDown();
+            assertNull(slow.get());
+
+            assertEquals("Bob", repo.findById(7).getName());   // the miss was not cached
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void deletedIdsAreNotFalsePositives() {
+        SlowUserRepository backend = new SlowUserRepository(10, 0);
+        IdBloomFilter knownIds = new IdBloomFilter(100, 0.01);
+        for (int id = 0; id < 20; id++) {
+            knownIds.add(id);
+        }
+        CachingUserRepository repo = cache(backend, knownIds, 100);
+        repo.removeKnownId(15);   // ids 10..19 were deleted, only 15 through the repository
+        assertNull(repo.findById(15));
+        assertEquals(0, repo.getFalsePositiveCount());
+        assertNull(repo.findById(16));
+        assertEquals(1, repo.getFalsePositiveCount());   // 16 was never reported as deleted
+    }
+
+    @Test
+    void writesToOtherUsersDoNotKeepALoadFromBeingCached() throws Exception {
+        PausedBackend backend = new PausedBackend();
+        backend.current.set(new User(1, "Alice"));
+        CachingUserRepository repo = cache(backend, null, 100);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<User> slow = pool.submit(() -> repo.findById(1));
+            backend.asked.await();
+            repo.invalidate(2);   // someone else changed
+            backend.release.countDown();
+            slow.get();
+
+            repo.findById(1);
+            assertEquals(1, backend.calls.get());   // served from the cache
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void onlyRecentDeletionsAreRemembered() {
+        SlowUserRepository backend = new SlowUserRepository(10, 0);
+        IdBloomFilter knownIds = new IdBloomFilter(100, 0.01);
+        for (int id = 0; id < 20; id++) {
+            knownIds.add(id);
+        }
+        CachingUserRepository repo = cache(backend, knownIds, 2);
+        repo.removeKnownId(15);
+        repo.removeKnownId(16);
+        repo.removeKnownId(17);   // bounded like the cache: 15 is forgotten
+        assertNull(repo.findById(17));
+        assertNull(repo.findById(16));
+        assertEquals(0, repo.getFalsePositiveCount());
+        assertNull(repo.findById(15));
+        assertEquals(1, repo.getFalsePositiveCount());
+    }
+}
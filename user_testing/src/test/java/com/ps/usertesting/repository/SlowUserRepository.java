@@ -0,0 +1,50 @@
+package com.ps.usertesting.repository;
+
+import com.ps.usertesting.model.User;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fake backend: users with ids 0..size-1 exist, every call (single or batch) costs one round-trip of latency
+class SlowUserRepository implements UserRepository {
+
+    private final int size;
+    private final long latencyMicros;
+    final AtomicInteger roundTrips = new AtomicInteger();
+    final AtomicInteger idsFetched = new AtomicInteger();
+
+    SlowUserRepository(int size, long latencyMicros) {
+        this.size = size;
+        this.latencyMicros = latencyMicros;
+    }
+
+    @Override
+    public User findById(int id) {
+        roundTrip(1);
+        return id >= 0 && id < size ? new User(id, "user-" + id) : null;
+    }
+
+    @Override
+    public Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+        roundTrip(ids.size());
+        Map<Integer, User> users = new HashMap<>();
+        for (Integer id : ids) {
+            if (id >= 0 && id < size) {
+                users.put(id, new User(id, "user-" + id));
+            }
+        }
+        return users;
+    }
+
+    private void roundTrip(int ids) {
+        roundTrips.incrementAndGet();
+        idsFetched.addAndGet(ids);
+        long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.ps.usertesting.model.User;
 import com.ps.usertesting.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -38,4 +41,18 @@ class UserServiceTest {
         String result = userService.getUserNameById(99);
         assertEquals("Unknown User", result);
     }
+
+    @Test
+    void testGetUserNamesByIds_usesOneBatchLookup() {
+        UserRepository mockRepo = mock(UserRepository.class);
+        when(mockRepo.findAllByIds(List.of(1, 99))).thenReturn(Map.of(1, new User(1, "Alice")));
+
+        UserService userService = new UserService(mockRepo);
+
+        Map<Integer, String> names = userService.getUserNamesByIds(List.of(1, 99));
+        assertEquals("Alice", names.get(1));
+        assertEquals("Unknown User", names.get(99));
+        verify(mockRepo).findAllByIds(List.of(1, 99));
+        verify(mockRepo, never()).findById(anyInt());
+    }
 }